@@ -0,0 +1,185 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.util.Log;
+
+import com.example.bread.firebase.FollowRequestMapper;
+import com.example.bread.firebase.MoodEventMapper;
+import com.example.bread.firebase.ParticipantMapper;
+import com.example.bread.model.FollowRequest;
+import com.example.bread.model.MoodEvent;
+import com.example.bread.model.Participant;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Checks that the mappers read and write the same documents as Firestore's reflection based mapper,
+ * against the emulator.
+ */
+public class FirestoreMapperTest {
+    private static FirebaseFirestore db;
+
+    @BeforeClass
+    public static void testSetup() {
+        String androidLocalHost = "10.0.2.2";
+        db = FirebaseFirestore.getInstance();
+        db.useEmulator(androidLocalHost, 8080);
+    }
+
+    private static MoodEvent fullMoodEvent() {
+        DocumentReference participantRef = db.collection("participants").document("mapperUser");
+        MoodEvent moodEvent = new MoodEvent("Title", "Walk in the park", MoodEvent.EmotionalState.HAPPY, participantRef);
+        moodEvent.setTimestamp(new Date(1700000000000L));
+        moodEvent.setSocialSituation(MoodEvent.SocialSituation.WITH_FRIENDS);
+        moodEvent.setTrigger("Sunshine");
+        moodEvent.setAttachedImageData(Blob.fromBytes(new byte[]{1, 2, 3}));
+        moodEvent.setAttachedImageRef("hash");
+        moodEvent.setAttachedImagePlaceholder("LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+        moodEvent.setSearchTokens(Arrays.asList("walk", "in", "the", "park", "sunshine"));
+        Map<String, Object> geoInfo = new HashMap<>();
+        geoInfo.put("geohash", "c3nfk");
+        geoInfo.put("latitude", 53.5);
+        geoInfo.put("longitude", -113.5);
+        moodEvent.setGeoInfo(geoInfo);
+        return moodEvent;
+    }
+
+    @Test
+    public void moodEventReadMatchesToObjectTest() throws ExecutionException, InterruptedException {
+        MoodEvent moodEvent = fullMoodEvent();
+        DocumentReference ref = db.collection("moodEvents").document(moodEvent.getId());
+        Tasks.await(ref.set(moodEvent));
+
+        DocumentSnapshot doc = Tasks.await(ref.get());
+        MoodEvent reflected = doc.toObject(MoodEvent.class);
+        assertEquals(reflected, MoodEventMapper.fromSnapshot(doc));
+        assertEquals(moodEvent, MoodEventMapper.fromSnapshot(doc));
+    }
+
+    @Test
+    public void moodEventWithMissingFieldsMatchesToObjectTest() throws ExecutionException, InterruptedException {
+        MoodEvent moodEvent = new MoodEvent("Title", null, MoodEvent.EmotionalState.SAD, null);
+        moodEvent.setTimestamp(new Date(1700000000000L));
+        DocumentReference ref = db.collection("moodEvents").document(moodEvent.getId());
+        Tasks.await(ref.set(moodEvent));
+
+        DocumentSnapshot doc = Tasks.await(ref.get());
+        assertEquals(doc.toObject(MoodEvent.class), MoodEventMapper.fromSnapshot(doc));
+    }
+
+    @Test
+    public void moodEventWriteMatchesSetTest() throws ExecutionException, InterruptedException {
+        MoodEvent moodEvent = fullMoodEvent();
+        DocumentReference reflectedRef = db.collection("moodEvents").document(moodEvent.getId());
+        DocumentReference mappedRef = db.collection("moodEvents").document(moodEvent.getId() + "-mapped");
+        Tasks.await(reflectedRef.set(moodEvent));
+        Tasks.await(mappedRef.set(MoodEventMapper.toMap(moodEvent)));
+
+        Map<String, Object> reflected = Tasks.await(reflectedRef.get()).getData();
+        Map<String, Object> mapped = Tasks.await(mappedRef.get()).getData();
+        assertEquals(reflected, mapped);
+        assertEquals(moodEvent, Tasks.await(mappedRef.get()).toObject(MoodEvent.class));
+    }
+
+    @Test
+    public void pendingTimestampIsWrittenByServerTest() throws ExecutionException, InterruptedException {
+        MoodEvent moodEvent = new MoodEvent("Title", "reason", MoodEvent.EmotionalState.ANGRY, null);
+        DocumentReference ref = db.collection("moodEvents").document(moodEvent.getId());
+        Tasks.await(ref.set(MoodEventMapper.toMap(moodEvent)));
+
+        assertNotNull(MoodEventMapper.fromSnapshot(Tasks.await(ref.get())).getTimestamp());
+    }
+
+    @Test
+    public void missingDocumentReadsAsNullTest() throws ExecutionException, InterruptedException {
+        DocumentSnapshot doc = Tasks.await(db.collection("moodEvents").document("missing").get());
+        assertNull(MoodEventMapper.fromSnapshot(doc));
+        assertNull(ParticipantMapper.fromSnapshot(doc));
+        assertNull(FollowRequestMapper.fromSnapshot(doc));
+    }
+
+    @Test
+    public void participantReadMatchesToObjectTest() throws ExecutionException, InterruptedException {
+        Participant participant = new Participant("mapperUser", "mapper@test.com", "Mapper", "User");
+        participant.setProfilePictureRef("hash");
+        participant.setProfilePicturePlaceholder("LEHV6nWB2yk8pyo0adR*.7kCMdnj");
+        participant.setProfilePictureVersion(3);
+        participant.setFollowerCount(2);
+        participant.setFollowingCount(5);
+        DocumentReference ref = db.collection("participants").document("mapperUser");
+        Tasks.await(ref.set(ParticipantMapper.toSummaryMap(participant)));
+
+        DocumentSnapshot doc = Tasks.await(ref.get());
+        Participant reflected = doc.toObject(Participant.class);
+        Participant mapped = ParticipantMapper.fromSnapshot(doc);
+        assertEquals(reflected.getUsername(), mapped.getUsername());
+        assertEquals(reflected.getFirstName(), mapped.getFirstName());
+        assertEquals(reflected.getLastName(), mapped.getLastName());
+        assertEquals(reflected.getEmail(), mapped.getEmail());
+        assertEquals(reflected.getProfilePictureRef(), mapped.getProfilePictureRef());
+        assertEquals(reflected.getProfilePicturePlaceholder(), mapped.getProfilePicturePlaceholder());
+        assertEquals(reflected.getProfilePictureVersion(), mapped.getProfilePictureVersion());
+        assertEquals(reflected.getFollowerCount(), mapped.getFollowerCount());
+        assertEquals(reflected.getFollowingCount(), mapped.getFollowingCount());
+    }
+
+    @Test
+    public void followRequestReadMatchesToObjectTest() throws ExecutionException, InterruptedException {
+        FollowRequest request = new FollowRequest("mapperUser");
+        DocumentReference ref = db.collection("participants").document("otherUser").collection("followRequests").document("mapperUser");
+        Tasks.await(ref.set(request.toMap()));
+
+        DocumentSnapshot doc = Tasks.await(ref.get());
+        FollowRequest reflected = doc.toObject(FollowRequest.class);
+        FollowRequest mapped = FollowRequestMapper.fromSnapshot(doc);
+        assertEquals(reflected.getFromUsername(), mapped.getFromUsername());
+        assertEquals(reflected.getStatus(), mapped.getStatus());
+        assertEquals(reflected.getTimestamp(), mapped.getTimestamp());
+    }
+
+    @After
+    public void tearDownDb() {
+        String projectId = "project-db"; //set to your project ID
+        URL url = null;
+        try {
+            url = new URL("http://10.0.2.2:8080/emulator/v1/projects/" + projectId + "/databases/%28default%29/documents");
+        } catch (MalformedURLException exception) {
+            Log.e("URL Error", Objects.requireNonNull(exception.getMessage()));
+        }
+        HttpURLConnection urlConnection = null;
+        try {
+            assert url != null;
+            urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setRequestMethod("DELETE");
+            int response = urlConnection.getResponseCode();
+            Log.i("Response Code", "Response Code: " + response);
+        } catch (IOException exception) {
+            Log.e("IO Error", Objects.requireNonNull(exception.getMessage()));
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+}
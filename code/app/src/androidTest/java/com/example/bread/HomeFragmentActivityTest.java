@@ -1,10 +1,9 @@
 package com.example.bread;
 
-import static androidx.test.espresso.Espresso.onData;
-import static androidx.test.espresso.assertion.ViewAssertions.matches;
+import static androidx.test.espresso.Espresso.onView;
 import static androidx.test.espresso.matcher.ViewMatchers.isDisplayed;
 import static androidx.test.espresso.matcher.ViewMatchers.withId;
-import static org.hamcrest.Matchers.anything;
+import static com.example.bread.RecyclerViewTestUtils.childAtPosition;
 
 import android.util.Log;
 
@@ -118,8 +117,8 @@ public class HomeFragmentActivityTest {
             throw new RuntimeException(e);
         }
 
-        onData(anything()).inAdapterView(withId(R.id.homeListView)).atPosition(0).check(matches(isDisplayed()));
-        onData(anything()).inAdapterView(withId(R.id.homeListView)).atPosition(1).check(matches(isDisplayed()));
+        onView(withId(R.id.homeRecyclerView)).check(childAtPosition(0, R.id.moodCard, isDisplayed()));
+        onView(withId(R.id.homeRecyclerView)).check(childAtPosition(1, R.id.moodCard, isDisplayed()));
     }
 
     @After
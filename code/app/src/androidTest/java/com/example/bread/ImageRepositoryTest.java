@@ -0,0 +1,180 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.util.Log;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.model.Participant;
+import com.example.bread.repository.ImageRepository;
+import com.example.bread.repository.MoodEventRepository;
+import com.example.bread.repository.ParticipantRepository;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.storage.FirebaseStorage;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that images are stored in Cloud Storage under their content hash with thumbnails,
+ * against the Firestore and Storage emulators.
+ */
+public class ImageRepositoryTest {
+    private ImageRepository imageRepository;
+    private ParticipantRepository participantRepository;
+
+    @BeforeClass
+    public static void testSetup() {
+        String androidLocalHost = "10.0.2.2";
+        FirebaseFirestore.getInstance().useEmulator(androidLocalHost, 8080);
+        FirebaseStorage.getInstance().useEmulator(androidLocalHost, 9199);
+    }
+
+    @Before
+    public void seedDatabase() throws InterruptedException {
+        imageRepository = new ImageRepository();
+        participantRepository = new ParticipantRepository();
+
+        Participant participant = new Participant("imageUser", "image@test.com", "Image", "User");
+        participant.setProfilePicture("legacy");
+        CountDownLatch latch = new CountDownLatch(1);
+        participantRepository.addParticipant(participant, unused -> latch.countDown(), e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    private static Bitmap testBitmap(int color) {
+        Bitmap bitmap = Bitmap.createBitmap(800, 600, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(color);
+        return bitmap;
+    }
+
+    private ImageRepository.StoredImage upload(Bitmap bitmap) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<ImageRepository.StoredImage> image = new AtomicReference<>();
+        imageRepository.uploadImage(bitmap, result -> {
+            image.set(result);
+            latch.countDown();
+        }, e -> latch.countDown());
+        assertTrue(latch.await(20, TimeUnit.SECONDS));
+        assertNotNull(image.get());
+        return image.get();
+    }
+
+    @Test
+    public void uploadStoresThumbnailsUnderContentHashTest() throws InterruptedException {
+        ImageRepository.StoredImage image = upload(testBitmap(Color.BLUE));
+        String hash = image.getHash();
+        assertEquals(64, hash.length());
+        // A 4x3 BlurHash for a landscape image
+        assertEquals(28, image.getPlaceholder().length());
+
+        // The same image is stored under the same name
+        assertEquals(hash, upload(testBitmap(Color.BLUE)).getHash());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<byte[]> bytes = new AtomicReference<>();
+        imageRepository.fetchImage(hash, ImageRepository.ImageSize.SMALL, result -> {
+            bytes.set(result);
+            latch.countDown();
+        }, e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertNotNull(bytes.get());
+        assertTrue(bytes.get().length <= ImageRepository.ImageSize.SMALL.getMaxBytes());
+        Bitmap thumbnail = BitmapFactory.decodeByteArray(bytes.get(), 0, bytes.get().length);
+        assertEquals(ImageRepository.ImageSize.SMALL.getMaxDimension(), Math.max(thumbnail.getWidth(), thumbnail.getHeight()));
+    }
+
+    @Test
+    public void updateProfilePictureKeepsOnlyReferenceTest() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<String> hash = new AtomicReference<>();
+        participantRepository.updateProfilePicture("imageUser", testBitmap(Color.RED), result -> {
+            hash.set(result);
+            latch.countDown();
+        }, e -> latch.countDown());
+        assertTrue(latch.await(20, TimeUnit.SECONDS));
+        assertNotNull(hash.get());
+
+        CountDownLatch fetchLatch = new CountDownLatch(1);
+        AtomicReference<Participant> participant = new AtomicReference<>();
+        participantRepository.fetchBaseParticipant("imageUser", result -> {
+            participant.set(result);
+            fetchLatch.countDown();
+        }, e -> fetchLatch.countDown());
+        assertTrue(fetchLatch.await(10, TimeUnit.SECONDS));
+        assertEquals(hash.get(), participant.get().getProfilePictureRef());
+        assertNotNull(participant.get().getProfilePicturePlaceholder());
+        assertEquals(1, participant.get().getProfilePictureVersion());
+        assertNull(participant.get().getProfilePicture());
+    }
+
+    @Test
+    public void attachedImageRefSurvivesStaleEditTest() throws InterruptedException, ExecutionException {
+        MoodEventRepository moodEventRepository = new MoodEventRepository();
+        MoodEvent moodEvent = new MoodEvent("Beach", "Sunny", MoodEvent.EmotionalState.HAPPY, participantRepository.getParticipantRef("imageUser"));
+        CountDownLatch addLatch = new CountDownLatch(1);
+        moodEventRepository.addMoodEvent(moodEvent, unused -> addLatch.countDown(), e -> addLatch.countDown());
+        assertTrue(addLatch.await(10, TimeUnit.SECONDS));
+
+        // The photo finishes uploading while the event is being edited
+        ImageRepository.StoredImage image = upload(testBitmap(Color.GREEN));
+        CountDownLatch refLatch = new CountDownLatch(1);
+        moodEventRepository.setAttachedImageRef(moodEvent.getId(), image, unused -> refLatch.countDown(), e -> refLatch.countDown());
+        assertTrue(refLatch.await(10, TimeUnit.SECONDS));
+
+        moodEvent.setReason("Windy");
+        CountDownLatch updateLatch = new CountDownLatch(1);
+        moodEventRepository.updateMoodEvent(moodEvent, unused -> updateLatch.countDown(), e -> updateLatch.countDown());
+        assertTrue(updateLatch.await(10, TimeUnit.SECONDS));
+
+        DocumentSnapshot stored = Tasks.await(FirebaseFirestore.getInstance().collection("moodEvents").document(moodEvent.getId()).get());
+        assertEquals("Windy", stored.getString("reason"));
+        assertEquals(image.getHash(), stored.getString("attachedImageRef"));
+        assertEquals(image.getPlaceholder(), stored.getString("attachedImagePlaceholder"));
+    }
+
+    @After
+    public void tearDownDb() {
+        String projectId = "project-db"; //set to your project ID
+        URL url = null;
+        try {
+            url = new URL("http://10.0.2.2:8080/emulator/v1/projects/" + projectId + "/databases/%28default%29/documents");
+        } catch (MalformedURLException exception) {
+            Log.e("URL Error", Objects.requireNonNull(exception.getMessage()));
+        }
+        HttpURLConnection urlConnection = null;
+        try {
+            assert url != null;
+            urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setRequestMethod("DELETE");
+            int response = urlConnection.getResponseCode();
+            Log.i("Response Code", "Response Code: " + response);
+        } catch (IOException exception) {
+            Log.e("IO Error", Objects.requireNonNull(exception.getMessage()));
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+}
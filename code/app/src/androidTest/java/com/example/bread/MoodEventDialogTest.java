@@ -1,6 +1,5 @@
 package com.example.bread;
 
-import static androidx.test.espresso.Espresso.onData;
 import static androidx.test.espresso.Espresso.onView;
 import static androidx.test.espresso.action.ViewActions.click;
 import static androidx.test.espresso.assertion.ViewAssertions.matches;
@@ -8,9 +7,9 @@ import static androidx.test.espresso.matcher.RootMatchers.isDialog;
 import static androidx.test.espresso.matcher.ViewMatchers.isDisplayed;
 import static androidx.test.espresso.matcher.ViewMatchers.withId;
 import static androidx.test.espresso.matcher.ViewMatchers.withText;
-import static org.hamcrest.Matchers.anything;
 import static org.hamcrest.Matchers.not;
 
+import androidx.test.espresso.contrib.RecyclerViewActions;
 import androidx.test.ext.junit.rules.ActivityScenarioRule;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.LargeTest;
@@ -46,7 +45,7 @@ public class MoodEventDialogTest {
     public void clickOnMoodEvent_shouldOpenDialog() {
         try {
             // When: User clicks on the first mood event in the list
-            onData(anything()).inAdapterView(withId(R.id.historyListView)).atPosition(0).perform(click());
+            onView(withId(R.id.historyRecyclerView)).perform(RecyclerViewActions.actionOnItemAtPosition(0, click()));
 
             // Then: Dialog should appear with title "Mood Details"
             onView(withText("View Moods")).inRoot(isDialog()).check(matches(isDisplayed()));
@@ -1,6 +1,5 @@
 package com.example.bread;
 
-import static androidx.test.espresso.Espresso.onData;
 import static androidx.test.espresso.Espresso.onView;
 import static androidx.test.espresso.Espresso.onIdle;
 import static androidx.test.espresso.action.ViewActions.click;
@@ -10,8 +9,8 @@ import static androidx.test.espresso.matcher.RootMatchers.isDialog;
 import static androidx.test.espresso.matcher.ViewMatchers.isDisplayed;
 import static androidx.test.espresso.matcher.ViewMatchers.withId;
 import static androidx.test.espresso.matcher.ViewMatchers.withText;
-import static org.hamcrest.Matchers.anything;
 
+import androidx.test.espresso.contrib.RecyclerViewActions;
 import androidx.test.ext.junit.rules.ActivityScenarioRule;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.LargeTest;
@@ -42,10 +41,8 @@ public class MoodEventEditTest {
     @Test
     public void testEditDialogAppears() {
         // Select and click the first mood event automatically
-        onData(anything())
-                .inAdapterView(withId(R.id.historyListView))
-                .atPosition(0)
-                .perform(click());
+        onView(withId(R.id.historyRecyclerView))
+                .perform(RecyclerViewActions.actionOnItemAtPosition(0, click()));
 
         // Ensure UI updates
         onIdle();
@@ -78,10 +75,8 @@ public class MoodEventEditTest {
     @Test
     public void testEditDialogCanBeSaved() {
         // Select and click the first mood event automatically
-        onData(anything())
-                .inAdapterView(withId(R.id.historyListView))
-                .atPosition(0)
-                .perform(click());
+        onView(withId(R.id.historyRecyclerView))
+                .perform(RecyclerViewActions.actionOnItemAtPosition(0, click()));
 
         // Ensure UI updates
         onIdle();
@@ -116,10 +111,8 @@ public class MoodEventEditTest {
     @Test
     public void testEditDialogCanBeCanceled() {
         // Select and click the first mood event automatically
-        onData(anything())
-                .inAdapterView(withId(R.id.historyListView))
-                .atPosition(0)
-                .perform(click());
+        onView(withId(R.id.historyRecyclerView))
+                .perform(RecyclerViewActions.actionOnItemAtPosition(0, click()));
 
         // Ensure UI updates
         onIdle();
@@ -0,0 +1,157 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import com.example.bread.filter.MoodFilter;
+import com.example.bread.model.MoodEvent;
+import com.example.bread.repository.MoodEventRepository;
+import com.example.bread.repository.ParticipantRepository;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that mood filters are translated into Firestore queries that only return matching
+ * mood events, against the emulator. The composite indexes these queries need are declared
+ * in firestore.indexes.json.
+ */
+public class MoodEventFilterQueryTest {
+    private static final long DAY_MS = TimeUnit.DAYS.toMillis(1);
+
+    private MoodEventRepository moodEventRepository;
+    private DocumentReference participantRef;
+
+    @BeforeClass
+    public static void testSetup() {
+        String androidLocalHost = "10.0.2.2";
+        FirebaseFirestore.getInstance().useEmulator(androidLocalHost, 8080);
+    }
+
+    @Before
+    public void seedDatabase() throws InterruptedException {
+        moodEventRepository = new MoodEventRepository();
+        participantRef = new ParticipantRepository().getParticipantRef("filterUser");
+        long now = System.currentTimeMillis();
+
+        addMoodEvent("Studying for exams", MoodEvent.EmotionalState.HAPPY, MoodEvent.SocialSituation.WITH_FRIENDS, now - 2 * DAY_MS);
+        addMoodEvent("Failed my exams", MoodEvent.EmotionalState.SAD, MoodEvent.SocialSituation.ALONE, now - 10 * DAY_MS);
+        addMoodEvent("Sunny walk", MoodEvent.EmotionalState.HAPPY, MoodEvent.SocialSituation.ALONE, now - DAY_MS);
+        addMoodEvent("Traffic", MoodEvent.EmotionalState.ANGRY, MoodEvent.SocialSituation.WITH_FRIENDS, now - 20 * DAY_MS);
+    }
+
+    private void addMoodEvent(String reason, MoodEvent.EmotionalState state, MoodEvent.SocialSituation situation, long time) throws InterruptedException {
+        MoodEvent moodEvent = new MoodEvent(reason, reason, state, participantRef);
+        moodEvent.setSocialSituation(situation);
+        moodEvent.setTimestamp(new Date(time));
+        CountDownLatch latch = new CountDownLatch(1);
+        moodEventRepository.addMoodEvent(moodEvent, unused -> latch.countDown(), e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+    }
+
+    private List<String> query(MoodFilter filter) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<List<String>> reasons = new AtomicReference<>();
+        ListenerRegistration registration = moodEventRepository.listenForEventsWithParticipantRef(participantRef, filter, moodEvents -> {
+            List<String> result = new ArrayList<>();
+            for (MoodEvent moodEvent : moodEvents) {
+                result.add(moodEvent.getReason());
+            }
+            reasons.set(result);
+            latch.countDown();
+        }, e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        registration.remove();
+        return reasons.get();
+    }
+
+    @Test
+    public void noFilterReturnsEverythingNewestFirstTest() throws InterruptedException {
+        List<String> reasons = query(MoodFilter.all());
+        assertEquals(Arrays.asList("Sunny walk", "Studying for exams", "Failed my exams", "Traffic"), reasons);
+    }
+
+    @Test
+    public void emotionalStateFilterTest() throws InterruptedException {
+        List<String> reasons = query(MoodFilter.all().withEmotionalState(MoodEvent.EmotionalState.HAPPY));
+        assertEquals(Arrays.asList("Sunny walk", "Studying for exams"), reasons);
+    }
+
+    @Test
+    public void timeRangeFilterTest() throws InterruptedException {
+        List<String> reasons = query(MoodFilter.all().recentDays(7));
+        assertEquals(Arrays.asList("Sunny walk", "Studying for exams"), reasons);
+
+        Date now = new Date();
+        reasons = query(MoodFilter.all()
+                .since(new Date(now.getTime() - 14 * DAY_MS))
+                .until(new Date(now.getTime() - 5 * DAY_MS)));
+        assertEquals(Arrays.asList("Failed my exams"), reasons);
+    }
+
+    @Test
+    public void socialSituationAndTimeFilterTest() throws InterruptedException {
+        List<String> reasons = query(MoodFilter.all()
+                .withSocialSituation(MoodEvent.SocialSituation.ALONE)
+                .recentDays(14));
+        assertEquals(Arrays.asList("Sunny walk", "Failed my exams"), reasons);
+    }
+
+    @Test
+    public void keywordFilterTest() throws InterruptedException {
+        List<String> reasons = query(MoodFilter.all().withKeyword("Exams"));
+        assertEquals(Arrays.asList("Studying for exams", "Failed my exams"), reasons);
+
+        reasons = query(MoodFilter.all().withKeyword("exams").withEmotionalState(MoodEvent.EmotionalState.HAPPY));
+        assertEquals(Arrays.asList("Studying for exams"), reasons);
+
+        // Every word must be mentioned, not just one of them
+        reasons = query(MoodFilter.all().withKeyword("failed exams"));
+        assertEquals(Arrays.asList("Failed my exams"), reasons);
+    }
+
+    @After
+    public void tearDownDb() {
+        String projectId = "project-db"; //set to your project ID
+        URL url = null;
+        try {
+            url = new URL("http://10.0.2.2:8080/emulator/v1/projects/" + projectId + "/databases/%28default%29/documents");
+        } catch (MalformedURLException exception) {
+            Log.e("URL Error", Objects.requireNonNull(exception.getMessage()));
+        }
+        HttpURLConnection urlConnection = null;
+        try {
+            assert url != null;
+            urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setRequestMethod("DELETE");
+            int response = urlConnection.getResponseCode();
+            Log.i("Response Code", "Response Code: " + response);
+        } catch (IOException exception) {
+            Log.e("IO Error", Objects.requireNonNull(exception.getMessage()));
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+}
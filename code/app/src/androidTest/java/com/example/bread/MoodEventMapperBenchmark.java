@@ -0,0 +1,125 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import com.example.bread.firebase.MoodEventMapper;
+import com.example.bread.model.MoodEvent;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.WriteBatch;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Times reading a feed sized snapshot with {@link MoodEventMapper} against {@code toObject}, against the emulator.
+ * Both read the same snapshot, so only the mapping is timed. The results are logged under "MapperBenchmark".
+ */
+public class MoodEventMapperBenchmark {
+    private static final String TAG = "MapperBenchmark";
+    private static final int EVENTS = 50; // One feed snapshot
+    private static final int WARMUP_ROUNDS = 20;
+    private static final int ROUNDS = 200;
+
+    private static FirebaseFirestore db;
+
+    @BeforeClass
+    public static void testSetup() {
+        String androidLocalHost = "10.0.2.2";
+        db = FirebaseFirestore.getInstance();
+        db.useEmulator(androidLocalHost, 8080);
+    }
+
+    private List<DocumentSnapshot> seedSnapshot() throws ExecutionException, InterruptedException {
+        DocumentReference participantRef = db.collection("participants").document("benchmarkUser");
+        WriteBatch batch = db.batch();
+        for (int i = 0; i < EVENTS; i++) {
+            MoodEvent moodEvent = new MoodEvent("Title " + i, "Reason number " + i, MoodEvent.EmotionalState.values()[i % MoodEvent.EmotionalState.values().length], participantRef);
+            moodEvent.setTimestamp(new Date(1700000000000L + i * 60000L));
+            moodEvent.setSocialSituation(MoodEvent.SocialSituation.ALONE);
+            moodEvent.setTrigger("Trigger " + i);
+            moodEvent.setSearchTokens(Arrays.asList("reason", "number", String.valueOf(i)));
+            batch.set(db.collection("moodEvents").document(moodEvent.getId()), MoodEventMapper.toMap(moodEvent));
+        }
+        Tasks.await(batch.commit());
+        QuerySnapshot snapshot = Tasks.await(db.collection("moodEvents").whereEqualTo("participantRef", participantRef).get());
+        assertEquals(EVENTS, snapshot.size());
+        return snapshot.getDocuments();
+    }
+
+    private static long timeReflection(List<DocumentSnapshot> docs, int rounds) {
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (DocumentSnapshot doc : docs) {
+                doc.toObject(MoodEvent.class);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static long timeMapper(List<DocumentSnapshot> docs, int rounds) {
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (DocumentSnapshot doc : docs) {
+                MoodEventMapper.fromSnapshot(doc);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    @Test
+    public void mapperIsFasterThanToObjectTest() throws ExecutionException, InterruptedException {
+        List<DocumentSnapshot> docs = seedSnapshot();
+        timeReflection(docs, WARMUP_ROUNDS);
+        timeMapper(docs, WARMUP_ROUNDS);
+
+        long reflection = timeReflection(docs, ROUNDS);
+        long mapper = timeMapper(docs, ROUNDS);
+        Log.i(TAG, "toObject: " + reflection / (ROUNDS * 1000L) + " us per snapshot of " + EVENTS);
+        Log.i(TAG, "MoodEventMapper: " + mapper / (ROUNDS * 1000L) + " us per snapshot of " + EVENTS);
+        Log.i(TAG, String.format("Speedup: %.1fx", (double) reflection / mapper));
+        assertTrue("Mapper took " + mapper + " ns, toObject " + reflection + " ns", mapper < reflection);
+    }
+
+    @After
+    public void tearDownDb() {
+        String projectId = "project-db"; //set to your project ID
+        URL url = null;
+        try {
+            url = new URL("http://10.0.2.2:8080/emulator/v1/projects/" + projectId + "/databases/%28default%29/documents");
+        } catch (MalformedURLException exception) {
+            Log.e("URL Error", Objects.requireNonNull(exception.getMessage()));
+        }
+        HttpURLConnection urlConnection = null;
+        try {
+            assert url != null;
+            urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setRequestMethod("DELETE");
+            int response = urlConnection.getResponseCode();
+            Log.i("Response Code", "Response Code: " + response);
+        } catch (IOException exception) {
+            Log.e("IO Error", Objects.requireNonNull(exception.getMessage()));
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.example.bread;
 
-import static androidx.test.espresso.Espresso.onData;
 import static androidx.test.espresso.Espresso.onView;
 import static androidx.test.espresso.action.ViewActions.click;
 import static androidx.test.espresso.assertion.ViewAssertions.doesNotExist;
@@ -9,10 +8,12 @@ import static androidx.test.espresso.matcher.ViewMatchers.hasChildCount;
 import static androidx.test.espresso.matcher.ViewMatchers.isDisplayed;
 import static androidx.test.espresso.matcher.ViewMatchers.withId;
 import static androidx.test.espresso.matcher.ViewMatchers.withText;
-import static org.hamcrest.CoreMatchers.anything;
+import static com.example.bread.RecyclerViewTestUtils.childAtPosition;
+import static com.example.bread.RecyclerViewTestUtils.clickChildViewWithId;
 
 import android.util.Log;
 
+import androidx.test.espresso.contrib.RecyclerViewActions;
 import androidx.test.ext.junit.rules.ActivityScenarioRule;
 import com.example.bread.model.MoodEvent;
 import com.example.bread.model.Participant;
@@ -118,17 +119,12 @@ public class MoodHistoryFragmentTest {
         Thread.sleep(1000);
         onView(withId(R.id.history)).perform(click());
         Thread.sleep(1000);
-        onData(anything())
-                .inAdapterView(withId(R.id.historyListView))
-                .atPosition(0)
-                .onChildView(withId(R.id.reason))
-                .check(matches(withText("test reason 4")));
+        onView(withId(R.id.historyRecyclerView))
+                .check(childAtPosition(0, R.id.reason, withText("test reason 4")));
         Thread.sleep(1000);
-        onData(anything())
-                .inAdapterView(withId(R.id.historyListView))
-                .atPosition(3)
-                .onChildView(withId(R.id.reason))
-                .check(matches(withText("test reason 1")));
+        onView(withId(R.id.historyRecyclerView))
+                .perform(RecyclerViewActions.scrollToPosition(3))
+                .check(childAtPosition(3, R.id.reason, withText("test reason 1")));
     }
 
     @Test
@@ -136,11 +132,8 @@ public class MoodHistoryFragmentTest {
         Thread.sleep(2000);
         onView(withId(R.id.history)).perform(click());
         Thread.sleep(2000);
-        onData(anything())
-                .inAdapterView(withId(R.id.historyListView))
-                .atPosition(0)
-                .onChildView(withId(R.id.checkbox))
-                .perform(click());
+        onView(withId(R.id.historyRecyclerView))
+                .perform(RecyclerViewActions.actionOnItemAtPosition(0, clickChildViewWithId(R.id.checkbox)));
 
         onView(withId(R.id.deleteButton)).perform(click());
 
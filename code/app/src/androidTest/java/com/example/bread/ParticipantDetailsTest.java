@@ -0,0 +1,134 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import com.example.bread.model.Participant;
+import com.example.bread.repository.ParticipantRepository;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that participants are split into a small summary and a details document, and that
+ * participants written before the split are migrated, against the emulator.
+ */
+public class ParticipantDetailsTest {
+    private static final String PICTURE = "aGVsbG8="; // base64 of "hello", only stored, never decoded as an image
+
+    private ParticipantRepository participantRepository;
+
+    @BeforeClass
+    public static void testSetup() {
+        String androidLocalHost = "10.0.2.2";
+        FirebaseFirestore.getInstance().useEmulator(androidLocalHost, 8080);
+    }
+
+    @Before
+    public void setUp() {
+        participantRepository = new ParticipantRepository();
+    }
+
+    private Participant fetchParticipant(String username) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Participant> participant = new AtomicReference<>();
+        participantRepository.fetchParticipant(username, result -> {
+            participant.set(result);
+            latch.countDown();
+        }, e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return participant.get();
+    }
+
+    @Test
+    public void addParticipantKeepsHeavyFieldsOutOfSummaryTest() throws InterruptedException, ExecutionException {
+        Participant participant = new Participant("splitUser", "split@test.com", "Split", "User");
+        participant.setProfilePicture(PICTURE);
+        CountDownLatch latch = new CountDownLatch(1);
+        participantRepository.addParticipant(participant, unused -> latch.countDown(), e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        DocumentSnapshot summary = Tasks.await(participantRepository.getParticipantRef("splitUser").get());
+        assertEquals("Split", summary.getString("firstName"));
+        assertFalse(summary.contains("email"));
+        assertFalse(summary.contains("profilePicture"));
+        assertFalse(summary.contains("profilePictureData"));
+        assertEquals(Long.valueOf(1), summary.getLong("profilePictureVersion"));
+
+        Participant fetched = fetchParticipant("splitUser");
+        assertEquals("split@test.com", fetched.getEmail());
+        assertNotNull(fetched.getProfilePictureData());
+        assertNull(fetched.getProfilePicture());
+    }
+
+    @Test
+    public void migrateParticipantDetailsTest() throws InterruptedException, ExecutionException {
+        // Written the way participants were stored before the split
+        Participant legacy = new Participant("legacyUser", "legacy@test.com", "Legacy", "User");
+        legacy.setProfilePicture(PICTURE);
+        Tasks.await(participantRepository.getParticipantRef("legacyUser").set(legacy));
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Boolean> migrated = new AtomicReference<>();
+        participantRepository.migrateParticipantDetails("legacyUser", result -> {
+            migrated.set(result);
+            latch.countDown();
+        }, e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertTrue(migrated.get());
+
+        DocumentSnapshot summary = Tasks.await(participantRepository.getParticipantRef("legacyUser").get());
+        assertFalse(summary.contains("email"));
+        assertFalse(summary.contains("profilePicture"));
+        assertEquals(Long.valueOf(1), summary.getLong("profilePictureVersion"));
+
+        Participant fetched = fetchParticipant("legacyUser");
+        assertEquals("legacy@test.com", fetched.getEmail());
+        assertEquals("hello", new String(fetched.getProfilePictureBytes()));
+    }
+
+    @After
+    public void tearDownDb() {
+        String projectId = "project-db"; //set to your project ID
+        URL url = null;
+        try {
+            url = new URL("http://10.0.2.2:8080/emulator/v1/projects/" + projectId + "/databases/%28default%29/documents");
+        } catch (MalformedURLException exception) {
+            Log.e("URL Error", Objects.requireNonNull(exception.getMessage()));
+        }
+        HttpURLConnection urlConnection = null;
+        try {
+            assert url != null;
+            urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setRequestMethod("DELETE");
+            int response = urlConnection.getResponseCode();
+            Log.i("Response Code", "Response Code: " + response);
+        } catch (IOException exception) {
+            Log.e("IO Error", Objects.requireNonNull(exception.getMessage()));
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.bread;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.espresso.NoMatchingViewException;
+import androidx.test.espresso.UiController;
+import androidx.test.espresso.ViewAction;
+import androidx.test.espresso.ViewAssertion;
+import androidx.test.espresso.matcher.ViewMatchers;
+
+import org.hamcrest.Matcher;
+
+/**
+ * Espresso helpers for the rows of a RecyclerView, which onData cannot reach since it is not an AdapterView.
+ */
+public class RecyclerViewTestUtils {
+
+    /**
+     * Checks a view inside the row at the given position, the row has to be laid out
+     * so scroll to it with RecyclerViewActions.scrollToPosition first.
+     *
+     * @param position The adapter position of the row
+     * @param childId  The id of the view inside the row
+     * @param matcher  The matcher the view has to match
+     */
+    public static ViewAssertion childAtPosition(int position, int childId, Matcher<View> matcher) {
+        return (view, noViewFoundException) -> {
+            if (noViewFoundException != null) {
+                throw noViewFoundException;
+            }
+            RecyclerView.ViewHolder holder = ((RecyclerView) view).findViewHolderForAdapterPosition(position);
+            if (holder == null) {
+                throw new AssertionError("No row at position " + position);
+            }
+            View child = holder.itemView.findViewById(childId);
+            if (child == null) {
+                throw new NoMatchingViewException.Builder()
+                        .withRootView(holder.itemView)
+                        .withViewMatcher(ViewMatchers.withId(childId))
+                        .build();
+            }
+            ViewMatchers.assertThat(child, matcher);
+        };
+    }
+
+    /**
+     * Clicks a view inside a row, to be used with RecyclerViewActions.actionOnItemAtPosition
+     *
+     * @param childId The id of the view inside the row
+     */
+    public static ViewAction clickChildViewWithId(int childId) {
+        return new ViewAction() {
+            @Override
+            public Matcher<View> getConstraints() {
+                return ViewMatchers.isDisplayed();
+            }
+
+            @Override
+            public String getDescription() {
+                return "click on the child view with id " + childId;
+            }
+
+            @Override
+            public void perform(UiController uiController, View view) {
+                view.findViewById(childId).performClick();
+                uiController.loopMainThreadUntilIdle();
+            }
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.model.Participant;
+import com.example.bread.repository.MoodEventRepository;
+import com.example.bread.repository.ParticipantRepository;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks that the repositories hand out the same instance for an unchanged document,
+ * and a new one once it changed, against the emulator.
+ */
+public class RepositoryIdentityTest {
+    private ParticipantRepository participantRepository;
+    private MoodEventRepository moodEventRepository;
+
+    @BeforeClass
+    public static void testSetup() {
+        String androidLocalHost = "10.0.2.2";
+        FirebaseFirestore.getInstance().useEmulator(androidLocalHost, 8080);
+    }
+
+    @Before
+    public void setUp() {
+        participantRepository = new ParticipantRepository();
+        moodEventRepository = new MoodEventRepository();
+    }
+
+    private Participant fetchBaseParticipant(String username) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<Participant> participant = new AtomicReference<>();
+        participantRepository.fetchBaseParticipant(username, result -> {
+            participant.set(result);
+            latch.countDown();
+        }, e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return participant.get();
+    }
+
+    private List<MoodEvent> fetchEvents(DocumentReference participantRef) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicReference<List<MoodEvent>> events = new AtomicReference<>();
+        moodEventRepository.fetchEventsWithParticipantRef(participantRef, result -> {
+            events.set(result);
+            latch.countDown();
+        }, e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        return events.get();
+    }
+
+    @Test
+    public void unchangedParticipantIsSameInstanceTest() throws InterruptedException, ExecutionException {
+        Tasks.await(participantRepository.getParticipantRef("identityUser").set(new Participant("identityUser", "identity@test.com", "Identity", "User")));
+
+        Participant first = fetchBaseParticipant("identityUser");
+        // Read by a different repository, as another screen would
+        participantRepository = new ParticipantRepository();
+        Participant second = fetchBaseParticipant("identityUser");
+        assertSame(first, second);
+
+        Tasks.await(participantRepository.getParticipantRef("identityUser").update("firstName", "Changed"));
+        Participant changed = fetchBaseParticipant("identityUser");
+        assertNotSame(first, changed);
+        assertEquals("Changed", changed.getFirstName());
+        assertEquals("Identity", first.getFirstName());
+    }
+
+    @Test
+    public void unchangedMoodEventIsSameInstanceTest() throws InterruptedException, ExecutionException {
+        DocumentReference participantRef = participantRepository.getParticipantRef("identityUser");
+        MoodEvent moodEvent = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, participantRef);
+        CountDownLatch latch = new CountDownLatch(1);
+        moodEventRepository.addMoodEvent(moodEvent, unused -> latch.countDown(), e -> latch.countDown());
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        List<MoodEvent> first = fetchEvents(participantRef);
+        List<MoodEvent> second = fetchEvents(participantRef);
+        assertEquals(1, first.size());
+        assertSame(first.get(0), second.get(0));
+
+        Tasks.await(FirebaseFirestore.getInstance().collection("moodEvents").document(moodEvent.getId()).update("reason", "changed"));
+        List<MoodEvent> changed = fetchEvents(participantRef);
+        assertNotSame(first.get(0), changed.get(0));
+        assertEquals("changed", changed.get(0).getReason());
+    }
+
+    @After
+    public void tearDownDb() {
+        String projectId = "project-db"; //set to your project ID
+        URL url = null;
+        try {
+            url = new URL("http://10.0.2.2:8080/emulator/v1/projects/" + projectId + "/databases/%28default%29/documents");
+        } catch (MalformedURLException exception) {
+            Log.e("URL Error", Objects.requireNonNull(exception.getMessage()));
+        }
+        HttpURLConnection urlConnection = null;
+        try {
+            assert url != null;
+            urlConnection = (HttpURLConnection) url.openConnection();
+            urlConnection.setRequestMethod("DELETE");
+            int response = urlConnection.getResponseCode();
+            Log.i("Response Code", "Response Code: " + response);
+        } catch (IOException exception) {
+            Log.e("IO Error", Objects.requireNonNull(exception.getMessage()));
+        } finally {
+            if (urlConnection != null) {
+                urlConnection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package com.example.bread.analytics;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.model.MoodEventChange;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incrementally maintained statistics over a participant's mood events.
+ * <p>
+ * Every event is reduced to a single packed {@code long} (its day, weekday, hour, emotional state
+ * and social situation) which is kept by event id. Adding, editing or deleting an event only
+ * subtracts the old contribution and adds the new one, so the aggregates never have to be
+ * recomputed from the full history. The packed contributions, together with the times at which
+ * they were last known to be complete, are also the persisted state, see {@link #writeTo(DataOutputStream)}.
+ * <p>
+ * The class is not thread safe, callers are expected to confine it to one thread or synchronize.
+ */
+public class MoodAnalytics {
+    private static final int FORMAT_VERSION = 2;
+    public static final int DAYS_PER_WEEK = 7;
+    public static final int HOURS_PER_DAY = 24;
+
+    private static final MoodEvent.EmotionalState[] STATES = MoodEvent.EmotionalState.values();
+    private static final MoodEvent.SocialSituation[] SITUATIONS = MoodEvent.SocialSituation.values();
+
+    // Layout of a packed contribution: | epoch day (32) | unused (16) | emotion (4) | situation (4) | weekday (3) | hour (5) |
+    private static final int HOUR_BITS = 5;
+    private static final int WEEKDAY_SHIFT = HOUR_BITS;
+    private static final int SITUATION_SHIFT = WEEKDAY_SHIFT + 3;
+    private static final int EMOTION_SHIFT = SITUATION_SHIFT + 4;
+    private static final int DAY_SHIFT = 32;
+
+    private final TimeZone timeZone;
+    private final Map<String, Long> contributions = new HashMap<>();
+    private final int[] emotionCounts = new int[STATES.length];
+    // [emotion][weekday][hour], weekdays start on Monday
+    private final int[][][] timeMatrix = new int[STATES.length][DAYS_PER_WEEK][HOURS_PER_DAY];
+    // [situation][emotion]
+    private final int[][] situationMatrix = new int[SITUATIONS.length][STATES.length];
+    // epoch day -> number of events on that day, used for streaks
+    private final TreeMap<Integer, Integer> dayCounts = new TreeMap<>();
+    // times in millis at which the contributions were last confirmed against the server, 0 if never
+    private long syncedUntil;
+    private long fullySyncedAt;
+
+    public MoodAnalytics() {
+        this(TimeZone.getDefault());
+    }
+
+    public MoodAnalytics(@NonNull TimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    /**
+     * Applies a change delivered by a mood event listener
+     * @param change The change to apply
+     * @return true if any statistic changed
+     */
+    public boolean apply(@NonNull MoodEventChange change) {
+        if (change.getType() == MoodEventChange.Type.REMOVED) {
+            return remove(change.getId());
+        }
+        return put(change.getId(), change.getMoodEvent());
+    }
+
+    /**
+     * Adds the mood event, or replaces the previous contribution of the event with the same id
+     * @param id The id of the mood event
+     * @param moodEvent The current state of the mood event
+     * @return true if any statistic changed, false if the event was unknown and has no timestamp yet
+     * or its analysed fields are unchanged
+     */
+    public boolean put(@NonNull String id, @NonNull MoodEvent moodEvent) {
+        if (moodEvent.getTimestamp() == null) {
+            return false;
+        }
+        long packed = pack(moodEvent);
+        Long previous = contributions.put(id, packed);
+        if (previous != null) {
+            if (previous == packed) {
+                return false;
+            }
+            accumulate(previous, -1);
+        }
+        accumulate(packed, 1);
+        return true;
+    }
+
+    /**
+     * Removes the contribution of the mood event with the given id
+     * @param id The id of the mood event
+     * @return true if the event was known
+     */
+    public boolean remove(@NonNull String id) {
+        Long previous = contributions.remove(id);
+        if (previous == null) {
+            return false;
+        }
+        accumulate(previous, -1);
+        return true;
+    }
+
+    /**
+     * Removes the contribution of every event whose id is not in the given set. Used to drop events
+     * that were deleted while no listener was attached.
+     * @param liveIds The ids of all mood events that still exist
+     * @return true if any event was removed
+     */
+    public boolean retainAll(@NonNull Set<String> liveIds) {
+        return retainAll(liveIds, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Like {@link #retainAll(Set)}, but only considers events on or after the given day. Used when only
+     * the events since that day were listened to, so older events are left as they are.
+     * @param liveIds The ids of all mood events on or after the day that still exist
+     * @param fromDay The first epoch day that was listened to, see {@link #epochDay(Date)}
+     * @return true if any event was removed
+     */
+    public boolean retainAll(@NonNull Set<String> liveIds, int fromDay) {
+        boolean changed = false;
+        Iterator<Entry<String, Long>> iterator = contributions.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Entry<String, Long> entry = iterator.next();
+            int day = (int) (entry.getValue() >> DAY_SHIFT);
+            if (day >= fromDay && !liveIds.contains(entry.getKey())) {
+                iterator.remove();
+                accumulate(entry.getValue(), -1);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    public void clear() {
+        for (String id : contributions.keySet().toArray(new String[0])) {
+            remove(id);
+        }
+        syncedUntil = 0;
+        fullySyncedAt = 0;
+    }
+
+    /**
+     * @return The time in millis up to which the statistics were last confirmed to cover every
+     * mood event on the server, 0 if they never were
+     */
+    public long getSyncedUntil() {
+        return syncedUntil;
+    }
+
+    public void setSyncedUntil(long syncedUntil) {
+        this.syncedUntil = syncedUntil;
+    }
+
+    /**
+     * @return The time in millis at which the statistics were last confirmed against the full history
+     * rather than only the recent events, 0 if they never were
+     */
+    public long getFullySyncedAt() {
+        return fullySyncedAt;
+    }
+
+    public void setFullySyncedAt(long fullySyncedAt) {
+        this.fullySyncedAt = fullySyncedAt;
+    }
+
+    private void accumulate(long packed, int delta) {
+        int hour = (int) (packed & ((1 << HOUR_BITS) - 1));
+        int weekday = (int) ((packed >>> WEEKDAY_SHIFT) & 0x7);
+        int situation = (int) ((packed >>> SITUATION_SHIFT) & 0xF);
+        int emotion = (int) ((packed >>> EMOTION_SHIFT) & 0xF);
+        int day = (int) (packed >> DAY_SHIFT);
+
+        emotionCounts[emotion] += delta;
+        timeMatrix[emotion][weekday][hour] += delta;
+        situationMatrix[situation][emotion] += delta;
+
+        int dayCount = dayCounts.getOrDefault(day, 0) + delta;
+        if (dayCount > 0) {
+            dayCounts.put(day, dayCount);
+        } else {
+            dayCounts.remove(day);
+        }
+    }
+
+    private long pack(MoodEvent moodEvent) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTime(moodEvent.getTimestamp());
+        int hour = calendar.get(Calendar.HOUR_OF_DAY);
+        int weekday = (calendar.get(Calendar.DAY_OF_WEEK) + 5) % DAYS_PER_WEEK; // Monday = 0
+        MoodEvent.EmotionalState state = moodEvent.getEmotionalState() != null ? moodEvent.getEmotionalState() : MoodEvent.EmotionalState.NONE;
+        MoodEvent.SocialSituation situation = moodEvent.getSocialSituation() != null ? moodEvent.getSocialSituation() : MoodEvent.SocialSituation.NONE;
+        long day = epochDay(moodEvent.getTimestamp());
+        return (day << DAY_SHIFT)
+                | ((long) state.ordinal() << EMOTION_SHIFT)
+                | ((long) situation.ordinal() << SITUATION_SHIFT)
+                | ((long) weekday << WEEKDAY_SHIFT)
+                | hour;
+    }
+
+    /**
+     * @param date The date to convert
+     * @return The number of days since 1970-01-01 of the date in this instance's time zone
+     */
+    public int epochDay(@NonNull Date date) {
+        long local = date.getTime() + timeZone.getOffset(date.getTime());
+        return (int) Math.floorDiv(local, TimeUnit.DAYS.toMillis(1));
+    }
+
+    /**
+     * @param epochDay The number of days since 1970-01-01, see {@link #epochDay(Date)}
+     * @return The first instant of that day in this instance's time zone
+     */
+    @NonNull
+    public Date startOfDay(int epochDay) {
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.setTimeInMillis(TimeUnit.DAYS.toMillis(epochDay));
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        calendar.set(utc.get(Calendar.YEAR), utc.get(Calendar.MONTH), utc.get(Calendar.DAY_OF_MONTH));
+        return calendar.getTime();
+    }
+
+    public int getTotalCount() {
+        return contributions.size();
+    }
+
+    public int getEmotionCount(@NonNull MoodEvent.EmotionalState state) {
+        return emotionCounts[state.ordinal()];
+    }
+
+    /**
+     * @return The number of events per emotional state, states without events are left out
+     */
+    public Map<MoodEvent.EmotionalState, Integer> getEmotionHistogram() {
+        Map<MoodEvent.EmotionalState, Integer> histogram = new EnumMap<>(MoodEvent.EmotionalState.class);
+        for (MoodEvent.EmotionalState state : STATES) {
+            if (emotionCounts[state.ordinal()] > 0) {
+                histogram.put(state, emotionCounts[state.ordinal()]);
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * @return The most frequently recorded emotional state other than NONE, or null if there is none
+     */
+    public MoodEvent.EmotionalState getMostFrequentEmotion() {
+        MoodEvent.EmotionalState best = null;
+        for (MoodEvent.EmotionalState state : STATES) {
+            if (state == MoodEvent.EmotionalState.NONE || emotionCounts[state.ordinal()] == 0) {
+                continue;
+            }
+            if (best == null || emotionCounts[state.ordinal()] > emotionCounts[best.ordinal()]) {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param weekday The day of the week, 0 being Monday
+     * @param hour The hour of the day, 0 to 23
+     * @return The number of events recorded in that hour of that weekday
+     */
+    public int getCount(int weekday, int hour) {
+        int count = 0;
+        for (int[][] matrix : timeMatrix) {
+            count += matrix[weekday][hour];
+        }
+        return count;
+    }
+
+    /**
+     * @param state The emotional state
+     * @param weekday The day of the week, 0 being Monday
+     * @param hour The hour of the day, 0 to 23
+     * @return The number of events with that state recorded in that hour of that weekday
+     */
+    public int getCount(@NonNull MoodEvent.EmotionalState state, int weekday, int hour) {
+        return timeMatrix[state.ordinal()][weekday][hour];
+    }
+
+    /**
+     * @return The day of the week with the most events, 0 being Monday, or -1 if there are no events
+     */
+    public int getBusiestWeekday() {
+        int best = -1;
+        int bestCount = 0;
+        for (int weekday = 0; weekday < DAYS_PER_WEEK; weekday++) {
+            int count = 0;
+            for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+                count += getCount(weekday, hour);
+            }
+            if (count > bestCount) {
+                best = weekday;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The hour of the day with the most events, or -1 if there are no events
+     */
+    public int getBusiestHour() {
+        int best = -1;
+        int bestCount = 0;
+        for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+            int count = 0;
+            for (int weekday = 0; weekday < DAYS_PER_WEEK; weekday++) {
+                count += getCount(weekday, hour);
+            }
+            if (count > bestCount) {
+                best = hour;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    public int getSituationCount(@NonNull MoodEvent.SocialSituation situation, @NonNull MoodEvent.EmotionalState state) {
+        return situationMatrix[situation.ordinal()][state.ordinal()];
+    }
+
+    /**
+     * @param situation The social situation
+     * @return The emotional state most often recorded in the situation, or null if there is none
+     */
+    public MoodEvent.EmotionalState getTopEmotion(@NonNull MoodEvent.SocialSituation situation) {
+        int[] row = situationMatrix[situation.ordinal()];
+        MoodEvent.EmotionalState best = null;
+        for (MoodEvent.EmotionalState state : STATES) {
+            if (state == MoodEvent.EmotionalState.NONE || row[state.ordinal()] == 0) {
+                continue;
+            }
+            if (best == null || row[state.ordinal()] > row[best.ordinal()]) {
+                best = state;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the number of consecutive days with at least one event, ending today, or yesterday if
+     * nothing has been recorded yet today
+     * @param today The current epoch day, see {@link #epochDay(Date)}
+     * @return The length of the current streak in days
+     */
+    public int getCurrentStreak(int today) {
+        int day = dayCounts.containsKey(today) ? today : today - 1;
+        int streak = 0;
+        while (dayCounts.containsKey(day)) {
+            streak++;
+            day--;
+        }
+        return streak;
+    }
+
+    /**
+     * @return The length in days of the longest run of consecutive days with at least one event
+     */
+    public int getLongestStreak() {
+        int longest = 0;
+        int current = 0;
+        Integer previous = null;
+        for (Integer day : dayCounts.keySet()) {
+            current = previous != null && day == previous + 1 ? current + 1 : 1;
+            longest = Math.max(longest, current);
+            previous = day;
+        }
+        return longest;
+    }
+
+    public Set<String> getEventIds() {
+        return Collections.unmodifiableSet(contributions.keySet());
+    }
+
+    /**
+     * Writes the packed contributions and the sync times, which is all that is needed to restore the statistics
+     * @param out The stream to write to
+     * @throws IOException If the stream cannot be written to
+     */
+    public void writeTo(@NonNull DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeByte(STATES.length);
+        out.writeByte(SITUATIONS.length);
+        out.writeLong(syncedUntil);
+        out.writeLong(fullySyncedAt);
+        out.writeInt(contributions.size());
+        for (Entry<String, Long> entry : contributions.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeLong(entry.getValue());
+        }
+    }
+
+    /**
+     * Replaces the current statistics with the ones previously written by {@link #writeTo(DataOutputStream)}
+     * @param in The stream to read from
+     * @throws IOException If the stream cannot be read or was written in an incompatible format,
+     *                     in which case the statistics are left empty
+     */
+    public void readFrom(@NonNull DataInputStream in) throws IOException {
+        clear();
+        if (in.readInt() != FORMAT_VERSION || in.readByte() != STATES.length || in.readByte() != SITUATIONS.length) {
+            throw new IOException("Incompatible analytics state");
+        }
+        long synced = in.readLong();
+        long fullySynced = in.readLong();
+        int size = in.readInt();
+        try {
+            for (int i = 0; i < size; i++) {
+                String id = in.readUTF();
+                long packed = in.readLong();
+                contributions.put(id, packed);
+                accumulate(packed, 1);
+            }
+            syncedUntil = synced;
+            fullySyncedAt = fullySynced;
+        } catch (IOException e) {
+            clear();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.bread.analytics;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEventChange;
+import com.example.bread.repository.MoodEventRepository;
+import com.example.bread.repository.ParticipantRepository;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link MoodAnalytics} of the signed in participant up to date.
+ * <p>
+ * On start the previously persisted state is loaded from the app's files directory, then a
+ * listener on the participant's mood events feeds every add/edit/delete into the analytics.
+ * When a state was restored, the listener only covers the events since a few days before the
+ * state was last in sync, so a launch only reads the recent events rather than the whole history.
+ * Edits and deletes of older events are picked up by a full resync, done on the first launch and
+ * then at most once every {@link #FULL_SYNC_INTERVAL_MS}. Once the listener is in sync with the
+ * server, events in its range that were deleted while the app was closed are dropped. The state is
+ * written back to disk shortly after each change. All analytics access happens on the main thread.
+ */
+public class MoodAnalyticsManager {
+    private static final String TAG = "MoodAnalyticsManager";
+    private static final long SAVE_DELAY_MS = 2_000;
+    // Events created offline on another device can be uploaded after this device last synced
+    private static final int RESUME_OVERLAP_DAYS = 7;
+    private static final long FULL_SYNC_INTERVAL_MS = TimeUnit.DAYS.toMillis(30);
+
+    private static MoodAnalyticsManager instance;
+
+    /**
+     * Listener notified on the main thread whenever the analytics change
+     */
+    public interface OnAnalyticsChangedListener {
+        void onAnalyticsChanged(@NonNull MoodAnalytics analytics);
+    }
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private final List<OnAnalyticsChangedListener> listeners = new ArrayList<>();
+    private final Runnable saveRunnable = this::save;
+
+    private MoodAnalytics analytics = new MoodAnalytics();
+    private String username;
+    private ListenerRegistration registration;
+    // ids seen since the listener was attached, null once the listener is in sync
+    private Set<String> seenIds;
+    private boolean loaded;
+
+    private MoodAnalyticsManager(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized MoodAnalyticsManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new MoodAnalyticsManager(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Starts maintaining the analytics of the given participant, does nothing if already started for them
+     * @param username The username of the participant
+     */
+    public void start(@NonNull String username) {
+        if (username.equals(this.username)) {
+            return;
+        }
+        stop();
+        this.username = username;
+        loaded = false;
+        File file = getStateFile(username);
+        ioExecutor.execute(() -> {
+            MoodAnalytics restored = new MoodAnalytics();
+            if (file.exists()) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    restored.readFrom(in);
+                } catch (IOException e) {
+                    Log.w(TAG, "Discarding unreadable analytics state", e);
+                }
+            }
+            mainHandler.post(() -> {
+                if (!username.equals(this.username)) {
+                    return;
+                }
+                analytics = restored;
+                loaded = true;
+                notifyListeners();
+                attachListener();
+            });
+        });
+    }
+
+    /**
+     * Detaches the listener and persists the current state
+     */
+    public void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+        mainHandler.removeCallbacks(saveRunnable);
+        if (loaded) {
+            save();
+        }
+        username = null;
+        seenIds = null;
+        loaded = false;
+        analytics = new MoodAnalytics();
+    }
+
+    private void attachListener() {
+        MoodEventRepository moodEventRepository = new MoodEventRepository();
+        ParticipantRepository participantRepository = new ParticipantRepository();
+        seenIds = new HashSet<>();
+        long now = System.currentTimeMillis();
+        boolean fullSync = analytics.getSyncedUntil() == 0 || now - analytics.getFullySyncedAt() > FULL_SYNC_INTERVAL_MS;
+        // Starting at the beginning of a day keeps the listened range aligned with the days retainAll looks at
+        int fromDay = fullSync ? Integer.MIN_VALUE : analytics.epochDay(new Date(analytics.getSyncedUntil())) - RESUME_OVERLAP_DAYS;
+        Date since = fullSync ? null : analytics.startOfDay(fromDay);
+        registration = moodEventRepository.listenForEventChangesWithParticipantRef(participantRepository.getParticipantRef(username), since, this::onChanges, unused -> {
+            boolean changed = seenIds != null && analytics.retainAll(seenIds, fromDay);
+            seenIds = null;
+            analytics.setSyncedUntil(now);
+            if (fullSync) {
+                analytics.setFullySyncedAt(now);
+            }
+            if (changed) {
+                onChanged();
+            } else {
+                scheduleSave();
+            }
+        }, e -> Log.e(TAG, "Error listening for mood event changes", e));
+    }
+
+    private void onChanges(List<MoodEventChange> changes) {
+        boolean changed = false;
+        for (MoodEventChange change : changes) {
+            if (seenIds != null) {
+                if (change.getType() == MoodEventChange.Type.REMOVED) {
+                    seenIds.remove(change.getId());
+                } else {
+                    seenIds.add(change.getId());
+                }
+            }
+            changed |= analytics.apply(change);
+        }
+        if (changed) {
+            onChanged();
+        }
+    }
+
+    private void onChanged() {
+        notifyListeners();
+        scheduleSave();
+    }
+
+    private void scheduleSave() {
+        mainHandler.removeCallbacks(saveRunnable);
+        mainHandler.postDelayed(saveRunnable, SAVE_DELAY_MS);
+    }
+
+    private void notifyListeners() {
+        for (OnAnalyticsChangedListener listener : new ArrayList<>(listeners)) {
+            listener.onAnalyticsChanged(analytics);
+        }
+    }
+
+    private void save() {
+        if (username == null) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            analytics.writeTo(out);
+        } catch (IOException e) {
+            Log.e(TAG, "Error serializing analytics state", e);
+            return;
+        }
+        File file = getStateFile(username);
+        ioExecutor.execute(() -> {
+            File temp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                bytes.writeTo(out);
+                out.getFD().sync();
+            } catch (IOException e) {
+                Log.e(TAG, "Error writing analytics state", e);
+                return;
+            }
+            if (!temp.renameTo(file)) {
+                Log.e(TAG, "Error replacing analytics state file");
+            }
+        });
+    }
+
+    private File getStateFile(String username) {
+        return new File(context.getFilesDir(), "mood_analytics_" + username + ".bin");
+    }
+
+    /**
+     * Registers a listener and immediately calls it with the current analytics if they have been loaded
+     * @param listener The listener to be called on every change
+     */
+    public void addListener(@NonNull OnAnalyticsChangedListener listener) {
+        listeners.add(listener);
+        if (loaded) {
+            listener.onAnalyticsChanged(analytics);
+        }
+    }
+
+    public void removeListener(@NonNull OnAnalyticsChangedListener listener) {
+        listeners.remove(listener);
+    }
+}
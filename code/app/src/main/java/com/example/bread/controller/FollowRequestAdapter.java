@@ -14,7 +14,7 @@ import com.example.bread.R;
 import com.example.bread.model.FollowRequest;
 import com.example.bread.model.Participant;
 import com.example.bread.repository.ParticipantRepository;
-import com.example.bread.utils.ImageHandler;
+import com.example.bread.utils.ImageLoader;
 
 import java.util.List;
 
@@ -71,6 +71,11 @@ public class FollowRequestAdapter extends RecyclerView.Adapter<FollowRequestAdap
             String requestorUsername = request.getFromUsername();
             usernameText.setText(requestorUsername);
 
+            // Drop any picture still loading for the request this row showed before
+            ImageLoader imageLoader = ImageLoader.getInstance(itemView.getContext());
+            imageLoader.cancel(profileImage);
+            profileImage.setImageResource(R.drawable.default_avatar);
+
             // Load user details
             participantRepository.fetchBaseParticipant(requestorUsername, participant -> {
                 if (participant != null) {
@@ -78,11 +83,7 @@ public class FollowRequestAdapter extends RecyclerView.Adapter<FollowRequestAdap
                     nameText.setText(participant.getDisplayName());
 
                     // Set profile image if available
-                    if (participant.getProfilePicture() != null) {
-                        profileImage.setImageBitmap(ImageHandler.base64ToBitmap(participant.getProfilePicture()));
-                    } else {
-                        profileImage.setImageResource(R.drawable.default_avatar);
-                    }
+                    imageLoader.loadProfilePicture(participant, profileImage, R.drawable.default_avatar);
                 }
             }, null);
 
@@ -0,0 +1,153 @@
+package com.example.bread.controller;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.bread.R;
+import com.example.bread.model.MoodEvent;
+import com.google.firebase.auth.FirebaseUser;
+
+import java.text.Format;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Adapter class for the HistoryFragment RecyclerView
+ */
+public class HistoryMoodEventAdapter extends MoodEventAdapter<HistoryMoodEventAdapter.ViewHolder> {
+
+    // Selection is kept by id, so it survives the events being replaced by newer copies
+    private final Set<String> selectedIds = new HashSet<>();
+    // Only used on the row executor
+    private final Format dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private final String participantUsername;
+
+    public HistoryMoodEventAdapter(@NonNull Context context) {
+        super(context);
+        FirebaseUser currentUser = mAuth.getCurrentUser(); //retrieving current user, https://stackoverflow.com/questions/35112204/get-current-user-firebase-android
+        participantUsername = currentUser != null ? currentUser.getDisplayName() : null;
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        CheckBox checkBox;
+        TextView emoticonTextView;
+        TextView username;
+        TextView date;
+        TextView reason;
+        ImageView profilePic;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            checkBox = itemView.findViewById(R.id.checkbox);
+            emoticonTextView = itemView.findViewById(R.id.emoticon_text_view);
+            username = itemView.findViewById(R.id.username);
+            date = itemView.findViewById(R.id.date);
+            reason = itemView.findViewById(R.id.reason);
+            profilePic = itemView.findViewById(R.id.profilePic);
+        }
+    }
+
+    @Override
+    protected int getRowLayout() {
+        return R.layout.layout_event;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.layout_event, parent, false);
+        ViewHolder holder = new ViewHolder(view);
+        if (holder.reason != null) {
+            setReasonView(holder.reason);
+        }
+        // Set once per row, the event is looked up when clicked since the row is rebound to others
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (clickListener != null && position != RecyclerView.NO_POSITION) {
+                clickListener.onMoodEventClick(getItem(position).getEvent());
+            }
+        });
+        if (holder.checkBox != null) {
+            holder.checkBox.setOnClickListener(v -> {
+                int position = holder.getBindingAdapterPosition();
+                if (position == RecyclerView.NO_POSITION) {
+                    return;
+                }
+                String id = getItem(position).getId();
+                if (holder.checkBox.isChecked()) {
+                    selectedIds.add(id);
+                } else {
+                    selectedIds.remove(id);
+                }
+            });
+        }
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        MoodEventRow row = getItem(position);
+
+        if (holder.emoticonTextView != null) {
+            holder.emoticonTextView.setText(row.getEmoticon());
+        }
+        holder.itemView.setBackgroundResource(row.getColorResId());
+        if (holder.checkBox != null) {
+            holder.checkBox.setChecked(selectedIds.contains(row.getId()));
+        }
+        if (holder.username != null) {
+            holder.username.setText(participantUsername);
+        }
+        bindDate(holder, row);
+        if (holder.reason != null) {
+            bindReason(holder.reason, row);
+        }
+        if (holder.profilePic != null) {
+            holder.profilePic.setImageResource(R.drawable.default_avatar);
+        }
+    }
+
+    @Override
+    protected void bindDate(@NonNull ViewHolder holder, @NonNull MoodEventRow row) {
+        if (holder.date != null) {
+            holder.date.setText(row.getDateText());
+        }
+    }
+
+    @NonNull
+    @Override
+    protected String formatDate(@NonNull MoodEvent event) {
+        Date eventDate = event.getTimestamp();
+        return eventDate != null ? dateFormat.format(eventDate) : "Pending"; // Fallback for null timestamp
+    }
+
+    /**
+     * @return The shown events that are selected
+     */
+    public List<MoodEvent> getSelectedEvents() {
+        List<MoodEvent> selectedEvents = new ArrayList<>();
+        for (MoodEvent event : getCurrentEvents()) {
+            if (selectedIds.contains(event.getId())) {
+                selectedEvents.add(event);
+            }
+        }
+        return selectedEvents;
+    }
+
+    public void clearSelection() {
+        selectedIds.clear();
+        notifyItemRangeChanged(0, getItemCount());
+    }
+}
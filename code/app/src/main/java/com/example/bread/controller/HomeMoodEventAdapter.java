@@ -0,0 +1,265 @@
+package com.example.bread.controller;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.bread.R;
+import com.example.bread.model.MoodEvent;
+import com.example.bread.model.Participant;
+import com.example.bread.utils.ImageLoader;
+import com.google.firebase.firestore.DocumentReference;
+
+/**
+ * Adapter class for the HomeFragment RecyclerView
+ */
+public class HomeMoodEventAdapter extends MoodEventAdapter<HomeMoodEventAdapter.ViewHolder> {
+
+    // Caches participants to avoid repeated network calls and loads the rows on screen first
+    private final ParticipantRowLoader participantLoader = new ParticipantRowLoader();
+    private final Handler tickHandler = new Handler(Looper.getMainLooper());
+    // Relative times are formatted again every minute, only the rows whose text changed are rebound
+    private final Runnable ticker = new Runnable() {
+        @Override
+        public void run() {
+            refreshDates();
+            scheduleTick();
+        }
+    };
+
+    private final RecyclerView.OnScrollListener visibleRangeListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            // Also called after a layout changes which rows are visible
+            updateVisibleRange(recyclerView);
+        }
+    };
+
+    public HomeMoodEventAdapter(@NonNull Context context) {
+        super(context);
+    }
+
+    static class ViewHolder extends RecyclerView.ViewHolder {
+        TextView username;
+        TextView reason;
+        TextView date;
+        TextView mood;
+        ImageView profilePic;
+        ImageView attachment;
+        ConstraintLayout eventLayout;
+        // Participant load of the current bind, cancelled when the row is rebound or recycled
+        ParticipantRowLoader.Request participantRequest;
+
+        ViewHolder(@NonNull View itemView) {
+            super(itemView);
+            username = itemView.findViewById(R.id.textUsername);
+            reason = itemView.findViewById(R.id.textReason);
+            date = itemView.findViewById(R.id.textDate);
+            mood = itemView.findViewById(R.id.textMood);
+            profilePic = itemView.findViewById(R.id.imageProfile);
+            attachment = itemView.findViewById(R.id.imageAttachment);
+            eventLayout = itemView.findViewById(R.id.homeConstraintLayout);
+        }
+    }
+
+    @Override
+    protected int getRowLayout() {
+        return R.layout.layout_event_home;
+    }
+
+    @NonNull
+    @Override
+    public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.layout_event_home, parent, false);
+        ViewHolder holder = new ViewHolder(view);
+        setReasonView(holder.reason);
+        // Set once per row, the event is looked up when clicked since the row is rebound to others
+        view.setOnClickListener(v -> {
+            int position = holder.getBindingAdapterPosition();
+            if (clickListener != null && position != RecyclerView.NO_POSITION) {
+                clickListener.onMoodEventClick(getItem(position).getEvent());
+            }
+        });
+        return holder;
+    }
+
+    @SuppressLint("SetTextI18n")
+    @Override
+    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+        MoodEventRow row = getItem(position);
+        MoodEvent moodEvent = row.getEvent();
+
+        holder.eventLayout.setBackgroundResource(row.getColorResId());
+        bindReason(holder.reason, row);
+        holder.date.setText(row.getDateText());
+        holder.mood.setText(row.getEmoticon());
+
+        // Drop any picture still loading for the event this row showed before, and set the default first
+        ImageLoader.getInstance(context).cancel(holder.profilePic);
+        holder.profilePic.setImageResource(R.drawable.ic_baseline_profile_24);
+
+        // Attached photos are shown as thumbnails, the full image is only loaded by the details view
+        if (moodEvent.getAttachedImageRef() != null) {
+            holder.attachment.setVisibility(View.VISIBLE);
+            holder.attachment.setImageDrawable(null);
+            ImageLoader.getInstance(context).loadStoredThumbnail(moodEvent.getAttachedImageRef(), moodEvent.getAttachedImagePlaceholder(), holder.attachment, 0);
+        } else {
+            ImageLoader.getInstance(context).cancel(holder.attachment);
+            holder.attachment.setVisibility(View.GONE);
+        }
+
+        // Set default username while loading
+        holder.username.setText("Loading...");
+
+        // Load participant information from cache or network
+        loadParticipantInfo(moodEvent, holder, position);
+    }
+
+    @Override
+    protected void bindDate(@NonNull ViewHolder holder, @NonNull MoodEventRow row) {
+        holder.date.setText(row.getDateText());
+    }
+
+    @NonNull
+    @Override
+    protected String formatDate(@NonNull MoodEvent event) {
+        return event.getTimestamp() != null ? formatTimeAgo(event.getTimestamp().getTime()) : "";
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ViewHolder holder) {
+        super.onViewRecycled(holder);
+        participantLoader.cancel(holder.participantRequest);
+        holder.participantRequest = null;
+        ImageLoader.getInstance(context).cancel(holder.profilePic);
+        ImageLoader.getInstance(context).cancel(holder.attachment);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(visibleRangeListener);
+        scheduleTick();
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        recyclerView.removeOnScrollListener(visibleRangeListener);
+        tickHandler.removeCallbacks(ticker);
+    }
+
+    /**
+     * Tells the participant loader which rows are on screen, and prefetches the participants of the rows below them
+     */
+    private void updateVisibleRange(RecyclerView recyclerView) {
+        if (!(recyclerView.getLayoutManager() instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        participantLoader.setVisibleRange(first, last);
+        int end = Math.min(getItemCount() - 1, last + ParticipantRowLoader.PREFETCH_DISTANCE);
+        for (int position = last + 1; position <= end; position++) {
+            DocumentReference ref = getItem(position).getEvent().getParticipantRef();
+            if (ref != null) {
+                participantLoader.prefetch(ref, position);
+            }
+        }
+    }
+
+    /**
+     * Schedules the next refresh of the relative times right after the next minute starts
+     */
+    private void scheduleTick() {
+        tickHandler.removeCallbacks(ticker);
+        long now = System.currentTimeMillis();
+        tickHandler.postDelayed(ticker, DateUtils.MINUTE_IN_MILLIS - now % DateUtils.MINUTE_IN_MILLIS);
+    }
+
+    /**
+     * Loads participant information from cache or network
+     *
+     * @param moodEvent The mood event containing the participant reference
+     * @param holder The ViewHolder to update with participant data
+     * @param position The position of the row
+     */
+    private void loadParticipantInfo(MoodEvent moodEvent, ViewHolder holder, int position) {
+        // The row may still wait for the participant of the event it showed before
+        participantLoader.cancel(holder.participantRequest);
+        holder.participantRequest = null;
+
+        if (moodEvent.getParticipantRef() == null) {
+            holder.username.setText("Unknown");
+            return;
+        }
+
+        // Try to get from cache first
+        Participant cachedParticipant = participantLoader.getCached(moodEvent.getParticipantRef());
+        if (cachedParticipant != null) {
+            updateViewWithParticipant(holder, cachedParticipant);
+            return;
+        }
+
+        holder.participantRequest = participantLoader.load(moodEvent.getParticipantRef(), position, participant -> {
+            holder.participantRequest = null;
+            if (participant != null) {
+                updateViewWithParticipant(holder, participant);
+            } else {
+                holder.username.setText("Unknown");
+            }
+        });
+    }
+
+    /**
+     * Updates view with participant data
+     *
+     * @param holder The ViewHolder to update
+     * @param participant The participant data
+     */
+    private void updateViewWithParticipant(ViewHolder holder, Participant participant) {
+        holder.username.setText(participant.getUsername());
+
+        // Set profile picture if available
+        ImageLoader.getInstance(context).loadProfilePicture(participant, holder.profilePic, R.drawable.ic_baseline_profile_24);
+    }
+
+    /**
+     * Formats a timestamp as a relative time string (e.g., "5 minutes ago"), runs on the row executor
+     *
+     * @param timeMillis The time in milliseconds
+     * @return A formatted relative time string
+     */
+    private String formatTimeAgo(long timeMillis) {
+        CharSequence relativeTime = DateUtils.getRelativeDateTimeString(
+                context,
+                timeMillis,
+                DateUtils.MINUTE_IN_MILLIS,
+                DateUtils.WEEK_IN_MILLIS,
+                0);
+
+        // If very recent, simplify to "Just now"
+        long diff = System.currentTimeMillis() - timeMillis;
+        if (diff < DateUtils.MINUTE_IN_MILLIS) {
+            return "Just now";
+        }
+
+        return relativeTime.toString();
+    }
+}
\ No newline at end of file
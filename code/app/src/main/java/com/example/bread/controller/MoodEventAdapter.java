@@ -0,0 +1,271 @@
+package com.example.bread.controller;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.bread.model.MoodEvent;
+import com.google.firebase.auth.FirebaseAuth;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Abstract class for the adapters showing mood events in a RecyclerView
+ * <p>
+ * Submitted events are turned into {@link MoodEventRow}s on a background thread, with their texts
+ * already formatted and measured, then diffed against the shown rows on another background thread.
+ * An update only rebinds the rows that changed, and binding a row only assigns its precomputed values.
+ *
+ * @param <VH> The view holder of a row
+ */
+public abstract class MoodEventAdapter<VH extends RecyclerView.ViewHolder> extends RecyclerView.Adapter<VH> {
+    // Payload of a row whose event is unchanged but whose date text is not
+    protected static final Object PAYLOAD_DATE = new Object();
+
+    private static final DiffUtil.ItemCallback<MoodEventRow> DIFF_CALLBACK = new DiffUtil.ItemCallback<MoodEventRow>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull MoodEventRow oldItem, @NonNull MoodEventRow newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull MoodEventRow oldItem, @NonNull MoodEventRow newItem) {
+            return oldItem.hasSameContent(newItem);
+        }
+
+        @Override
+        public Object getChangePayload(@NonNull MoodEventRow oldItem, @NonNull MoodEventRow newItem) {
+            return oldItem.onlyDateChanged(newItem) ? PAYLOAD_DATE : null;
+        }
+    };
+
+    // Shared by every list, rows of one list are still built in the order their lists were submitted
+    private static final ExecutorService ROW_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    protected final Context context;
+    protected final FirebaseAuth mAuth;
+    private final AsyncListDiffer<MoodEventRow> differ = new AsyncListDiffer<>(this, DIFF_CALLBACK);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Row ids have to be longs, so every event id gets the next number the first time it is shown
+    private final Map<String, Long> stableIds = new HashMap<>();
+    // Last rows built, by event id, only used on the row executor
+    private Map<String, MoodEventRow> builtRows = new HashMap<>();
+    private List<MoodEvent> latestEvents = Collections.emptyList();
+    // Text metrics of the reason view of a row, known once the first row is created
+    private volatile PrecomputedTextCompat.Params reasonParams;
+
+    /**
+     * Interface for handling click events on mood events
+     */
+    public interface OnMoodEventClickListener {
+        void onMoodEventClick(MoodEvent moodEvent);
+    }
+
+    protected OnMoodEventClickListener clickListener;
+
+    public void setOnMoodEventClickListener(OnMoodEventClickListener listener) {
+        this.clickListener = listener;
+    }
+
+    public MoodEventAdapter(@NonNull Context context) {
+        this.context = context;
+        this.mAuth = FirebaseAuth.getInstance();
+        setHasStableIds(true);
+    }
+
+    /**
+     * Sets up the RecyclerView to show this adapter. Rows are prefetched while scrolling, and the rows
+     * of a list that goes away are put back in the view pool so the next list reuses them.
+     *
+     * @param recyclerView The RecyclerView showing the events
+     * @param viewPool     The pool shared by the mood event lists of the activity, or null for a pool of its own
+     */
+    public void attachTo(@NonNull RecyclerView recyclerView, RecyclerView.RecycledViewPool viewPool) {
+        LinearLayoutManager layoutManager = new LinearLayoutManager(recyclerView.getContext());
+        layoutManager.setItemPrefetchEnabled(true);
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setHasFixedSize(true);
+        if (viewPool != null) {
+            recyclerView.setRecycledViewPool(viewPool);
+        }
+        recyclerView.setAdapter(this);
+    }
+
+    /**
+     * Shows the given events. The list is copied, so the caller can keep changing its own list.
+     *
+     * @param events The events to show
+     */
+    public void submitList(List<MoodEvent> events) {
+        submitList(events, null);
+    }
+
+    /**
+     * Shows the given events. The list is copied, so the caller can keep changing its own list.
+     *
+     * @param events      The events to show
+     * @param onCommitted Called once the rows of the events are shown, or null
+     */
+    public void submitList(List<MoodEvent> events, Runnable onCommitted) {
+        List<MoodEvent> snapshot = events != null ? new ArrayList<>(events) : Collections.emptyList();
+        latestEvents = snapshot;
+        ROW_EXECUTOR.execute(() -> {
+            List<MoodEventRow> rows = buildRows(snapshot);
+            mainHandler.post(() -> differ.submitList(rows, onCommitted));
+        });
+    }
+
+    /**
+     * Formats the date texts of the shown events again, only the rows whose text changed are rebound
+     */
+    protected void refreshDates() {
+        submitList(latestEvents);
+    }
+
+    /**
+     * Runs on the row executor. Rows of unchanged events are reused, so only their date is formatted again.
+     */
+    private List<MoodEventRow> buildRows(List<MoodEvent> events) {
+        PrecomputedTextCompat.Params params = reasonParams;
+        Map<String, MoodEventRow> rowsById = new HashMap<>();
+        List<MoodEventRow> rows = new ArrayList<>(events.size());
+        for (MoodEvent event : events) {
+            String dateText = formatDate(event);
+            MoodEventRow previous = builtRows.get(event.getId());
+            MoodEventRow row;
+            if (previous != null && previous.getEvent().equals(event)
+                    && (params == null || previous.getReasonText() instanceof PrecomputedTextCompat)) {
+                row = previous.withDateText(dateText);
+            } else {
+                String reason = event.getReason() != null ? event.getReason() : "";
+                CharSequence reasonText = params != null && !reason.isEmpty() ? PrecomputedTextCompat.create(reason, params) : reason;
+                row = new MoodEventRow(event, reasonText, dateText);
+            }
+            rows.add(row);
+            rowsById.put(row.getId(), row);
+        }
+        builtRows = rowsById;
+        return rows;
+    }
+
+    /**
+     * Runs on the row executor
+     *
+     * @param event The event of the row
+     * @return The date text of the row
+     */
+    @NonNull
+    protected abstract String formatDate(@NonNull MoodEvent event);
+
+    /**
+     * Remembers how the reason of a row is laid out, so reasons can be measured before they are shown
+     *
+     * @param reasonView The reason view of a newly created row
+     */
+    protected void setReasonView(@NonNull TextView reasonView) {
+        if (reasonParams == null) {
+            reasonParams = TextViewCompat.getTextMetricsParams(reasonView);
+        }
+    }
+
+    /**
+     * Shows the reason of a row, using its measured text when it has one
+     */
+    protected void bindReason(@NonNull TextView reasonView, @NonNull MoodEventRow row) {
+        CharSequence reasonText = row.getReasonText();
+        if (reasonText instanceof PrecomputedTextCompat) {
+            try {
+                TextViewCompat.setPrecomputedText(reasonView, (PrecomputedTextCompat) reasonText);
+                return;
+            } catch (IllegalArgumentException e) {
+                // The view is styled differently from the one the text was measured for
+            }
+        }
+        reasonView.setText(reasonText.toString());
+    }
+
+    /**
+     * Binds only the date text of a row, when nothing else about its event changed
+     */
+    protected abstract void bindDate(@NonNull VH holder, @NonNull MoodEventRow row);
+
+    @Override
+    public void onBindViewHolder(@NonNull VH holder, int position, @NonNull List<Object> payloads) {
+        for (Object payload : payloads) {
+            if (payload != PAYLOAD_DATE) {
+                onBindViewHolder(holder, position);
+                return;
+            }
+        }
+        if (payloads.isEmpty()) {
+            onBindViewHolder(holder, position);
+        } else {
+            bindDate(holder, getItem(position));
+        }
+    }
+
+    /**
+     * @return The events currently shown
+     */
+    @NonNull
+    public List<MoodEvent> getCurrentEvents() {
+        List<MoodEvent> events = new ArrayList<>();
+        for (MoodEventRow row : differ.getCurrentList()) {
+            events.add(row.getEvent());
+        }
+        return events;
+    }
+
+    public MoodEventRow getItem(int position) {
+        return differ.getCurrentList().get(position);
+    }
+
+    @Override
+    public int getItemCount() {
+        return differ.getCurrentList().size();
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String id = getItem(position).getId();
+        if (id == null) {
+            return RecyclerView.NO_ID;
+        }
+        Long stableId = stableIds.get(id);
+        if (stableId == null) {
+            stableId = (long) stableIds.size();
+            stableIds.put(id, stableId);
+        }
+        return stableId;
+    }
+
+    /**
+     * Views of different adapters sharing a pool must not be mixed up, so the row layout is used as the type
+     */
+    @Override
+    public int getItemViewType(int position) {
+        return getRowLayout();
+    }
+
+    /**
+     * @return The layout resource of a row
+     */
+    protected abstract int getRowLayout();
+}
@@ -0,0 +1,85 @@
+package com.example.bread.controller;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.utils.EmotionUtils;
+
+/**
+ * What a row of a mood event list shows, built off the main thread by {@link MoodEventAdapter}
+ * so binding a row only assigns these values to its views.
+ * Rows are immutable, a row whose date text changes is replaced by a copy.
+ */
+public final class MoodEventRow {
+    private final MoodEvent event;
+    private final String emoticon;
+    private final int colorResId;
+    // A PrecomputedTextCompat when the text metrics of the row were known, a String otherwise
+    private final CharSequence reasonText;
+    private final String dateText;
+
+    MoodEventRow(@NonNull MoodEvent event, @NonNull CharSequence reasonText, @NonNull String dateText) {
+        this.event = event;
+        this.emoticon = EmotionUtils.getEmoticon(event.getEmotionalState());
+        this.colorResId = EmotionUtils.getColorResource(event.getEmotionalState());
+        this.reasonText = reasonText;
+        this.dateText = dateText;
+    }
+
+    private MoodEventRow(MoodEventRow row, String dateText) {
+        this.event = row.event;
+        this.emoticon = row.emoticon;
+        this.colorResId = row.colorResId;
+        this.reasonText = row.reasonText;
+        this.dateText = dateText;
+    }
+
+    /**
+     * @param dateText The new date text
+     * @return This row if the date text is unchanged, otherwise a copy showing the new date text
+     */
+    MoodEventRow withDateText(@NonNull String dateText) {
+        return this.dateText.equals(dateText) ? this : new MoodEventRow(this, dateText);
+    }
+
+    /**
+     * @return True if the rows show the same event the same way
+     */
+    boolean hasSameContent(@NonNull MoodEventRow other) {
+        return event.equals(other.event) && dateText.equals(other.dateText);
+    }
+
+    /**
+     * @return True if the rows only differ by their date text
+     */
+    boolean onlyDateChanged(@NonNull MoodEventRow other) {
+        return event.equals(other.event) && !dateText.equals(other.dateText);
+    }
+
+    @NonNull
+    public MoodEvent getEvent() {
+        return event;
+    }
+
+    public String getId() {
+        return event.getId();
+    }
+
+    public String getEmoticon() {
+        return emoticon;
+    }
+
+    public int getColorResId() {
+        return colorResId;
+    }
+
+    @NonNull
+    public CharSequence getReasonText() {
+        return reasonText;
+    }
+
+    @NonNull
+    public String getDateText() {
+        return dateText;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.bread.controller;
+
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.Participant;
+import com.example.bread.repository.ParticipantRepository;
+import com.google.firebase.firestore.DocumentReference;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the participants shown by the rows of a mood event list, on the main thread.
+ * <p>
+ * Only a few fetches run at once. Rows on screen are loaded first, then the rows right below them,
+ * and requests for rows that scrolled away before their fetch started are dropped. Every bind gets its
+ * own request, so cancelling it when the row is rebound or recycled keeps an older result out of the row.
+ */
+class ParticipantRowLoader {
+    private static final String TAG = "ParticipantRowLoader";
+    private static final int MAX_IN_FLIGHT = 4;
+    // Rows below the visible ones whose participants are fetched ahead of time
+    static final int PREFETCH_DISTANCE = 5;
+
+    /**
+     * Called with the loaded participant, or null if it could not be loaded
+     */
+    interface Callback {
+        void onLoaded(Participant participant);
+    }
+
+    /**
+     * A request for the participant of the row at a position, null callback for prefetches
+     */
+    static final class Request {
+        final DocumentReference ref;
+        final int position;
+        final Callback callback;
+        boolean cancelled;
+
+        private Request(DocumentReference ref, int position, Callback callback) {
+            this.ref = ref;
+            this.position = position;
+            this.callback = callback;
+        }
+    }
+
+    private final LruCache<String, Participant> cache = new LruCache<>(50);
+    private final ParticipantRepository userRepo = new ParticipantRepository();
+    private final List<Request> queue = new ArrayList<>();
+    // Requests waiting on the fetch of a participant, by reference path
+    private final Map<String, List<Request>> inFlight = new HashMap<>();
+    private int firstVisible = 0;
+    private int lastVisible = -1;
+
+    /**
+     * @return The participant if it was already loaded, otherwise null
+     */
+    Participant getCached(@NonNull DocumentReference ref) {
+        return cache.get(ref.getPath());
+    }
+
+    /**
+     * Loads the participant of a row, use {@link #getCached} first
+     *
+     * @param ref      The participant to load
+     * @param position The position of the row, to load rows on screen first
+     * @param callback Called with the participant unless the request is cancelled first
+     * @return The request, to cancel it when the row is rebound
+     */
+    Request load(@NonNull DocumentReference ref, int position, @NonNull Callback callback) {
+        Request request = new Request(ref, position, callback);
+        enqueue(request);
+        return request;
+    }
+
+    /**
+     * Loads the participant of a row that is not bound yet, so it is cached by the time it is
+     */
+    void prefetch(@NonNull DocumentReference ref, int position) {
+        String path = ref.getPath();
+        if (cache.get(path) != null || inFlight.containsKey(path)) {
+            return;
+        }
+        for (Request queued : queue) {
+            if (queued.ref.getPath().equals(path)) {
+                return;
+            }
+        }
+        enqueue(new Request(ref, position, null));
+    }
+
+    /**
+     * Drops the request, its callback will not be called
+     */
+    void cancel(Request request) {
+        if (request != null) {
+            request.cancelled = true;
+            queue.remove(request);
+        }
+    }
+
+    /**
+     * Updates the rows on screen. Prefetches that are no longer close to them are dropped.
+     *
+     * @param first The position of the first visible row
+     * @param last  The position of the last visible row
+     */
+    void setVisibleRange(int first, int last) {
+        firstVisible = first;
+        lastVisible = last;
+        Iterator<Request> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            Request request = iterator.next();
+            if (request.callback == null && (request.position < first || request.position > last + PREFETCH_DISTANCE)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void enqueue(Request request) {
+        List<Request> waiting = inFlight.get(request.ref.getPath());
+        if (waiting != null) {
+            waiting.add(request);
+            return;
+        }
+        queue.add(request);
+        drain();
+    }
+
+    private boolean isVisible(Request request) {
+        return request.position >= firstVisible && request.position <= lastVisible;
+    }
+
+    /**
+     * @return The queued request to fetch next: rows on screen first, then the closest rows below them
+     */
+    private Request next() {
+        Request best = null;
+        for (Request request : queue) {
+            if (best == null
+                    || (isVisible(request) && !isVisible(best))
+                    || (isVisible(request) == isVisible(best) && request.position < best.position)) {
+                best = request;
+            }
+        }
+        return best;
+    }
+
+    private void drain() {
+        while (inFlight.size() < MAX_IN_FLIGHT && !queue.isEmpty()) {
+            Request request = next();
+            String path = request.ref.getPath();
+            // Every queued request for the same participant shares the fetch
+            List<Request> waiting = new ArrayList<>();
+            Iterator<Request> iterator = queue.iterator();
+            while (iterator.hasNext()) {
+                Request queued = iterator.next();
+                if (queued.ref.getPath().equals(path)) {
+                    waiting.add(queued);
+                    iterator.remove();
+                }
+            }
+            inFlight.put(path, waiting);
+            userRepo.fetchParticipantByRef(request.ref, participant -> finish(path, participant), e -> {
+                Log.e(TAG, "Failed to load participant: " + path, e);
+                finish(path, null);
+            });
+        }
+    }
+
+    private void finish(String path, Participant participant) {
+        List<Request> waiting = inFlight.remove(path);
+        if (participant != null) {
+            cache.put(path, participant);
+        }
+        if (waiting != null) {
+            for (Request request : waiting) {
+                if (!request.cancelled && request.callback != null) {
+                    request.callback.onLoaded(participant);
+                }
+            }
+        }
+        drain();
+    }
+}
@@ -13,7 +13,7 @@ import androidx.recyclerview.widget.RecyclerView;
 import com.example.bread.R;
 import com.example.bread.model.Participant;
 import com.example.bread.repository.ParticipantRepository;
-import com.example.bread.utils.ImageHandler;
+import com.example.bread.utils.ImageLoader;
 import com.google.firebase.auth.FirebaseAuth;
 
 import java.util.List;
@@ -79,11 +79,7 @@ public class UserAdapter extends RecyclerView.Adapter<UserAdapter.UserViewHolder
             nameText.setText(participant.getFirstName() + " " + participant.getLastName());
 
             // Set profile image if available
-            if (participant.getProfilePicture() != null) {
-                profileImage.setImageBitmap(ImageHandler.base64ToBitmap(participant.getProfilePicture()));
-            } else {
-                profileImage.setImageResource(R.drawable.default_avatar);
-            }
+            ImageLoader.getInstance(itemView.getContext()).loadProfilePicture(participant, profileImage, R.drawable.default_avatar);
 
             // Hide follow button in followers/following list if needed
             if (!showFollowButton || participant.getUsername().equals(currentUsername)) {
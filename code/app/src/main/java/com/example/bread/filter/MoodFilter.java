@@ -0,0 +1,149 @@
+package com.example.bread.filter;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+
+import java.util.Date;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable set of criteria mood events are filtered by. Criteria are combined with AND and
+ * composed by chaining, e.g. {@code MoodFilter.all().since(weekAgo).withEmotionalState(HAPPY)},
+ * each call returning a new filter.
+ */
+public final class MoodFilter {
+    private static final MoodFilter ALL = new MoodFilter(null, null, null, null, "");
+
+    private final Date since;
+    private final Date until;
+    private final MoodEvent.EmotionalState emotionalState;
+    private final MoodEvent.SocialSituation socialSituation;
+    private final String keyword;
+
+    private MoodFilter(Date since, Date until, MoodEvent.EmotionalState emotionalState, MoodEvent.SocialSituation socialSituation, String keyword) {
+        this.since = since;
+        this.until = until;
+        this.emotionalState = emotionalState;
+        this.socialSituation = socialSituation;
+        this.keyword = keyword;
+    }
+
+    /**
+     * @return The filter matching every mood event
+     */
+    @NonNull
+    public static MoodFilter all() {
+        return ALL;
+    }
+
+    /**
+     * @param since The earliest timestamp to match, inclusive, or null for no lower bound
+     */
+    @NonNull
+    public MoodFilter since(Date since) {
+        return new MoodFilter(since, until, emotionalState, socialSituation, keyword);
+    }
+
+    /**
+     * @param days The number of days back from now to match, e.g. 7 for the last week
+     */
+    @NonNull
+    public MoodFilter recentDays(int days) {
+        return since(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(days)));
+    }
+
+    /**
+     * @param until The latest timestamp to match, exclusive, or null for no upper bound
+     */
+    @NonNull
+    public MoodFilter until(Date until) {
+        return new MoodFilter(since, until, emotionalState, socialSituation, keyword);
+    }
+
+    /**
+     * @param emotionalState The emotional state to match, or null for any
+     */
+    @NonNull
+    public MoodFilter withEmotionalState(MoodEvent.EmotionalState emotionalState) {
+        return new MoodFilter(since, until, emotionalState, socialSituation, keyword);
+    }
+
+    /**
+     * @param socialSituation The social situation to match, or null for any
+     */
+    @NonNull
+    public MoodFilter withSocialSituation(MoodEvent.SocialSituation socialSituation) {
+        return new MoodFilter(since, until, emotionalState, socialSituation, keyword);
+    }
+
+    /**
+     * @param keyword The words the title, reason or trigger must contain, or null or empty for any
+     */
+    @NonNull
+    public MoodFilter withKeyword(String keyword) {
+        return new MoodFilter(since, until, emotionalState, socialSituation, keyword != null ? keyword.trim() : "");
+    }
+
+    public Date getSince() {
+        return since;
+    }
+
+    public Date getUntil() {
+        return until;
+    }
+
+    public MoodEvent.EmotionalState getEmotionalState() {
+        return emotionalState;
+    }
+
+    public MoodEvent.SocialSituation getSocialSituation() {
+        return socialSituation;
+    }
+
+    @NonNull
+    public String getKeyword() {
+        return keyword;
+    }
+
+    public boolean hasTimeRange() {
+        return since != null || until != null;
+    }
+
+    /**
+     * @return true if the filter has no criteria and matches every mood event
+     */
+    public boolean isEmpty() {
+        return !hasTimeRange() && emotionalState == null && socialSituation == null && keyword.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof MoodFilter)) return false;
+        MoodFilter that = (MoodFilter) o;
+        return Objects.equals(since, that.since)
+                && Objects.equals(until, that.until)
+                && emotionalState == that.emotionalState
+                && socialSituation == that.socialSituation
+                && keyword.equals(that.keyword);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(since, until, emotionalState, socialSituation, keyword);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "MoodFilter{" +
+                "since=" + since +
+                ", until=" + until +
+                ", emotionalState=" + emotionalState +
+                ", socialSituation=" + socialSituation +
+                ", keyword='" + keyword + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.bread.filter;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.search.MoodEventIndex;
+import com.example.bread.store.MoodEventStore;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Filters a loaded set of mood events by a {@link MoodFilter}.
+ * <p>
+ * The events are kept in a {@link MoodEventStore}, newest first, so a time window is a contiguous range of positions found
+ * by binary search. Emotional states and social situations have one bitset of positions each,
+ * and keywords are resolved through a {@link MoodEventIndex}. Filtering intersects the bitsets
+ * of the active criteria and collects the remaining positions in one pass, already in display order.
+ * The bitset of each criterion and the last result are cached, so changing one criterion only
+ * recomputes that criterion, and filtering unchanged events by an unchanged filter is free.
+ * Results are views over the store, so no list of events is copied per filter.
+ * <p>
+ * The class is not thread safe, callers are expected to confine it to one thread.
+ */
+public class MoodFilterEngine {
+    private final MoodEventIndex searchIndex = new MoodEventIndex();
+    private final Map<MoodEvent.EmotionalState, BitSet> positionsByState = new EnumMap<>(MoodEvent.EmotionalState.class);
+    private final Map<MoodEvent.SocialSituation, BitSet> positionsBySituation = new EnumMap<>(MoodEvent.SocialSituation.class);
+
+    private MoodEventStore store = MoodEventStore.empty();
+
+    private Date cachedSince;
+    private Date cachedUntil;
+    private BitSet cachedTimePositions;
+    private String cachedKeyword;
+    private BitSet cachedKeywordPositions;
+    private MoodFilter lastFilter;
+    private List<MoodEvent> lastResult;
+
+    /**
+     * Replaces the events being filtered. The keyword index is updated incrementally, only
+     * re-tokenizing events whose text changed.
+     * @param moodEvents The mood events to filter, in any order
+     */
+    public void setEvents(@NonNull Collection<MoodEvent> moodEvents) {
+        store = MoodEventStore.of(moodEvents);
+
+        positionsByState.clear();
+        positionsBySituation.clear();
+        for (int i = 0; i < store.size(); i++) {
+            MoodEvent.EmotionalState state = store.getEmotionalState(i);
+            if (state != null) {
+                positionsFor(positionsByState, state).set(i);
+            }
+            MoodEvent.SocialSituation situation = store.getSocialSituation(i);
+            if (situation != null) {
+                positionsFor(positionsBySituation, situation).set(i);
+            }
+        }
+        searchIndex.sync(moodEvents);
+
+        cachedTimePositions = null;
+        cachedKeywordPositions = null;
+        lastFilter = null;
+        lastResult = null;
+    }
+
+    private static <K> BitSet positionsFor(Map<K, BitSet> positions, K key) {
+        BitSet bits = positions.get(key);
+        if (bits == null) {
+            bits = new BitSet();
+            positions.put(key, bits);
+        }
+        return bits;
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    /**
+     * @return All events, newest first. The list must not be modified.
+     */
+    @NonNull
+    public List<MoodEvent> getEvents() {
+        return store.asList();
+    }
+
+    /**
+     * @param filter The criteria the events must match
+     * @return The matching events, newest first. The list must not be modified.
+     */
+    @NonNull
+    public List<MoodEvent> filter(@NonNull MoodFilter filter) {
+        if (filter.equals(lastFilter)) {
+            return lastResult;
+        }
+
+        BitSet positions = new BitSet(store.size());
+        positions.set(0, store.size());
+        if (filter.hasTimeRange()) {
+            positions.and(timePositions(filter.getSince(), filter.getUntil()));
+        }
+        if (filter.getEmotionalState() != null) {
+            positions.and(positionsOrEmpty(positionsByState.get(filter.getEmotionalState())));
+        }
+        if (filter.getSocialSituation() != null) {
+            positions.and(positionsOrEmpty(positionsBySituation.get(filter.getSocialSituation())));
+        }
+        if (!filter.getKeyword().isEmpty()) {
+            positions.and(keywordPositions(filter.getKeyword()));
+        }
+
+        lastFilter = filter;
+        lastResult = store.view(positions.stream().toArray());
+        return lastResult;
+    }
+
+    private static BitSet positionsOrEmpty(BitSet positions) {
+        return positions != null ? positions : new BitSet();
+    }
+
+    private BitSet timePositions(Date since, Date until) {
+        if (cachedTimePositions != null && Objects.equals(since, cachedSince) && Objects.equals(until, cachedUntil)) {
+            return cachedTimePositions;
+        }
+        // Newest first: events before until start at 'from', events at or after since end before 'to'
+        int from = until != null ? firstOlderThan(until.getTime()) : 0;
+        int to = since != null ? firstOlderThan(since.getTime()) : store.size();
+        BitSet positions = new BitSet(store.size());
+        if (from < to) {
+            positions.set(from, to);
+        }
+        cachedSince = since;
+        cachedUntil = until;
+        cachedTimePositions = positions;
+        return positions;
+    }
+
+    /**
+     * @return The first position whose timestamp is strictly before the given time
+     */
+    private int firstOlderThan(long time) {
+        int low = 0;
+        int high = store.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (store.getTime(mid) >= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private BitSet keywordPositions(String keyword) {
+        if (cachedKeywordPositions != null && keyword.equals(cachedKeyword)) {
+            return cachedKeywordPositions;
+        }
+        BitSet positions = new BitSet(store.size());
+        for (String id : searchIndex.search(keyword)) {
+            int position = store.indexOf(id);
+            if (position >= 0) {
+                positions.set(position);
+            }
+        }
+        cachedKeyword = keyword;
+        cachedKeywordPositions = positions;
+        return positions;
+    }
+}
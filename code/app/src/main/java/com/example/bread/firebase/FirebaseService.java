@@ -1,6 +1,7 @@
 package com.example.bread.firebase;
 
 import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.storage.FirebaseStorage;
 
 public class FirebaseService {
     private static boolean IS_INITIALIZED = false;
@@ -19,4 +20,8 @@ public class FirebaseService {
         }
         return db;
     }
+
+    public FirebaseStorage getStorage() {
+        return FirebaseStorage.getInstance();
+    }
 }
@@ -0,0 +1,109 @@
+package com.example.bread.firebase;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentReference;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads typed values out of the field map of a document, for the mappers.
+ * A missing field, or a field holding a value of another type, reads as null (or 0 for numbers),
+ * so one malformed document does not fail a whole snapshot.
+ */
+final class FirestoreFields {
+
+    private FirestoreFields() {
+    }
+
+    static String getString(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        return value instanceof String ? (String) value : null;
+    }
+
+    static long getLong(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    static int getInt(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    static Date getDate(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toDate();
+        }
+        return value instanceof Date ? (Date) value : null;
+    }
+
+    static Timestamp getTimestamp(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        if (value instanceof Date) {
+            return new Timestamp((Date) value);
+        }
+        return value instanceof Timestamp ? (Timestamp) value : null;
+    }
+
+    static Blob getBlob(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        return value instanceof Blob ? (Blob) value : null;
+    }
+
+    static DocumentReference getReference(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        return value instanceof DocumentReference ? (DocumentReference) value : null;
+    }
+
+    /**
+     * @return A copy of the map stored in the field, or null
+     */
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> getMap(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        return value instanceof Map ? new HashMap<>((Map<String, Object>) value) : null;
+    }
+
+    /**
+     * @return A copy of the strings of the array stored in the field, or null
+     */
+    static List<String> getStringList(@NonNull Map<String, Object> data, @NonNull String field) {
+        Object value = data.get(field);
+        if (!(value instanceof List)) {
+            return null;
+        }
+        List<?> values = (List<?>) value;
+        List<String> strings = new ArrayList<>(values.size());
+        for (Object element : values) {
+            if (element instanceof String) {
+                strings.add((String) element);
+            }
+        }
+        return strings;
+    }
+
+    /**
+     * Enums are stored by name, as Firestore's own mapper stores them
+     *
+     * @return The constant with the stored name, or null if the field is missing or holds an unknown name
+     */
+    static <E extends Enum<E>> E getEnum(@NonNull Map<String, Object> data, @NonNull String field, @NonNull Class<E> type) {
+        String name = getString(data, field);
+        if (name == null) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
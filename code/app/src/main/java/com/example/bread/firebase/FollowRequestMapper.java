@@ -0,0 +1,42 @@
+package com.example.bread.firebase;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.FollowRequest;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.Map;
+
+/**
+ * Reads follow requests from Firestore documents without reflection, they are written with {@link FollowRequest#toMap()}
+ */
+public final class FollowRequestMapper {
+    public static final String FROM_USERNAME = "fromUsername";
+    public static final String STATUS = "status";
+    public static final String TIMESTAMP = "timestamp";
+
+    private FollowRequestMapper() {
+    }
+
+    /**
+     * @param doc The document of the follow request
+     * @return The follow request, or null if the document does not exist
+     */
+    public static FollowRequest fromSnapshot(@NonNull DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? fromData(data) : null;
+    }
+
+    /**
+     * @param data The fields of a follow request document
+     * @return The follow request the fields describe
+     */
+    @NonNull
+    public static FollowRequest fromData(@NonNull Map<String, Object> data) {
+        FollowRequest request = new FollowRequest();
+        request.setFromUsername(FirestoreFields.getString(data, FROM_USERNAME));
+        request.setStatus(FirestoreFields.getString(data, STATUS));
+        request.setTimestamp(FirestoreFields.getTimestamp(data, TIMESTAMP));
+        return request;
+    }
+}
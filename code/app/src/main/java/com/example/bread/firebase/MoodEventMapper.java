@@ -0,0 +1,107 @@
+package com.example.bread.firebase;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts mood events to and from Firestore documents without reflection.
+ * <p>
+ * Reads the same fields {@code toObject(MoodEvent.class)} reads, straight from the field map of the
+ * snapshot, and writes the same fields {@code set(moodEvent)} writes. Fields added to {@link MoodEvent}
+ * have to be added here as well.
+ */
+public final class MoodEventMapper {
+    public static final String ID = "id";
+    public static final String TITLE = "title";
+    public static final String TIMESTAMP = "timestamp";
+    public static final String REASON = "reason";
+    public static final String GEO_INFO = "geoInfo";
+    public static final String PARTICIPANT_REF = "participantRef";
+    public static final String EMOTIONAL_STATE = "emotionalState";
+    public static final String SOCIAL_SITUATION = "socialSituation";
+    public static final String ATTACHED_IMAGE = "attachedImage";
+    public static final String ATTACHED_IMAGE_DATA = "attachedImageData";
+    public static final String ATTACHED_IMAGE_REF = "attachedImageRef";
+    public static final String ATTACHED_IMAGE_PLACEHOLDER = "attachedImagePlaceholder";
+    public static final String TRIGGER = "trigger";
+    public static final String SEARCH_TOKENS = "searchTokens";
+
+    private MoodEventMapper() {
+    }
+
+    /**
+     * Reads a mood event, pending server timestamps read as null
+     *
+     * @param doc The document of the mood event
+     * @return The mood event, or null if the document does not exist
+     */
+    public static MoodEvent fromSnapshot(@NonNull DocumentSnapshot doc) {
+        return fromSnapshot(doc, DocumentSnapshot.ServerTimestampBehavior.NONE);
+    }
+
+    /**
+     * @param doc      The document of the mood event
+     * @param behavior How to read a server timestamp that is still pending
+     * @return The mood event, or null if the document does not exist
+     */
+    public static MoodEvent fromSnapshot(@NonNull DocumentSnapshot doc, @NonNull DocumentSnapshot.ServerTimestampBehavior behavior) {
+        Map<String, Object> data = doc.getData(behavior);
+        return data != null ? fromData(data) : null;
+    }
+
+    /**
+     * @param data The fields of a mood event document
+     * @return The mood event the fields describe
+     */
+    @NonNull
+    public static MoodEvent fromData(@NonNull Map<String, Object> data) {
+        MoodEvent moodEvent = new MoodEvent();
+        moodEvent.setId(FirestoreFields.getString(data, ID));
+        moodEvent.setTitle(FirestoreFields.getString(data, TITLE));
+        moodEvent.setTimestamp(FirestoreFields.getDate(data, TIMESTAMP));
+        moodEvent.setReason(FirestoreFields.getString(data, REASON));
+        moodEvent.setGeoInfo(FirestoreFields.getMap(data, GEO_INFO));
+        moodEvent.setParticipantRef(FirestoreFields.getReference(data, PARTICIPANT_REF));
+        moodEvent.setEmotionalState(FirestoreFields.getEnum(data, EMOTIONAL_STATE, MoodEvent.EmotionalState.class));
+        moodEvent.setSocialSituation(FirestoreFields.getEnum(data, SOCIAL_SITUATION, MoodEvent.SocialSituation.class));
+        moodEvent.setAttachedImage(FirestoreFields.getString(data, ATTACHED_IMAGE));
+        moodEvent.setAttachedImageData(FirestoreFields.getBlob(data, ATTACHED_IMAGE_DATA));
+        moodEvent.setAttachedImageRef(FirestoreFields.getString(data, ATTACHED_IMAGE_REF));
+        moodEvent.setAttachedImagePlaceholder(FirestoreFields.getString(data, ATTACHED_IMAGE_PLACEHOLDER));
+        moodEvent.setTrigger(FirestoreFields.getString(data, TRIGGER));
+        moodEvent.setSearchTokens(FirestoreFields.getStringList(data, SEARCH_TOKENS));
+        return moodEvent;
+    }
+
+    /**
+     * A missing timestamp is written as the server timestamp, as {@code @ServerTimestamp} does
+     *
+     * @param moodEvent The mood event to write
+     * @return The fields of the mood event document, to pass to {@code set}
+     */
+    @NonNull
+    public static Map<String, Object> toMap(@NonNull MoodEvent moodEvent) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(ID, moodEvent.getId());
+        data.put(TITLE, moodEvent.getTitle());
+        data.put(TIMESTAMP, moodEvent.getTimestamp() != null ? moodEvent.getTimestamp() : FieldValue.serverTimestamp());
+        data.put(REASON, moodEvent.getReason());
+        data.put(GEO_INFO, moodEvent.getGeoInfo());
+        data.put(PARTICIPANT_REF, moodEvent.getParticipantRef());
+        data.put(EMOTIONAL_STATE, moodEvent.getEmotionalState() != null ? moodEvent.getEmotionalState().name() : null);
+        data.put(SOCIAL_SITUATION, moodEvent.getSocialSituation() != null ? moodEvent.getSocialSituation().name() : null);
+        data.put(ATTACHED_IMAGE, moodEvent.getAttachedImage());
+        data.put(ATTACHED_IMAGE_DATA, moodEvent.getAttachedImageData());
+        data.put(ATTACHED_IMAGE_REF, moodEvent.getAttachedImageRef());
+        data.put(ATTACHED_IMAGE_PLACEHOLDER, moodEvent.getAttachedImagePlaceholder());
+        data.put(TRIGGER, moodEvent.getTrigger());
+        data.put(SEARCH_TOKENS, moodEvent.getSearchTokens());
+        return data;
+    }
+}
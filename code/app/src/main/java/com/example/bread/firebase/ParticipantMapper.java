@@ -0,0 +1,101 @@
+package com.example.bread.firebase;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.Participant;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Converts participants to and from Firestore documents without reflection.
+ * <p>
+ * A participant is read from its summary document, with the fields {@code toObject(Participant.class)}
+ * reads, and written as a summary and a details document, see
+ * {@link com.example.bread.repository.ParticipantRepository}.
+ */
+public final class ParticipantMapper {
+    public static final String USERNAME = "username";
+    public static final String EMAIL = "email";
+    public static final String FIRST_NAME = "firstName";
+    public static final String LAST_NAME = "lastName";
+    public static final String PROFILE_PICTURE = "profilePicture";
+    public static final String PROFILE_PICTURE_DATA = "profilePictureData";
+    public static final String PROFILE_PICTURE_REF = "profilePictureRef";
+    public static final String PROFILE_PICTURE_PLACEHOLDER = "profilePicturePlaceholder";
+    public static final String PROFILE_PICTURE_VERSION = "profilePictureVersion";
+    public static final String FOLLOWER_COUNT = "followerCount";
+    public static final String FOLLOWING_COUNT = "followingCount";
+
+    private ParticipantMapper() {
+    }
+
+    /**
+     * @param doc The summary document of the participant
+     * @return The participant, or null if the document does not exist
+     */
+    public static Participant fromSnapshot(@NonNull DocumentSnapshot doc) {
+        Map<String, Object> data = doc.getData();
+        return data != null ? fromData(data) : null;
+    }
+
+    /**
+     * Fields of the details document are set too if the map has them, as summaries written before the split do
+     *
+     * @param data The fields of a participant summary document
+     * @return The participant the fields describe
+     */
+    @NonNull
+    public static Participant fromData(@NonNull Map<String, Object> data) {
+        Participant participant = new Participant();
+        participant.setUsername(FirestoreFields.getString(data, USERNAME));
+        participant.setEmail(FirestoreFields.getString(data, EMAIL));
+        participant.setFirstName(FirestoreFields.getString(data, FIRST_NAME));
+        participant.setLastName(FirestoreFields.getString(data, LAST_NAME));
+        participant.setProfilePicture(FirestoreFields.getString(data, PROFILE_PICTURE));
+        participant.setProfilePictureData(FirestoreFields.getBlob(data, PROFILE_PICTURE_DATA));
+        participant.setProfilePictureRef(FirestoreFields.getString(data, PROFILE_PICTURE_REF));
+        participant.setProfilePicturePlaceholder(FirestoreFields.getString(data, PROFILE_PICTURE_PLACEHOLDER));
+        participant.setProfilePictureVersion(FirestoreFields.getLong(data, PROFILE_PICTURE_VERSION));
+        participant.setFollowerCount(FirestoreFields.getInt(data, FOLLOWER_COUNT));
+        participant.setFollowingCount(FirestoreFields.getInt(data, FOLLOWING_COUNT));
+        return participant;
+    }
+
+    /**
+     * @param participant The participant to write
+     * @return The fields of the summary document, what lists, search and listeners need
+     */
+    @NonNull
+    public static Map<String, Object> toSummaryMap(@NonNull Participant participant) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(USERNAME, participant.getUsername());
+        fields.put(FIRST_NAME, participant.getFirstName());
+        fields.put(LAST_NAME, participant.getLastName());
+        fields.put(FOLLOWER_COUNT, participant.getFollowerCount());
+        fields.put(FOLLOWING_COUNT, participant.getFollowingCount());
+        fields.put(PROFILE_PICTURE_VERSION, participant.getProfilePictureVersion());
+        if (participant.getProfilePictureRef() != null) {
+            fields.put(PROFILE_PICTURE_REF, participant.getProfilePictureRef());
+        }
+        if (participant.getProfilePicturePlaceholder() != null) {
+            fields.put(PROFILE_PICTURE_PLACEHOLDER, participant.getProfilePicturePlaceholder());
+        }
+        return fields;
+    }
+
+    /**
+     * @param participant The participant to write
+     * @return The fields of the details document, the heavy or rarely read ones
+     */
+    @NonNull
+    public static Map<String, Object> toDetailsMap(@NonNull Participant participant) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(EMAIL, participant.getEmail());
+        if (participant.getProfilePictureData() != null) {
+            fields.put(PROFILE_PICTURE_DATA, participant.getProfilePictureData());
+        }
+        return fields;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.bread.fragment;
 
 import android.content.Context;
+import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -11,6 +12,7 @@ import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.Spinner;
+import android.widget.TextView;
 import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
@@ -19,6 +21,7 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import com.example.bread.R;
 import com.example.bread.model.MoodEvent;
+import com.example.bread.repository.AttachmentOutbox;
 import com.example.bread.repository.MoodEventRepository;
 import com.example.bread.repository.ParticipantRepository;
 import com.example.bread.utils.LocationHandler;
@@ -34,13 +37,16 @@ public class AddMoodEventFragment extends Fragment {
     private Spinner emotionalStateSpinner, socialSituationSpinner;
     private EditText eventTitleEditText, reasonEditText, triggerEditText;
     private CheckBox locationCheckbox;
-    private Button saveButton;
+    private Button saveButton, attachPhotoButton;
+    private TextView attachedPhotoText;
     private MoodEventRepository moodEventRepository;
     private ParticipantRepository participantRepository;
     private LocationHandler locationHandler;
+    private Uri attachedPhotoUri;
 
 
     private ActivityResultLauncher<String> requestPermissionLauncher;
+    private ActivityResultLauncher<String> pickPhotoLauncher;
 
     @Override
     public void onAttach(@NonNull Context context) {
@@ -57,6 +63,14 @@ public class AddMoodEventFragment extends Fragment {
                 Toast.makeText(context, "Please enable location permissions.", Toast.LENGTH_SHORT).show();
             }
         });
+
+        pickPhotoLauncher = registerForActivityResult(new ActivityResultContracts.GetContent(), uri -> {
+            Log.d(TAG, "Photo picked: " + uri);
+            if (uri != null) {
+                attachedPhotoUri = uri;
+                attachedPhotoText.setText("Photo attached");
+            }
+        });
     }
 
     @Nullable
@@ -73,6 +87,8 @@ public class AddMoodEventFragment extends Fragment {
         eventTitleEditText = view.findViewById(R.id.eventTitleEditText);
         triggerEditText = view.findViewById(R.id.triggerEditText);
         locationCheckbox = view.findViewById(R.id.locationCheckbox);
+        attachPhotoButton = view.findViewById(R.id.attachPhotoButton);
+        attachedPhotoText = view.findViewById(R.id.attachedPhotoText);
         Log.d(TAG, "UI elements initialized");
 
 
@@ -105,6 +121,12 @@ public class AddMoodEventFragment extends Fragment {
             }
         });
 
+        // Photo picker, the photo is only read once the mood is saved
+        if (attachedPhotoUri != null) {
+            attachedPhotoText.setText("Photo attached");
+        }
+        attachPhotoButton.setOnClickListener(v -> pickPhotoLauncher.launch("image/*"));
+
         // Save button logic
         saveButton.setOnClickListener(v -> {
             Log.i(TAG, "Save button clicked");
@@ -193,7 +215,6 @@ public class AddMoodEventFragment extends Fragment {
         MoodEvent moodEvent = new MoodEvent(eventTitle, reason, emotionalState, participantRef);
         moodEvent.setSocialSituation(socialSituation);
         moodEvent.setTrigger(trigger);
-        moodEvent.setAttachedImage(null); // TODO: Implement image upload functionality
         Log.d(TAG, "MoodEvent created: " + moodEvent.toString());
         Log.d(TAG, "Timestamp (before save): " + (moodEvent.getTimestamp() != null ? moodEvent.getTimestamp().toString() : "null (to be set by server)"));
 
@@ -216,17 +237,13 @@ public class AddMoodEventFragment extends Fragment {
 
         // Save to Firebase
         Log.i(TAG, "Saving mood event to Firebase");
+        Uri photoUri = attachedPhotoUri;
         moodEventRepository.addMoodEvent(
                 moodEvent,
                 aVoid -> {
                     Log.i(TAG, "Mood event saved successfully");
                     Toast.makeText(requireContext(), "Mood saved!", Toast.LENGTH_SHORT).show();
-                    // Navigate back to HomeFragment
-                    requireActivity().getSupportFragmentManager()
-                            .beginTransaction()
-                            .replace(R.id.frame_layout, new HomeFragment())
-                            .commit();
-
+                    // Navigate back to the home tab, which already shows the new event
                     if (getActivity() instanceof HomePage) {
                         ((HomePage) getActivity()).selectHomeNavigation();
                     }
@@ -235,6 +252,12 @@ public class AddMoodEventFragment extends Fragment {
                     Log.e(TAG, "Failed to save mood event: " + e.getMessage(), e);
                 }
         );
+
+        // The photo is uploaded in the background and attached once it is stored, the save does not wait for it
+        if (photoUri != null) {
+            Log.i(TAG, "Queueing attached photo for upload");
+            AttachmentOutbox.getInstance(requireContext()).enqueue(moodEvent.getId(), photoUri);
+        }
     }
 
     // Helper method to get the current username (placeholder - replace with actual login logic)
@@ -257,5 +280,6 @@ public class AddMoodEventFragment extends Fragment {
     public void onDetach() {
         super.onDetach();
         requestPermissionLauncher = null; // Clean up
+        pickPhotoLauncher = null;
     }
 }
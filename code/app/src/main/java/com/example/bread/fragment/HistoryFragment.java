@@ -11,69 +11,61 @@ import android.view.ViewGroup;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ListView;
+import android.widget.ImageView;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.recyclerview.widget.RecyclerView;
 import com.example.bread.R;
-import com.example.bread.controller.HistoryMoodEventArrayAdapter;
+import com.example.bread.controller.HistoryMoodEventAdapter;
 import com.example.bread.model.MoodEvent;
 import com.example.bread.model.MoodEvent.EmotionalState;
 import com.example.bread.model.MoodEvent.SocialSituation;
 import com.example.bread.repository.MoodEventRepository;
-import com.example.bread.repository.ParticipantRepository;
+import com.example.bread.store.FeedSnapshotCache;
+import com.example.bread.utils.ImageLoader;
+import com.example.bread.view.HomePage;
+import com.example.bread.viewmodel.MoodHistoryViewModel;
 import com.google.android.gms.tasks.OnSuccessListener;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.DocumentReference;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 public class HistoryFragment extends Fragment {
 
     private static final String TAG = "HistoryFragment";
-    private ListView moodEventListView;
-    private ArrayList<MoodEvent> moodEventArrayList;
-    private HistoryMoodEventArrayAdapter moodArrayAdapter;
+    private RecyclerView moodEventRecyclerView;
+    private HistoryMoodEventAdapter moodArrayAdapter;
 
     private MoodEventRepository moodsRepo;
-    private ParticipantRepository userRepo;
-    private Set<MoodEvent> selectedEvents = new HashSet<>();
-
-    private String username;
-    private DocumentReference participantRef;
+    private List<MoodEvent> selectedEvents = new ArrayList<>();
+    // Keeps the loaded events and the filter while the tab is hidden or recreated
+    private MoodHistoryViewModel viewModel;
 
     // Filter-related variables
     private FloatingActionButton filterButton;
-    private ArrayList<MoodEvent> allMoodEvents = new ArrayList<>();
-    private boolean isFilteringByWeek = false;
-    private MoodEvent.EmotionalState selectedEmotionalState = null;
-    private String searchKeyword = "";
 
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         View view = inflater.inflate(R.layout.fragment_history, container, false);
 
-        moodEventListView = view.findViewById(R.id.historyListView);
-        moodEventArrayList = new ArrayList<>();
-        moodArrayAdapter = new HistoryMoodEventArrayAdapter(getContext(), moodEventArrayList);
-        moodEventListView.setAdapter(moodArrayAdapter);
+        moodEventRecyclerView = view.findViewById(R.id.historyRecyclerView);
+        moodArrayAdapter = new HistoryMoodEventAdapter(requireContext());
+        moodArrayAdapter.attachTo(moodEventRecyclerView, getActivity() instanceof HomePage ? ((HomePage) getActivity()).getMoodEventViewPool() : null);
 
         // Set click listener for mood events
         moodArrayAdapter.setOnMoodEventClickListener(this::showMoodDetailsDialog);
 
         moodsRepo = new MoodEventRepository();
-        userRepo = new ParticipantRepository();
 
-        fetchParticipantAndLoadEvents();
+        viewModel = new ViewModelProvider(this).get(MoodHistoryViewModel.class);
+        observeMoodEvents();
 
         Button deleteButton = view.findViewById(R.id.deleteButton);
         deleteButton.setOnClickListener(v -> showDeleteConfirmationDialog());
@@ -88,52 +80,32 @@ public class HistoryFragment extends Fragment {
     }
 
     /**
-     * Retrieves current user using FirebaseUser and uses to find participant ref.
-     * Logs appropriate error messages if username null or user is not found.
-     * Uses loadMoodEvents() to find mood events corresponding to user
+     * Shows the mood events of the current user held by the view model, newest first.
+     * The view model only starts listening the first time, a recreated view shows the events already loaded.
      */
-    private void fetchParticipantAndLoadEvents() {
+    private void observeMoodEvents() {
         FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
-        if (currentUser != null) {
-            username = currentUser.getDisplayName();
-            if (username == null) {
-                Log.e(TAG, "Username is null. Cannot load mood events.");
-                return;
-            }
-            participantRef = userRepo.getParticipantRef(username);
-            loadMoodEvents();
-        } else {
+        if (currentUser == null || currentUser.getDisplayName() == null) {
             Log.e(TAG, "No authenticated user found.");
+            return;
         }
-    }
-
-    /**
-     * Uses listenForEventsWithParticipantRef() from MoodEventRepository class
-     * to actively retrieve mood events corresponding to user whenever added.
-     * Adds/alters user mood events to moodEventArrayList whenever there are changes.
-     * Sorts mood events by date and time added
-     */
-    private void loadMoodEvents() {
-        moodsRepo.listenForEventsWithParticipantRef(participantRef, moodEvents -> {
-                    if (moodEvents != null) {
-                        moodEventArrayList.clear();
-                        moodEventArrayList.addAll(moodEvents);
-                        moodEventArrayList.sort((e1, e2) -> e2.compareTo(e1));
-
-                        // Save all mood events for filtering
-                        allMoodEvents.clear();
-                        allMoodEvents.addAll(moodEventArrayList);
-
-                        // Reapply any existing filters
-                        if (isFilteringByWeek || selectedEmotionalState != null || !searchKeyword.isEmpty()) {
-                            applyFilters();
-                        }
-                    }
-                    moodArrayAdapter.notifyDataSetChanged();
-                },
-                error -> {
-                    Log.e("History Fragment", "Failed to listen for mood events", error);
-                });
+        viewModel.getEvents().observe(getViewLifecycleOwner(), moodEvents -> {
+            if (moodEvents == null) {
+                return;
+            }
+            moodArrayAdapter.submitList(moodEvents);
+            if (moodEvents.isEmpty() && !viewModel.getActiveFilter().isEmpty()) {
+                Toast.makeText(getContext(), "No mood events match the applied filters", Toast.LENGTH_SHORT).show();
+            }
+        });
+        viewModel.getError().observe(getViewLifecycleOwner(), error -> {
+            if (error != null) {
+                Log.e("History Fragment", "Failed to listen for mood events", error);
+                viewModel.clearError();
+            }
+        });
+        viewModel.restore(FeedSnapshotCache.getInstance(requireContext()));
+        viewModel.start();
     }
 
     /**
@@ -157,19 +129,18 @@ public class HistoryFragment extends Fragment {
      */
     private void deleteSelectedMoodEvents() {
         MoodEventRepository repository = new MoodEventRepository();
-        selectedEvents = ((HistoryMoodEventArrayAdapter) moodEventListView.getAdapter()).getSelectedEvents();
+        selectedEvents = moodArrayAdapter.getSelectedEvents();
         for (MoodEvent event : selectedEvents) {
+            // The listener of the view model removes the event from the list as soon as it is deleted locally
             repository.deleteMoodEvent(event, new OnSuccessListener<Void>() {
                 @Override
                 public void onSuccess(Void aVoid) {
-                    getActivity().runOnUiThread(() -> {
-                        moodArrayAdapter.remove(event);
-                        moodArrayAdapter.notifyDataSetChanged();
-                    });
+                    Log.i(TAG, "Deleted mood event: " + event.getId());
                 }
             }, e -> Toast.makeText(getContext(), "Error deleting event", Toast.LENGTH_SHORT).show());
         }
         selectedEvents.clear();  // Clear the selection after deletion
+        moodArrayAdapter.clearSelection();
     }
 
     /**
@@ -191,6 +162,7 @@ public class HistoryFragment extends Fragment {
         TextView dateTextView = dialogView.findViewById(R.id.detail_date);
         TextView reasonTextView = dialogView.findViewById(R.id.detail_reason);
         TextView socialSituationTextView = dialogView.findViewById(R.id.detail_social_situation);
+        ImageView imageView = dialogView.findViewById(R.id.detail_image);
 
         // Set the data
         emotionTextView.setText(moodEvent.getEmotionalState().toString());
@@ -207,6 +179,15 @@ public class HistoryFragment extends Fragment {
         SocialSituation situation = moodEvent.getSocialSituation();
         socialSituationTextView.setText(situation != null ? situation.toString() : "Not specified");
 
+        // The full size photo is only fetched here, lists only ever show thumbnails
+        if (moodEvent.getAttachedImageRef() != null) {
+            imageView.setVisibility(View.VISIBLE);
+            ImageLoader.getInstance(requireContext()).loadStoredImage(moodEvent.getAttachedImageRef(), moodEvent.getAttachedImagePlaceholder(), imageView, 0);
+        } else if (moodEvent.getAttachedImageBytes() != null) {
+            imageView.setVisibility(View.VISIBLE);
+            ImageLoader.getInstance(requireContext()).load(moodEvent.getAttachedImageBytes(), imageView, 0);
+        }
+
         builder.setView(dialogView);
         builder.setPositiveButton("Close", (dialog, which) -> dialog.dismiss());
 
@@ -341,13 +322,15 @@ public class HistoryFragment extends Fragment {
             }
 
             // **Only save if all validations passed**
-            moodEvent.setTitle(newTitle);
-            moodEvent.setEmotionalState(newEmotionalState);
-            moodEvent.setReason(newReason);
-            moodEvent.setSocialSituation(newSocialSituation);
+            // The shown event is shared with the other lists, so the edits go on a copy
+            MoodEvent edited = new MoodEvent(moodEvent);
+            edited.setTitle(newTitle);
+            edited.setEmotionalState(newEmotionalState);
+            edited.setReason(newReason);
+            edited.setSocialSituation(newSocialSituation);
 
             // Save to Firebase
-            moodsRepo.updateMoodEvent(moodEvent,
+            moodsRepo.updateMoodEvent(edited,
                     aVoid -> {
                         if (isAdded() && getActivity() != null) {
                             getActivity().runOnUiThread(() -> {
@@ -418,14 +401,15 @@ public class HistoryFragment extends Fragment {
         moodAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         moodSpinner.setAdapter(moodAdapter);
 
-        recentWeekSwitch.setChecked(isFilteringByWeek);
+        recentWeekSwitch.setChecked(viewModel.isFilteringByWeek());
+        MoodEvent.EmotionalState selectedEmotionalState = viewModel.getSelectedEmotionalState();
         if (selectedEmotionalState != null) {
             int position = moodOptions.indexOf(selectedEmotionalState.toString());
             if (position >= 0) {
                 moodSpinner.setSelection(position);
             }
         }
-        keywordEditText.setText(searchKeyword);
+        keywordEditText.setText(viewModel.getSearchKeyword());
 
         AlertDialog dialog = builder.create();
         if (dialog.getWindow() != null) {
@@ -434,19 +418,16 @@ public class HistoryFragment extends Fragment {
         dialog.show();
 
         applyButton.setOnClickListener(v -> {
-            isFilteringByWeek = recentWeekSwitch.isChecked();
-
+            MoodEvent.EmotionalState emotionalState = null;
             int moodPosition = moodSpinner.getSelectedItemPosition();
             if (moodPosition > 0) {
                 String selectedMood = moodOptions.get(moodPosition);
-                selectedEmotionalState = MoodEvent.EmotionalState.valueOf(selectedMood);
-            } else {
-                selectedEmotionalState = null;
+                emotionalState = MoodEvent.EmotionalState.valueOf(selectedMood);
             }
 
-            searchKeyword = keywordEditText.getText().toString().trim().toLowerCase();
+            String keyword = keywordEditText.getText().toString().trim().toLowerCase();
 
-            applyFilters();
+            viewModel.setFilter(recentWeekSwitch.isChecked(), emotionalState, keyword);
             dialog.dismiss();
         });
 
@@ -455,88 +436,8 @@ public class HistoryFragment extends Fragment {
             moodSpinner.setSelection(0);
             keywordEditText.setText("");
 
-            isFilteringByWeek = false;
-            selectedEmotionalState = null;
-            searchKeyword = "";
-
-            resetFilters();
+            viewModel.resetFilter();
             dialog.dismiss();
         });
     }
-
-    private void applyFilters() {
-        if (allMoodEvents.isEmpty() && !moodEventArrayList.isEmpty()) {
-            allMoodEvents.addAll(moodEventArrayList);
-        }
-
-        ArrayList<MoodEvent> filteredList = new ArrayList<>(allMoodEvents);
-
-        if (isFilteringByWeek) {
-            filteredList = filterByRecentWeek(filteredList);
-        }
-
-        if (selectedEmotionalState != null) {
-            filteredList = filterByEmotionalState(filteredList, selectedEmotionalState);
-        }
-
-        if (!searchKeyword.isEmpty()) {
-            filteredList = filterByKeyword(filteredList, searchKeyword);
-        }
-
-        moodEventArrayList.clear();
-        moodEventArrayList.addAll(filteredList);
-        moodArrayAdapter.notifyDataSetChanged();
-
-        if (filteredList.isEmpty() && (isFilteringByWeek || selectedEmotionalState != null || !searchKeyword.isEmpty())) {
-            Toast.makeText(getContext(), "No mood events match the applied filters", Toast.LENGTH_SHORT).show();
-        }
-    }
-
-    private ArrayList<MoodEvent> filterByRecentWeek(ArrayList<MoodEvent> events) {
-        ArrayList<MoodEvent> filteredList = new ArrayList<>();
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DAY_OF_YEAR, -7);
-        Date oneWeekAgo = calendar.getTime();
-
-        for (MoodEvent event : events) {
-            if (event.getTimestamp().after(oneWeekAgo)) {
-                filteredList.add(event);
-            }
-        }
-
-        return filteredList;
-    }
-
-    private ArrayList<MoodEvent> filterByEmotionalState(ArrayList<MoodEvent> events, MoodEvent.EmotionalState state) {
-        ArrayList<MoodEvent> filteredList = new ArrayList<>();
-
-        for (MoodEvent event : events) {
-            if (event.getEmotionalState() == state) {
-                filteredList.add(event);
-            }
-        }
-
-        return filteredList;
-    }
-
-    private ArrayList<MoodEvent> filterByKeyword(ArrayList<MoodEvent> events, String keyword) {
-        ArrayList<MoodEvent> filteredList = new ArrayList<>();
-
-        for (MoodEvent event : events) {
-            if (event.getReason() != null && event.getReason().toLowerCase().contains(keyword)) {
-                filteredList.add(event);
-            }
-        }
-
-        return filteredList;
-    }
-
-    private void resetFilters() {
-        if (!allMoodEvents.isEmpty()) {
-            moodEventArrayList.clear();
-            moodEventArrayList.addAll(allMoodEvents);
-            moodEventArrayList.sort((e1, e2) -> e2.compareTo(e1));
-            moodArrayAdapter.notifyDataSetChanged();
-        }
-    }
-}
\ No newline at end of file
+}
@@ -16,34 +16,37 @@ import android.view.inputmethod.InputMethodManager;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.bread.R;
-import com.example.bread.controller.HomeMoodEventArrayAdapter;
+import com.example.bread.controller.HomeMoodEventAdapter;
 import com.example.bread.controller.UserAdapter;
 import com.example.bread.model.MoodEvent;
 import com.example.bread.model.Participant;
-import com.example.bread.repository.MoodEventRepository;
 import com.example.bread.repository.ParticipantRepository;
+import com.example.bread.startup.StartupPipeline;
+import com.example.bread.store.FeedSnapshotCache;
+import com.example.bread.view.HomePage;
 import com.example.bread.view.LoginPage;
+import com.example.bread.viewmodel.HomeFeedViewModel;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class HomeFragment extends Fragment implements UserAdapter.UserInteractionListener {
@@ -51,11 +54,16 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
     private static final String TAG = "HomeFragment";
 
     // Mood events section
-    private ListView moodEventListView;
-    private ArrayList<MoodEvent> moodEventArrayList;
-    private HomeMoodEventArrayAdapter moodEventArrayAdapter;
+    private RecyclerView moodEventRecyclerView;
+    private HomeMoodEventAdapter moodEventAdapter;
+    // Keeps the loaded feed and the filter while the tab is hidden or recreated
+    private HomeFeedViewModel viewModel;
     private ProgressBar moodsLoadingIndicator;
     private TextView emptyMoodsView;
+    private Button newMoodsBanner;
+    // Events last given to the adapter, and the newer feed whose new events wait behind the banner
+    private List<MoodEvent> shownEvents = new ArrayList<>();
+    private List<MoodEvent> heldEvents;
 
     // Search section
     private EditText searchEditText;
@@ -66,7 +74,6 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
     private View searchContainer;
 
     // Repositories
-    private MoodEventRepository moodEventRepository;
     private ParticipantRepository participantRepository;
 
     // User search
@@ -83,10 +90,6 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
 
     // Filter-related variables
     private FloatingActionButton filterButton;
-    private ArrayList<MoodEvent> allMoodEvents = new ArrayList<>();
-    private boolean isFilteringByWeek = false;
-    private MoodEvent.EmotionalState selectedEmotionalState = null;
-    private String searchKeyword = "";
 
     public HomeFragment() {
         // Required empty public constructor
@@ -99,13 +102,23 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
         View view = inflater.inflate(R.layout.fragment_home, container, false);
 
         // Initialize mood list
-        moodEventListView = view.findViewById(R.id.homeListView);
+        moodEventRecyclerView = view.findViewById(R.id.homeRecyclerView);
         moodsLoadingIndicator = view.findViewById(R.id.moods_loading_indicator);
         emptyMoodsView = view.findViewById(R.id.empty_moods_view);
+        newMoodsBanner = view.findViewById(R.id.new_moods_banner);
+        newMoodsBanner.setOnClickListener(v -> showHeldEvents());
 
-        moodEventArrayList = new ArrayList<>();
-        moodEventArrayAdapter = new HomeMoodEventArrayAdapter(getContext(), moodEventArrayList);
-        moodEventListView.setAdapter(moodEventArrayAdapter);
+        moodEventAdapter = new HomeMoodEventAdapter(requireContext());
+        moodEventAdapter.attachTo(moodEventRecyclerView, getActivity() instanceof HomePage ? ((HomePage) getActivity()).getMoodEventViewPool() : null);
+        moodEventRecyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                // Back at the top, the new events can be inserted without moving what the user reads
+                if (heldEvents != null && isAtTop()) {
+                    showHeldEvents();
+                }
+            }
+        });
 
         // Initialize search views
         searchEditText = view.findViewById(R.id.search_edit_text);
@@ -126,7 +139,7 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
 
         // Initialize repositories
         mAuth = FirebaseAuth.getInstance();
-        moodEventRepository = new MoodEventRepository();
+        viewModel = new ViewModelProvider(this).get(HomeFeedViewModel.class);
         participantRepository = new ParticipantRepository();
 
         // Get current user
@@ -157,7 +170,7 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
         }
 
         // Set click listener for mood events
-        moodEventArrayAdapter.setOnMoodEventClickListener(this::showMoodDetailsDialog);
+        moodEventAdapter.setOnMoodEventClickListener(this::showMoodDetailsDialog);
 
         // Fetch mood events
         fetchMoodEvents();
@@ -249,110 +262,139 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
         }
     }
 
+    /**
+     * Shows the feed held by the view model. The view model only starts listening the first time,
+     * a recreated view shows the events already loaded.
+     */
     private void fetchMoodEvents() {
         FirebaseUser user = mAuth.getCurrentUser();
-        if (user != null) {
-            String username = user.getDisplayName();
-            if (username != null) {
-                // Show loading state
-                if (getActivity() != null) {
-                    getActivity().runOnUiThread(() -> {
-                        moodsLoadingIndicator.setVisibility(View.VISIBLE);
-                        emptyMoodsView.setVisibility(View.GONE);
-                        moodEventListView.setVisibility(View.GONE);
-                    });
-                }
-
-                moodEventRepository.listenForEventsFromFollowing(username, moodEvents -> {
-                    // Update on UI thread to prevent crashes
-                    if (getActivity() != null) {
-                        getActivity().runOnUiThread(() -> {
-                            try {
-                                if (moodEventArrayList != null) {
-                                    moodEventArrayList.clear();
-
-                                    // Add all events with valid timestamps
-                                    ArrayList<MoodEvent> validEvents = new ArrayList<>();
-                                    for (MoodEvent event : moodEvents) {
-                                        if (event.getTimestamp() != null) {
-                                            validEvents.add(event);
-                                        }
-                                    }
-
-                                    // Sort by date (newest first)
-                                    Collections.sort(validEvents);
-                                    Collections.reverse(validEvents);
+        if (user == null || user.getDisplayName() == null) {
+            Log.e(TAG, "User is not logged in");
+            Intent intent = new Intent(getContext(), LoginPage.class);
+            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+            startActivity(intent);
+            return;
+        }
 
-                                    // Update the list
-                                    moodEventArrayList.addAll(validEvents);
+        viewModel.isLoading().observe(getViewLifecycleOwner(), loading -> {
+            List<MoodEvent> shown = viewModel.getEvents().getValue();
+            // Events restored from the last session stay visible while the listener starts
+            if (loading && moodEventAdapter.getItemCount() == 0 && (shown == null || shown.isEmpty())) {
+                moodsLoadingIndicator.setVisibility(View.VISIBLE);
+                emptyMoodsView.setVisibility(View.GONE);
+                moodEventRecyclerView.setVisibility(View.GONE);
+            } else {
+                moodsLoadingIndicator.setVisibility(View.GONE);
+            }
+        });
+        viewModel.getEvents().observe(getViewLifecycleOwner(), moodEvents -> {
+            if (moodEvents == null) {
+                return;
+            }
+            if (moodEvents.isEmpty()) {
+                showEvents(moodEvents, false);
+                emptyMoodsView.setVisibility(View.VISIBLE);
+                moodEventRecyclerView.setVisibility(View.GONE);
+                if (!viewModel.getActiveFilter().isEmpty()) {
+                    Toast.makeText(getContext(), "No mood events match the applied filters", Toast.LENGTH_SHORT).show();
+                }
+            } else {
+                if (isAtTop()) {
+                    showEvents(moodEvents, false);
+                } else {
+                    holdNewEvents(moodEvents);
+                }
+                emptyMoodsView.setVisibility(View.GONE);
+                moodEventRecyclerView.setVisibility(View.VISIBLE);
+            }
+        });
+        viewModel.getError().observe(getViewLifecycleOwner(), e -> {
+            if (e == null) {
+                return;
+            }
+            Log.e(TAG, "Failed to fetch mood events for user: " + user.getDisplayName(), e);
+            // Only show error toast if we have no existing events
+            List<MoodEvent> shown = viewModel.getEvents().getValue();
+            if (shown == null || shown.isEmpty()) {
+                Toast.makeText(getContext(), "Failed to fetch mood events", Toast.LENGTH_SHORT).show();
+                emptyMoodsView.setVisibility(View.VISIBLE);
+                moodEventRecyclerView.setVisibility(View.GONE);
+            }
+            viewModel.clearError();
+        });
+        viewModel.restore(FeedSnapshotCache.getInstance(requireContext()));
+        viewModel.start();
+    }
 
-                                    // Save all mood events for filtering
-                                    allMoodEvents.clear();
-                                    allMoodEvents.addAll(moodEventArrayList);
+    /**
+     * @return True if the first row of the feed is fully visible, or the feed is empty
+     */
+    private boolean isAtTop() {
+        return moodEventAdapter.getItemCount() == 0 || !moodEventRecyclerView.canScrollVertically(-1);
+    }
 
-                                    // Reapply any existing filters
-                                    if (isFilteringByWeek || selectedEmotionalState != null || !searchKeyword.isEmpty()) {
-                                        applyFilters();
-                                    } else {
-                                        if (moodEventArrayAdapter != null) {
-                                            moodEventArrayAdapter.notifyDataSetChanged();
-                                        }
-                                    }
+    /**
+     * Shows a feed update while the user is scrolled down. Edited and removed events are updated right away,
+     * events that were not shown yet are held back behind the banner so the rows being read do not move.
+     *
+     * @param moodEvents The updated feed, newest first
+     */
+    private void holdNewEvents(List<MoodEvent> moodEvents) {
+        Set<String> shownIds = new HashSet<>();
+        for (MoodEvent event : shownEvents) {
+            shownIds.add(event.getId());
+        }
+        List<MoodEvent> known = new ArrayList<>();
+        for (MoodEvent event : moodEvents) {
+            if (shownIds.contains(event.getId())) {
+                known.add(event);
+            }
+        }
+        int newCount = moodEvents.size() - known.size();
+        if (newCount == 0) {
+            showEvents(moodEvents, false);
+            return;
+        }
+        heldEvents = moodEvents;
+        shownEvents = known;
+        moodEventAdapter.submitList(known);
+        newMoodsBanner.setText(getResources().getQuantityString(R.plurals.new_moods, newCount, newCount));
+        newMoodsBanner.setVisibility(View.VISIBLE);
+    }
 
-                                    // Hide loading indicator and show appropriate views
-                                    moodsLoadingIndicator.setVisibility(View.GONE);
+    /**
+     * Shows the events held back behind the banner and scrolls up to them
+     */
+    private void showHeldEvents() {
+        if (heldEvents != null) {
+            showEvents(heldEvents, true);
+        }
+    }
 
-                                    if (moodEventArrayList.isEmpty()) {
-                                        emptyMoodsView.setVisibility(View.VISIBLE);
-                                        moodEventListView.setVisibility(View.GONE);
-                                    } else {
-                                        emptyMoodsView.setVisibility(View.GONE);
-                                        moodEventListView.setVisibility(View.VISIBLE);
-                                    }
-                                }
-                            } catch (Exception e) {
-                                // Handle any exceptions during the UI update
-                                Log.e(TAG, "Error updating UI with mood events", e);
-                                moodsLoadingIndicator.setVisibility(View.GONE);
-
-                                // Only show error if we couldn't load any events
-                                if (moodEventArrayList.isEmpty()) {
-                                    Toast.makeText(getContext(), "Failed to load mood events", Toast.LENGTH_SHORT).show();
-                                    emptyMoodsView.setVisibility(View.VISIBLE);
-                                    moodEventListView.setVisibility(View.GONE);
-                                }
-                            }
-                        });
-                    }
-                }, e -> {
+    /**
+     * Gives the events to the adapter and hides the banner, they replace any held back events
+     *
+     * @param moodEvents  The events to show
+     * @param scrollToTop Scroll to the first event once it is shown
+     */
+    private void showEvents(List<MoodEvent> moodEvents, boolean scrollToTop) {
+        heldEvents = null;
+        shownEvents = moodEvents;
+        newMoodsBanner.setVisibility(View.GONE);
+        boolean restored = viewModel.isShowingRestored();
+        moodEventAdapter.submitList(moodEvents, () -> {
+            if (scrollToTop) {
+                moodEventRecyclerView.scrollToPosition(0);
+            }
+            // Reported once the rows are drawn, for the startup metric
+            if (!moodEvents.isEmpty()) {
+                moodEventRecyclerView.post(() -> {
                     if (getActivity() != null) {
-                        getActivity().runOnUiThread(() -> {
-                            Log.e(TAG, "Failed to fetch mood events for user: " + username, e);
-
-                            // Only show error toast if we have no existing events
-                            if (moodEventArrayList.isEmpty()) {
-                                Toast.makeText(getContext(), "Failed to fetch mood events", Toast.LENGTH_SHORT).show();
-                            }
-
-                            // Hide loading indicator and show empty view on error
-                            moodsLoadingIndicator.setVisibility(View.GONE);
-                            if (moodEventArrayList.isEmpty()) {
-                                emptyMoodsView.setVisibility(View.VISIBLE);
-                                moodEventListView.setVisibility(View.GONE);
-                            } else {
-                                emptyMoodsView.setVisibility(View.GONE);
-                                moodEventListView.setVisibility(View.VISIBLE);
-                            }
-                        });
+                        StartupPipeline.getInstance().onFeedRowsShown(getActivity(), restored);
                     }
                 });
             }
-        } else {
-            Log.e(TAG, "User is not logged in");
-            Intent intent = new Intent(getContext(), LoginPage.class);
-            intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
-            startActivity(intent);
-        }
+        });
     }
 
     private void searchUsers(String query) {
@@ -561,14 +603,15 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
         moodAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         moodSpinner.setAdapter(moodAdapter);
 
-        recentWeekSwitch.setChecked(isFilteringByWeek);
+        recentWeekSwitch.setChecked(viewModel.isFilteringByWeek());
+        MoodEvent.EmotionalState selectedEmotionalState = viewModel.getSelectedEmotionalState();
         if (selectedEmotionalState != null) {
             int position = moodOptions.indexOf(selectedEmotionalState.toString());
             if (position >= 0) {
                 moodSpinner.setSelection(position);
             }
         }
-        keywordEditText.setText(searchKeyword);
+        keywordEditText.setText(viewModel.getSearchKeyword());
 
         AlertDialog dialog = builder.create();
         if (dialog.getWindow() != null) {
@@ -577,19 +620,19 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
         dialog.show();
 
         applyButton.setOnClickListener(v -> {
-            isFilteringByWeek = recentWeekSwitch.isChecked();
-
+            MoodEvent.EmotionalState emotionalState = null;
             int moodPosition = moodSpinner.getSelectedItemPosition();
             if (moodPosition > 0) {
                 String selectedMood = moodOptions.get(moodPosition);
-                selectedEmotionalState = MoodEvent.EmotionalState.valueOf(selectedMood);
-            } else {
-                selectedEmotionalState = null;
+                emotionalState = MoodEvent.EmotionalState.valueOf(selectedMood);
             }
 
-            searchKeyword = keywordEditText.getText().toString().trim().toLowerCase();
+            String keyword = keywordEditText.getText().toString().trim().toLowerCase();
 
-            applyFilters();
+            // Query the whole followed feed on the server, the filters are reapplied when it arrives.
+            // The filtered feed replaces the list, so it is shown from the top instead of held back.
+            moodEventRecyclerView.scrollToPosition(0);
+            viewModel.setFilter(recentWeekSwitch.isChecked(), emotionalState, keyword);
             dialog.dismiss();
         });
 
@@ -598,114 +641,30 @@ public class HomeFragment extends Fragment implements UserAdapter.UserInteractio
             moodSpinner.setSelection(0);
             keywordEditText.setText("");
 
-            isFilteringByWeek = false;
-            selectedEmotionalState = null;
-            searchKeyword = "";
-
-            resetFilters();
+            moodEventRecyclerView.scrollToPosition(0);
+            viewModel.resetFilter();
             dialog.dismiss();
         });
     }
 
-    private void applyFilters() {
-        if (allMoodEvents.isEmpty()) {
-            Log.w(TAG, "allMoodEvents was empty, copying current mood events list");
-            allMoodEvents.addAll(moodEventArrayList);
-        }
-
-        ArrayList<MoodEvent> filteredList = new ArrayList<>(allMoodEvents);
-
-        if (isFilteringByWeek) {
-            filteredList = filterByRecentWeek(filteredList);
-        }
-
-        if (selectedEmotionalState != null) {
-            filteredList = filterByEmotionalState(filteredList, selectedEmotionalState);
-        }
-
-        if (!searchKeyword.isEmpty()) {
-            filteredList = filterByKeyword(filteredList, searchKeyword);
-        }
-
-        Log.d(TAG, "Filtered list size: " + filteredList.size());
-
-        moodEventArrayList.clear();
-        moodEventArrayList.addAll(filteredList);
-
-        if (moodEventArrayAdapter != null) {
-            moodEventArrayAdapter.notifyDataSetChanged();
-        } else {
-            Log.e(TAG, "MoodEventArrayAdapter is null!");
-        }
-
-        if (filteredList.isEmpty() && (isFilteringByWeek || selectedEmotionalState != null || !searchKeyword.isEmpty())) {
-            Toast.makeText(getContext(), "No mood events match the applied filters", Toast.LENGTH_SHORT).show();
-        }
-    }
-
-    private ArrayList<MoodEvent> filterByRecentWeek(ArrayList<MoodEvent> events) {
-        ArrayList<MoodEvent> filteredList = new ArrayList<>();
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DAY_OF_YEAR, -7);
-        Date oneWeekAgo = calendar.getTime();
-
-        for (MoodEvent event : events) {
-            if (event.getTimestamp().after(oneWeekAgo)) {
-                filteredList.add(event);
-            }
-        }
-
-        return filteredList;
-    }
-
-    private ArrayList<MoodEvent> filterByEmotionalState(ArrayList<MoodEvent> events, MoodEvent.EmotionalState state) {
-        ArrayList<MoodEvent> filteredList = new ArrayList<>();
-
-        for (MoodEvent event : events) {
-            if (event.getEmotionalState() == state) {
-                filteredList.add(event);
-            }
-        }
-
-        return filteredList;
-    }
-
-    private ArrayList<MoodEvent> filterByKeyword(ArrayList<MoodEvent> events, String keyword) {
-        ArrayList<MoodEvent> filteredList = new ArrayList<>();
-
-        for (MoodEvent event : events) {
-            if (event.getReason() != null && event.getReason().toLowerCase().contains(keyword)) {
-                filteredList.add(event);
-            }
-        }
-
-        return filteredList;
-    }
-
-    private void resetFilters() {
-        Log.d(TAG, "Resetting filters...");
-        Log.d(TAG, "All mood events size: " + allMoodEvents.size());
-
-        if (!allMoodEvents.isEmpty()) {
-            moodEventArrayList.clear();
-            moodEventArrayList.addAll(allMoodEvents);
-            moodEventArrayList.sort((e1, e2) -> e2.compareTo(e1));
-
-            Log.d(TAG, "Mood events size after reset: " + moodEventArrayList.size());
-
-            if (moodEventArrayAdapter != null) {
-                moodEventArrayAdapter.notifyDataSetChanged();
-            } else {
-                Log.e(TAG, "MoodEventArrayAdapter is null!");
-            }
-        } else {
-            Log.e(TAG, "No events available to reset!");
+    /**
+     * Tabs are hidden instead of paused when another tab is selected
+     */
+    @Override
+    public void onHiddenChanged(boolean hidden) {
+        super.onHiddenChanged(hidden);
+        if (hidden) {
+            clearSearch();
         }
     }
 
     @Override
     public void onPause() {
         super.onPause();
+        clearSearch();
+    }
+
+    private void clearSearch() {
         // Clear search when leaving fragment
         if (searchEditText != null) {
             searchEditText.setText("");
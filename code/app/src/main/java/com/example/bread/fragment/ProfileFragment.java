@@ -13,34 +13,40 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.fragment.app.Fragment;
-import androidx.fragment.app.FragmentManager;
-import androidx.fragment.app.FragmentTransaction;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.bread.R;
+import com.example.bread.analytics.MoodAnalytics;
+import com.example.bread.analytics.MoodAnalyticsManager;
 import com.example.bread.controller.FollowRequestAdapter;
-import com.example.bread.controller.HomeMoodEventArrayAdapter;
 import com.example.bread.model.FollowRequest;
 import com.example.bread.model.MoodEvent;
 import com.example.bread.model.MoodEvent.SocialSituation;
 import com.example.bread.model.Participant;
 import com.example.bread.repository.MoodEventRepository;
 import com.example.bread.repository.ParticipantRepository;
-import com.example.bread.utils.ImageHandler;
+import com.example.bread.utils.EmotionUtils;
+import com.example.bread.utils.ImageLoader;
+import com.example.bread.view.HomePage;
 import com.example.bread.view.LoginPage;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.ListenerRegistration;
 
+import java.text.DateFormatSymbols;
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public class ProfileFragment extends Fragment {
 
     private static final String TAG = "ProfileFragment";
+    private static final int MAX_PREVIEW_REQUESTS = 3;
 
     private TextView usernameText, followersCountText, followingCountText;
     private ImageView profileImageView;
@@ -49,11 +55,16 @@ public class ProfileFragment extends Fragment {
     private View recentMoodEventView;
     private TextView emptyRequestsText;
     private TextView emptyMoodText;
+    private TextView requestsHeaderText;
+    private TextView weeklyMoodsText;
+    private TextView insightsText;
     private ImageButton settingsButton;
 
     private ParticipantRepository participantRepository;
+    private final MoodAnalyticsManager.OnAnalyticsChangedListener analyticsListener = this::showInsights;
     private MoodEventRepository moodEventRepository;
     private String currentUsername;
+    private boolean migratingProfilePicture;
     private ListenerRegistration participantListener;
 
     private FollowRequestAdapter requestAdapter;
@@ -95,15 +106,13 @@ public class ProfileFragment extends Fragment {
         recentMoodEventView = view.findViewById(R.id.recent_mood_container);
         emptyRequestsText = view.findViewById(R.id.empty_requests_text);
         emptyMoodText = view.findViewById(R.id.empty_mood_text);
+        requestsHeaderText = view.findViewById(R.id.requests_header);
+        weeklyMoodsText = view.findViewById(R.id.weekly_moods_text);
+        insightsText = view.findViewById(R.id.insights_text);
 
         // Initialize settings button from main branch
         settingsButton = view.findViewById(R.id.settings_button);
-        settingsButton.setOnClickListener(v -> {
-            FragmentManager fragmentManager = requireActivity().getSupportFragmentManager();
-            FragmentTransaction transaction = fragmentManager.beginTransaction();
-            transaction.replace(R.id.frame_layout, new SettingsFragment());
-            transaction.commit();
-        });
+        settingsButton.setOnClickListener(v -> openScreen(new SettingsFragment()));
 
         // Get current user
         FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
@@ -162,14 +171,10 @@ public class ProfileFragment extends Fragment {
             return;
         }
 
-        participantRepository.fetchFollowRequests(currentUsername, requests -> {
+        // Only show up to 3 requests in profile, so only download 3
+        participantRepository.fetchFollowRequests(currentUsername, MAX_PREVIEW_REQUESTS, requests -> {
             requestsList.clear();
-
-            // Only show up to 3 requests in profile
-            int count = Math.min(requests.size(), 3);
-            for (int i = 0; i < count; i++) {
-                requestsList.add(requests.get(i));
-            }
+            requestsList.addAll(requests);
 
             requestAdapter.notifyDataSetChanged();
             updateRequestsVisibility();
@@ -177,6 +182,122 @@ public class ProfileFragment extends Fragment {
             Log.e(TAG, "Error loading follow requests", e);
             updateRequestsVisibility();
         });
+
+        // The badge shows the total, which costs a single aggregation
+        participantRepository.countFollowRequests(currentUsername, count -> {
+            // The count arrives after a round trip, the fragment may be detached by then
+            if (!isAdded()) return;
+            if (requestsHeaderText != null) {
+                requestsHeaderText.setText(count > 0 ? getString(R.string.requests_count, count) : getString(R.string.requests));
+            }
+        }, e -> Log.e(TAG, "Error counting follow requests", e));
+    }
+
+    /**
+     * Loads the follower and following counts using count() aggregations. While the profile is open,
+     * the counts stored in the participant document keep them up to date, see {@link #updateUI}
+     */
+    private void loadFollowCounts() {
+        if (currentUsername == null) return;
+
+        participantRepository.countFollowers(currentUsername, count -> {
+            if (followersCountText != null) {
+                followersCountText.setText(String.valueOf(count));
+            }
+        }, e -> Log.e(TAG, "Error counting followers", e));
+        participantRepository.countFollowing(currentUsername, count -> {
+            if (followingCountText != null) {
+                followingCountText.setText(String.valueOf(count));
+            }
+        }, e -> Log.e(TAG, "Error counting following", e));
+    }
+
+    /**
+     * Loads how many moods of each emotional state were posted in the last 7 days,
+     * costing one aggregation per emotional state, nine in all
+     */
+    private void loadWeeklyMoodCounts() {
+        if (currentUsername == null) return;
+
+        // Start of the day 6 days ago, so the window (and the cache key) is stable for the whole day
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        calendar.add(Calendar.DAY_OF_YEAR, -6);
+
+        DocumentReference participantRef = participantRepository.getParticipantRef(currentUsername);
+        moodEventRepository.countEventsByEmotionalState(participantRef, calendar.getTime(), counts -> {
+            if (!isAdded() || weeklyMoodsText == null) return;
+
+            StringBuilder builder = new StringBuilder();
+            for (Map.Entry<MoodEvent.EmotionalState, Long> entry : counts.entrySet()) {
+                if (entry.getValue() > 0) {
+                    if (builder.length() > 0) {
+                        builder.append("  ");
+                    }
+                    builder.append(EmotionUtils.getEmoticon(entry.getKey())).append(" ").append(entry.getValue());
+                }
+            }
+            if (builder.length() == 0) {
+                weeklyMoodsText.setVisibility(View.GONE);
+            } else {
+                weeklyMoodsText.setText(getString(R.string.weekly_moods, builder));
+                weeklyMoodsText.setVisibility(View.VISIBLE);
+            }
+        }, e -> Log.e(TAG, "Error counting weekly moods", e));
+    }
+
+    /**
+     * Shows the insights maintained on the device by {@link MoodAnalyticsManager}
+     * @param analytics The current analytics of the user
+     */
+    private void showInsights(MoodAnalytics analytics) {
+        if (!isAdded() || insightsText == null) return;
+
+        MoodEvent.EmotionalState topEmotion = analytics.getMostFrequentEmotion();
+        if (topEmotion == null) {
+            insightsText.setVisibility(View.GONE);
+            return;
+        }
+
+        StringBuilder builder = new StringBuilder();
+        int topCount = analytics.getEmotionCount(topEmotion);
+        builder.append(getResources().getQuantityString(R.plurals.insight_most_felt, topCount,
+                EmotionUtils.getEmoticon(topEmotion), topCount));
+
+        int today = analytics.epochDay(new Date());
+        int streak = analytics.getCurrentStreak(today);
+        builder.append("\n").append(getResources().getQuantityString(R.plurals.insight_streak, streak,
+                streak, analytics.getLongestStreak()));
+
+        int weekday = analytics.getBusiestWeekday();
+        int hour = analytics.getBusiestHour();
+        if (weekday >= 0 && hour >= 0) {
+            // The analytics count weekdays from Monday, Calendar from Sunday
+            String[] weekdays = DateFormatSymbols.getInstance().getWeekdays();
+            String weekdayName = weekdays[weekday == 6 ? Calendar.SUNDAY : Calendar.MONDAY + weekday];
+            builder.append("\n").append(getString(R.string.insight_most_active, weekdayName, hour));
+        }
+
+        SocialSituation bestSituation = null;
+        for (SocialSituation situation : SocialSituation.values()) {
+            if (situation == SocialSituation.NONE) continue;
+            MoodEvent.EmotionalState emotion = analytics.getTopEmotion(situation);
+            if (emotion != null && (bestSituation == null
+                    || analytics.getSituationCount(situation, emotion) > analytics.getSituationCount(bestSituation, analytics.getTopEmotion(bestSituation)))) {
+                bestSituation = situation;
+            }
+        }
+        if (bestSituation != null) {
+            // Shown with the same label as in the add and edit screens
+            builder.append("\n").append(getString(R.string.insight_situation, bestSituation.toString(),
+                    EmotionUtils.getEmoticon(analytics.getTopEmotion(bestSituation))));
+        }
+
+        insightsText.setText(builder.toString());
+        insightsText.setVisibility(View.VISIBLE);
     }
 
     private void updateRequestsVisibility() {
@@ -320,35 +441,42 @@ public class ProfileFragment extends Fragment {
      * Update UI with participant data
      */
     private void updateUI(Participant participant) {
-        // Update follower and following counts
-        if (followersCountText != null) {
-            followersCountText.setText(String.valueOf(participant.getFollowerCount()));
-        }
-        if (followingCountText != null) {
-            followingCountText.setText(String.valueOf(participant.getFollowingCount()));
-        }
+        // The stored counts are refreshed by every follow change, so they keep the counts loaded
+        // with aggregations in loadFollowCounts() up to date while the profile is open
+        followersCountText.setText(String.valueOf(participant.getFollowerCount()));
+        followingCountText.setText(String.valueOf(participant.getFollowingCount()));
 
         // Set profile picture if available
-        if (participant.getProfilePicture() != null && profileImageView != null) {
-            profileImageView.setImageBitmap(ImageHandler.base64ToBitmap(participant.getProfilePicture()));
+        if (profileImageView != null) {
+            ImageLoader.getInstance(requireContext()).loadProfilePicture(participant, profileImageView, 0);
+        }
+
+        // Pictures saved before images moved to Cloud Storage are moved over the first time they are shown
+        if (participant.getProfilePictureRef() == null && participant.hasInlineProfilePicture() && !migratingProfilePicture) {
+            migratingProfilePicture = true;
+            participantRepository.migrateProfilePicture(participant, hash -> migratingProfilePicture = false, e -> {
+                migratingProfilePicture = false;
+                Log.e(TAG, "Failed to migrate profile picture", e);
+            });
         }
     }
 
     private void navigateToFollowersList(ParticipantRepository.ListType listType) {
         String type = listType == ParticipantRepository.ListType.FOLLOWERS ? "followers" : "following";
-        FollowersListFragment fragment = FollowersListFragment.newInstance(currentUsername, type);
-        FragmentTransaction transaction = getParentFragmentManager().beginTransaction();
-        transaction.replace(R.id.frame_layout, fragment);
-        transaction.addToBackStack(null);
-        transaction.commit();
+        openScreen(FollowersListFragment.newInstance(currentUsername, type));
     }
 
     private void navigateToFollowRequests() {
-        FollowRequestsFragment fragment = new FollowRequestsFragment();
-        FragmentTransaction transaction = getParentFragmentManager().beginTransaction();
-        transaction.replace(R.id.frame_layout, fragment);
-        transaction.addToBackStack(null);
-        transaction.commit();
+        openScreen(new FollowRequestsFragment());
+    }
+
+    /**
+     * Opens a screen on top of the profile tab, which is kept as it is underneath
+     */
+    private void openScreen(Fragment fragment) {
+        if (getActivity() instanceof HomePage) {
+            ((HomePage) getActivity()).openScreen(fragment);
+        }
     }
 
     private void navigateToLogin() {
@@ -367,11 +495,15 @@ public class ProfileFragment extends Fragment {
             setupParticipantListener();
         }
         loadFollowRequests();
+        loadFollowCounts();
+        loadWeeklyMoodCounts();
+        MoodAnalyticsManager.getInstance(requireContext()).addListener(analyticsListener);
     }
 
     @Override
     public void onPause() {
         super.onPause();
+        MoodAnalyticsManager.getInstance(requireContext()).removeListener(analyticsListener);
         if (participantListener != null) {
             participantListener.remove();
             participantListener = null;
@@ -14,6 +14,7 @@ import android.widget.EditText;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 import com.example.bread.R;
+import com.example.bread.analytics.MoodAnalyticsManager;
 import com.example.bread.repository.ParticipantRepository;
 import com.example.bread.view.LoginPage;
 import com.google.android.gms.tasks.OnFailureListener;
@@ -43,6 +44,9 @@ public class SettingsFragment extends Fragment {
             SharedPreferences preferences = getActivity().getSharedPreferences("sharedPrefs", Context.MODE_PRIVATE);
             preferences.edit().clear().apply();
 
+            // Stop maintaining the mood insights of the signed out user
+            MoodAnalyticsManager.getInstance(requireContext()).stop();
+
             // Sign out from Firebase
             FirebaseAuth.getInstance().signOut();
 
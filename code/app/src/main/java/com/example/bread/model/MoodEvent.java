@@ -4,15 +4,22 @@ import android.location.Location;
 
 import androidx.annotation.NonNull;
 
+import com.example.bread.utils.ImageHandler;
 import com.firebase.geofire.GeoFireUtils;
 import com.firebase.geofire.GeoLocation;
+import com.google.firebase.firestore.Blob;
 import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.ServerTimestamp;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 public class MoodEvent implements Serializable, Comparable<MoodEvent> {
@@ -81,8 +88,11 @@ public class MoodEvent implements Serializable, Comparable<MoodEvent> {
     private EmotionalState emotionalState;
     private SocialSituation socialSituation;
     private String attachedImage;
+    private byte[] attachedImageData;
+    private String attachedImageRef;
+    private String attachedImagePlaceholder;
     private String trigger;
-
+    private List<String> searchTokens;
 
     public MoodEvent() {
     }
@@ -96,6 +106,30 @@ public class MoodEvent implements Serializable, Comparable<MoodEvent> {
         this.participantRef = participantRef;
     }
 
+    /**
+     * Copies a mood event, e.g. one shared by the repository before editing it.
+     * The date, location and search tokens are copied, so changing the copy never changes the
+     * original. Image bytes are only ever replaced, never written to, so they are shared.
+     *
+     * @param other The mood event to copy
+     */
+    public MoodEvent(@NonNull MoodEvent other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.timestamp = other.timestamp != null ? new Date(other.timestamp.getTime()) : null;
+        this.reason = other.reason;
+        this.geoInfo = other.geoInfo != null ? new HashMap<>(other.geoInfo) : null;
+        this.participantRef = other.participantRef;
+        this.emotionalState = other.emotionalState;
+        this.socialSituation = other.socialSituation;
+        this.attachedImage = other.attachedImage;
+        this.attachedImageData = other.attachedImageData;
+        this.attachedImageRef = other.attachedImageRef;
+        this.attachedImagePlaceholder = other.attachedImagePlaceholder;
+        this.trigger = other.trigger;
+        this.searchTokens = other.searchTokens != null ? new ArrayList<>(other.searchTokens) : null;
+    }
+
 
     @NonNull
     @Override
@@ -112,6 +146,40 @@ public class MoodEvent implements Serializable, Comparable<MoodEvent> {
                 '}';
     }
 
+    /**
+     * Two mood events are equal when every stored field is, so a list can tell an edited event from an unchanged one.
+     * The hash only depends on the id, which never changes, so edited events stay in the same hash bucket.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MoodEvent)) {
+            return false;
+        }
+        MoodEvent other = (MoodEvent) o;
+        return Objects.equals(id, other.id)
+                && Objects.equals(title, other.title)
+                && Objects.equals(timestamp, other.timestamp)
+                && Objects.equals(reason, other.reason)
+                && Objects.equals(trigger, other.trigger)
+                && Objects.equals(geoInfo, other.geoInfo)
+                && Objects.equals(participantRef, other.participantRef)
+                && emotionalState == other.emotionalState
+                && socialSituation == other.socialSituation
+                && Objects.equals(attachedImage, other.attachedImage)
+                && Arrays.equals(attachedImageData, other.attachedImageData)
+                && Objects.equals(attachedImageRef, other.attachedImageRef)
+                && Objects.equals(attachedImagePlaceholder, other.attachedImagePlaceholder)
+                && Objects.equals(searchTokens, other.searchTokens);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
     public Date getTimestamp() {
         return timestamp;
     }
@@ -176,6 +244,63 @@ public class MoodEvent implements Serializable, Comparable<MoodEvent> {
         this.attachedImage = attachedImage;
     }
 
+    /**
+     * @return The attached image stored as binary, null if there is none or it is still stored as base64
+     */
+    public Blob getAttachedImageData() {
+        return attachedImageData != null ? Blob.fromBytes(attachedImageData) : null;
+    }
+
+    public void setAttachedImageData(Blob attachedImageData) {
+        this.attachedImageData = attachedImageData != null ? attachedImageData.toBytes() : null;
+    }
+
+    /**
+     * Reads the attached image whether it was stored as binary or, before that, as base64 text
+     *
+     * @return The encoded image, or null if none is attached
+     */
+    @Exclude
+    public byte[] getAttachedImageBytes() {
+        if (attachedImageData != null) {
+            return attachedImageData;
+        }
+        return attachedImage != null ? ImageHandler.base64ToBytes(attachedImage) : null;
+    }
+
+    /**
+     * Moves an image attached as base64 text into the binary field, so the next write stores it as a blob
+     */
+    public void migrateAttachedImage() {
+        if (attachedImage != null && attachedImageData == null) {
+            attachedImageData = ImageHandler.base64ToBytes(attachedImage);
+        }
+        attachedImage = null;
+    }
+
+    /**
+     * @return The content hash of the attached image in Cloud Storage, set once the background upload
+     * finished, see {@link com.example.bread.repository.ImageRepository}
+     */
+    public String getAttachedImageRef() {
+        return attachedImageRef;
+    }
+
+    public void setAttachedImageRef(String attachedImageRef) {
+        this.attachedImageRef = attachedImageRef;
+    }
+
+    /**
+     * @return The BlurHash of the attached image, shown in list rows while the thumbnail loads
+     */
+    public String getAttachedImagePlaceholder() {
+        return attachedImagePlaceholder;
+    }
+
+    public void setAttachedImagePlaceholder(String attachedImagePlaceholder) {
+        this.attachedImagePlaceholder = attachedImagePlaceholder;
+    }
+
     public Map<String, Object> getGeoInfo() {
         return geoInfo;
     }
@@ -191,6 +316,18 @@ public class MoodEvent implements Serializable, Comparable<MoodEvent> {
         this.trigger = trigger;
     }
 
+    /**
+     * @return The normalized, distinct words of the title, reason and trigger, written by the
+     * repository so feeds can be filtered by keyword on the server
+     */
+    public List<String> getSearchTokens() {
+        return searchTokens;
+    }
+
+    public void setSearchTokens(List<String> searchTokens) {
+        this.searchTokens = searchTokens;
+    }
+
 
     public Map<String, Object> generateGeoInfo(Location location) {
         String hash = GeoFireUtils.getGeoHashForLocation(new GeoLocation(location.getLatitude(), location.getLongitude()));
@@ -0,0 +1,52 @@
+package com.example.bread.model;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Model class representing a single change to a mood event delivered by a snapshot listener,
+ * so consumers can update their state incrementally instead of reprocessing whole lists.
+ */
+public class MoodEventChange {
+    /**
+     * Enum representing the kind of change that happened to the mood event
+     */
+    public enum Type {
+        ADDED,
+        MODIFIED,
+        REMOVED
+    }
+
+    private final Type type;
+    private final String id;
+    private final MoodEvent moodEvent;
+
+    public MoodEventChange(@NonNull Type type, @NonNull String id, @NonNull MoodEvent moodEvent) {
+        this.type = type;
+        this.id = id;
+        this.moodEvent = moodEvent;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "MoodEventChange{" +
+                "type=" + type +
+                ", id='" + id + '\'' +
+                '}';
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return The mood event after the change, or the last known state for {@link Type#REMOVED}
+     */
+    public MoodEvent getMoodEvent() {
+        return moodEvent;
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bread.model;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.Exclude;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Model class representing the mood event counts of a participant for one day (id yyyy-MM-dd)
+ * or one month (id yyyy-MM), both in UTC. The documents are maintained by the mood event repository on
+ * every write, so long-range views can read one small document per period instead of every event.
+ */
+public class MoodRollup {
+    public static final String FIELD_TOTAL = "total";
+    public static final String FIELD_EMOTIONAL_STATES = "emotionalStates";
+    public static final String FIELD_SOCIAL_SITUATIONS = "socialSituations";
+
+    private String id;
+    private long total;
+    private Map<String, Long> emotionalStates;
+    private Map<String, Long> socialSituations;
+
+    public MoodRollup() {
+        emotionalStates = new HashMap<>();
+        socialSituations = new HashMap<>();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "MoodRollup{" +
+                "id='" + id + '\'' +
+                ", total=" + total +
+                ", emotionalStates=" + emotionalStates +
+                ", socialSituations=" + socialSituations +
+                '}';
+    }
+
+    /**
+     * @return The period of the rollup, either yyyy-MM-dd or yyyy-MM
+     */
+    @Exclude
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public Map<String, Long> getEmotionalStates() {
+        return emotionalStates;
+    }
+
+    public void setEmotionalStates(Map<String, Long> emotionalStates) {
+        this.emotionalStates = emotionalStates;
+    }
+
+    public Map<String, Long> getSocialSituations() {
+        return socialSituations;
+    }
+
+    public void setSocialSituations(Map<String, Long> socialSituations) {
+        this.socialSituations = socialSituations;
+    }
+
+    @Exclude
+    public long getCount(@NonNull MoodEvent.EmotionalState state) {
+        Long count = emotionalStates != null ? emotionalStates.get(state.name()) : null;
+        return count != null ? count : 0;
+    }
+
+    @Exclude
+    public long getCount(@NonNull MoodEvent.SocialSituation situation) {
+        Long count = socialSituations != null ? socialSituations.get(situation.name()) : null;
+        return count != null ? count : 0;
+    }
+}
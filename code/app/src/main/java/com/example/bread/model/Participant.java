@@ -2,6 +2,8 @@ package com.example.bread.model;
 
 import androidx.annotation.NonNull;
 
+import com.example.bread.utils.ImageHandler;
+import com.google.firebase.firestore.Blob;
 import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.IgnoreExtraProperties;
 
@@ -16,6 +18,10 @@ public class Participant implements Serializable {
     private String firstName;
     private String lastName;
     private String profilePicture;
+    private byte[] profilePictureData;
+    private String profilePictureRef;
+    private String profilePicturePlaceholder;
+    private long profilePictureVersion;
     private int followerCount;
     private int followingCount;
 
@@ -46,6 +52,29 @@ public class Participant implements Serializable {
         this.followingCount = 0;
     }
 
+    /**
+     * Copies a participant, e.g. one shared by the repository before filling in more of its fields.
+     * The lists are copied, so changing the copy never changes the original.
+     *
+     * @param other The participant to copy
+     */
+    public Participant(@NonNull Participant other) {
+        this.username = other.username;
+        this.email = other.email;
+        this.firstName = other.firstName;
+        this.lastName = other.lastName;
+        this.profilePicture = other.profilePicture;
+        this.profilePictureData = other.profilePictureData;
+        this.profilePictureRef = other.profilePictureRef;
+        this.profilePicturePlaceholder = other.profilePicturePlaceholder;
+        this.profilePictureVersion = other.profilePictureVersion;
+        this.followerCount = other.followerCount;
+        this.followingCount = other.followingCount;
+        this.followers = other.followers != null ? new ArrayList<>(other.followers) : null;
+        this.following = other.following != null ? new ArrayList<>(other.following) : null;
+        this.followRequests = other.followRequests != null ? new ArrayList<>(other.followRequests) : null;
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -117,6 +146,81 @@ public class Participant implements Serializable {
         this.profilePicture = profilePicture;
     }
 
+    /**
+     * @return The profile picture stored inline as binary, null if it is stored elsewhere or still as base64
+     */
+    public Blob getProfilePictureData() {
+        return profilePictureData != null ? Blob.fromBytes(profilePictureData) : null;
+    }
+
+    public void setProfilePictureData(Blob profilePictureData) {
+        this.profilePictureData = profilePictureData != null ? profilePictureData.toBytes() : null;
+    }
+
+    /**
+     * Reads the inline profile picture whether it was stored as binary or, before that, as base64 text
+     *
+     * @return The encoded profile picture, or null if none is stored inline
+     */
+    @Exclude
+    public byte[] getProfilePictureBytes() {
+        if (profilePictureData != null) {
+            return profilePictureData;
+        }
+        return profilePicture != null ? ImageHandler.base64ToBytes(profilePicture) : null;
+    }
+
+    /**
+     * @return true if a profile picture is stored inside the document, as binary or base64 text
+     */
+    @Exclude
+    public boolean hasInlineProfilePicture() {
+        return profilePictureData != null || profilePicture != null;
+    }
+
+    /**
+     * Moves a profile picture kept as base64 text into the binary field, so the next write stores it as a blob
+     */
+    public void migrateProfilePictureData() {
+        if (profilePicture != null && profilePictureData == null) {
+            profilePictureData = ImageHandler.base64ToBytes(profilePicture);
+        }
+        profilePicture = null;
+    }
+
+    /**
+     * @return The content hash of the profile picture in Cloud Storage, or null if the participant has none there
+     */
+    public String getProfilePictureRef() {
+        return profilePictureRef;
+    }
+
+    public void setProfilePictureRef(String profilePictureRef) {
+        this.profilePictureRef = profilePictureRef;
+    }
+
+    /**
+     * @return The BlurHash of the profile picture in Cloud Storage, shown while the picture loads, or null if unknown
+     */
+    public String getProfilePicturePlaceholder() {
+        return profilePicturePlaceholder;
+    }
+
+    public void setProfilePicturePlaceholder(String profilePicturePlaceholder) {
+        this.profilePicturePlaceholder = profilePicturePlaceholder;
+    }
+
+    /**
+     * @return The number of times the profile picture was changed, to notice a new picture without comparing hashes
+     */
+    public long getProfilePictureVersion() {
+        return profilePictureVersion;
+    }
+
+    public void setProfilePictureVersion(long profilePictureVersion) {
+        this.profilePictureVersion = profilePictureVersion;
+    }
+
     public List<FollowRequest> getFollowRequests() {
         return followRequests;
     }
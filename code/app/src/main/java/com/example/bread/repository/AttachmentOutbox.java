@@ -0,0 +1,166 @@
+package com.example.bread.repository;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.utils.ImageHandler;
+import com.google.firebase.firestore.FirebaseFirestoreException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Uploads the images attached to mood events in the background, so saving an event never waits for the network.
+ * <p>
+ * The picked image is downscaled and written to a file named after its mood event before anything is uploaded.
+ * The file is only deleted once the image is in Cloud Storage and the event points at it, so an upload cut
+ * short by a lost connection or the app being killed is retried the next time the outbox is drained.
+ */
+public class AttachmentOutbox {
+    private static final String TAG = "AttachmentOutbox";
+    private static final String OUTBOX_DIR = "outbox";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int PENDING_QUALITY = 90;
+
+    private static AttachmentOutbox instance;
+
+    private final Context context;
+    private final File outboxDir;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    // Events whose upload is in flight, so draining while one is running does not upload it twice
+    private final Set<String> uploading = Collections.synchronizedSet(new HashSet<>());
+    private final ImageRepository imageRepository = new ImageRepository();
+    private final MoodEventRepository moodEventRepository = new MoodEventRepository();
+
+    private AttachmentOutbox(Context context) {
+        this.context = context.getApplicationContext();
+        outboxDir = new File(this.context.getFilesDir(), OUTBOX_DIR);
+    }
+
+    public static synchronized AttachmentOutbox getInstance(Context context) {
+        if (instance == null) {
+            instance = new AttachmentOutbox(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Queues the image to be attached to the mood event and starts uploading it.
+     * Must be called after the mood event was added, the image is read right away since
+     * access to a picked image may not outlive the screen that picked it.
+     *
+     * @param moodEventId The id of the mood event the image is attached to
+     * @param uri         The image to attach
+     */
+    public void enqueue(@NonNull String moodEventId, @NonNull Uri uri) {
+        executor.execute(() -> {
+            File pending = new File(outboxDir, moodEventId);
+            try {
+                Bitmap bitmap = ImageHandler.decodeSampledBitmap(context, uri, ImageHandler.MAX_DIMENSION);
+                if (bitmap == null) {
+                    Log.w(TAG, "Attached file is not an image: " + uri);
+                    return;
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                bitmap.compress(Bitmap.CompressFormat.JPEG, PENDING_QUALITY, out);
+                writeFile(pending, out.toByteArray());
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Failed to queue image for mood event: " + moodEventId, e);
+                return;
+            }
+            upload(pending);
+        });
+    }
+
+    /**
+     * Retries every upload left over from earlier runs
+     */
+    public void drain() {
+        executor.execute(() -> {
+            File[] files = outboxDir.listFiles();
+            if (files == null) {
+                return;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(TEMP_SUFFIX)) {
+                    file.delete();
+                } else {
+                    upload(file);
+                }
+            }
+        });
+    }
+
+    /**
+     * Runs on the executor
+     */
+    private void upload(File pending) {
+        String moodEventId = pending.getName();
+        if (!uploading.add(moodEventId)) {
+            return;
+        }
+        byte[] data = new byte[(int) pending.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(pending))) {
+            in.readFully(data);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to read queued image: " + pending, e);
+            uploading.remove(moodEventId);
+            return;
+        }
+        imageRepository.uploadEncodedImage(data, image -> moodEventRepository.setAttachedImageRef(moodEventId, image, unused -> {
+            Log.i(TAG, "Attached image to mood event: " + moodEventId);
+            finish(pending);
+        }, e -> {
+            if (e instanceof FirebaseFirestoreException && ((FirebaseFirestoreException) e).getCode() == FirebaseFirestoreException.Code.NOT_FOUND) {
+                Log.w(TAG, "Mood event was deleted before its image was attached: " + moodEventId);
+                finish(pending);
+            } else {
+                Log.e(TAG, "Failed to attach image to mood event: " + moodEventId, e);
+                uploading.remove(moodEventId);
+            }
+        }), e -> {
+            Log.e(TAG, "Failed to upload image for mood event: " + moodEventId, e);
+            uploading.remove(moodEventId);
+        });
+    }
+
+    private void finish(File pending) {
+        executor.execute(() -> {
+            pending.delete();
+            uploading.remove(pending.getName());
+        });
+    }
+
+    /**
+     * Writes the file through a temporary file so a crash never leaves a truncated image in the outbox
+     */
+    private void writeFile(File file, byte[] bytes) throws IOException {
+        if (!outboxDir.isDirectory() && !outboxDir.mkdirs()) {
+            throw new IOException("Cannot create " + outboxDir);
+        }
+        File temp = new File(outboxDir, file.getName() + TEMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp);
+        }
+    }
+}
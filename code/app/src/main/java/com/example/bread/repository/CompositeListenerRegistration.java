@@ -0,0 +1,37 @@
+package com.example.bread.repository;
+
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A listener registration made of several snapshot listeners that may be attached after it was
+ * handed out, for example once an earlier fetch completes. Listeners attached after
+ * {@link #remove()} was called are removed right away.
+ */
+class CompositeListenerRegistration implements ListenerRegistration {
+    private final List<ListenerRegistration> registrations = new ArrayList<>();
+    private boolean removed;
+
+    synchronized void add(ListenerRegistration registration) {
+        if (removed) {
+            registration.remove();
+        } else {
+            registrations.add(registration);
+        }
+    }
+
+    synchronized boolean isRemoved() {
+        return removed;
+    }
+
+    @Override
+    public synchronized void remove() {
+        removed = true;
+        for (ListenerRegistration registration : registrations) {
+            registration.remove();
+        }
+        registrations.clear();
+    }
+}
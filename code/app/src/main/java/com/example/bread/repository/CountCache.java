@@ -0,0 +1,98 @@
+package com.example.bread.repository;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.firestore.AggregateSource;
+import com.google.firebase.firestore.Query;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Short-lived, process-wide cache for the results of Firestore count() aggregations.
+ * <p>
+ * Repositories are created per fragment, so the cache is shared statically to let
+ * consecutive screens reuse a recent count instead of issuing another aggregation.
+ * Entries expire after {@link #TTL_MS} and are invalidated by the repositories whenever
+ * they write to the collection a count was taken over.
+ */
+class CountCache {
+    static final long TTL_MS = 30_000; // 30 seconds
+    private static final String TAG = "CountCache";
+
+    private static final Map<String, Entry> entries = new HashMap<>();
+
+    private static class Entry {
+        final long value;
+        final long storedAt;
+
+        Entry(long value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+
+    private CountCache() {
+    }
+
+    /**
+     * Counts the documents matched by the query with a single server-side count() aggregation,
+     * answering from the cache when a fresh enough result exists
+     *
+     * @param key               The cache key, usually the path of the counted collection plus any filter
+     * @param query             The query whose matching documents are counted
+     * @param onSuccessListener The listener to be called with the count
+     * @param onFailureListener The listener to be called when the aggregation fails
+     */
+    static void count(@NonNull String key, @NonNull Query query, @NonNull OnSuccessListener<Long> onSuccessListener, OnFailureListener onFailureListener) {
+        Long cached = get(key);
+        if (cached != null) {
+            onSuccessListener.onSuccess(cached);
+            return;
+        }
+        query.count().get(AggregateSource.SERVER)
+                .addOnSuccessListener(snapshot -> {
+                    long count = snapshot.getCount();
+                    put(key, count);
+                    onSuccessListener.onSuccess(count);
+                })
+                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to count documents for: " + key, e));
+    }
+
+    /**
+     * Returns the cached count for the given key, or null if missing or expired
+     */
+    static synchronized Long get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() - entry.storedAt > TTL_MS) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    static synchronized void put(String key, long value) {
+        entries.put(key, new Entry(value, SystemClock.elapsedRealtime()));
+    }
+
+    /**
+     * Drops every cached count whose key starts with the given prefix
+     */
+    static synchronized void invalidatePrefix(String prefix) {
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().startsWith(prefix)) {
+                iterator.remove();
+            }
+        }
+    }
+}
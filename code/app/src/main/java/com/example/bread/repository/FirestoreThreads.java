@@ -0,0 +1,65 @@
+package com.example.bread.repository;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The threads the repositories handle Firestore results on.
+ * <p>
+ * Snapshot listeners and reads are registered with {@link #PARSE}, so turning documents into models,
+ * merging, sorting and filtering them does not take time from the main thread. Only the finished,
+ * unmodifiable results are posted to the main thread, where the callers' listeners are called as before.
+ */
+final class FirestoreThreads {
+    // One thread, so the snapshots of a listener are parsed and delivered in the order they arrive
+    static final ExecutorService PARSE = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    private FirestoreThreads() {
+    }
+
+    /**
+     * Calls the listener with the result on the main thread
+     */
+    static <T> void deliver(@NonNull OnSuccessListener<T> listener, T result) {
+        MAIN.post(() -> listener.onSuccess(result));
+    }
+
+    /**
+     * Calls the listener with the failure on the main thread
+     */
+    static void deliverFailure(@NonNull OnFailureListener listener, @NonNull Exception e) {
+        MAIN.post(() -> listener.onFailure(e));
+    }
+
+    /**
+     * Calls the listener with the result on the main thread, unless the registration was removed by then.
+     * A snapshot parsed while its listener was being removed is dropped, as Firestore drops it on the main thread.
+     */
+    static <T> void deliver(@NonNull CompositeListenerRegistration registration, @NonNull OnSuccessListener<T> listener, T result) {
+        MAIN.post(() -> {
+            if (!registration.isRemoved()) {
+                listener.onSuccess(result);
+            }
+        });
+    }
+
+    /**
+     * Calls the listener with the failure on the main thread, unless the registration was removed by then
+     */
+    static void deliverFailure(@NonNull CompositeListenerRegistration registration, @NonNull OnFailureListener listener, @NonNull Exception e) {
+        MAIN.post(() -> {
+            if (!registration.isRemoved()) {
+                listener.onFailure(e);
+            }
+        });
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bread.repository;
+
+import androidx.annotation.NonNull;
+
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hands out one shared model instance per unchanged document.
+ * <p>
+ * Instances are keyed by document path, with the snapshot they were mapped from as their version.
+ * The Android client does not expose the update time of a document, but two snapshots of it are
+ * only equal if they hold the same version, data and metadata, so a snapshot equal to the one
+ * kept gets the instance mapped before without being mapped again. Every listener and fetch
+ * reading an unchanged document therefore gets the same instance, which also lets adapters tell
+ * unchanged rows apart by identity. The least recently read documents are evicted once the map
+ * holds its capacity.
+ * <p>
+ * The instances are shared, so they must not be modified; copy one before editing it.
+ * The map is only used on {@link FirestoreThreads#PARSE}.
+ *
+ * @param <T> The model documents are mapped to
+ */
+final class IdentityMap<T> {
+
+    /**
+     * Maps a document to its model
+     */
+    interface Mapper<T> {
+        /**
+         * @return The model, or null if the document does not exist
+         */
+        T map(@NonNull DocumentSnapshot doc);
+    }
+
+    private static final class Entry<T> {
+        final DocumentSnapshot snapshot;
+        final T value;
+
+        Entry(DocumentSnapshot snapshot, T value) {
+            this.snapshot = snapshot;
+            this.value = value;
+        }
+    }
+
+    private final Mapper<T> mapper;
+    private final Map<String, Entry<T>> entries;
+
+    /**
+     * @param capacity How many documents to keep instances of
+     * @param mapper   Maps the documents that are not kept or changed
+     */
+    IdentityMap(int capacity, @NonNull Mapper<T> mapper) {
+        this.mapper = mapper;
+        // Access order, so the eldest entry is the least recently read
+        entries = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param doc The document to read
+     * @return The instance kept for the document if it did not change, otherwise the newly mapped one
+     */
+    T get(@NonNull DocumentSnapshot doc) {
+        String path = doc.getReference().getPath();
+        Entry<T> entry = entries.get(path);
+        if (entry != null && entry.snapshot.equals(doc)) {
+            return entry.value;
+        }
+        T value = mapper.map(doc);
+        if (value != null) {
+            entries.put(path, new Entry<>(doc, value));
+        } else {
+            entries.remove(path);
+        }
+        return value;
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.bread.repository;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.firebase.FirebaseService;
+import com.example.bread.utils.ImageHandler;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.storage.StorageException;
+import com.google.firebase.storage.StorageMetadata;
+import com.google.firebase.storage.StorageReference;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Repository class for handling images in Cloud Storage.
+ * <p>
+ * Images are content addressed: every image is stored under the hash of its encoded full size
+ * version, next to a small and a medium thumbnail generated when it is uploaded. Documents only
+ * keep the hash, and since the objects behind a hash never change they can be cached forever and
+ * uploading an image that is already stored costs a single metadata read. Uploads also return a
+ * BlurHash of the image, for documents to keep next to the hash so lists can show a preview right away.
+ */
+public class ImageRepository {
+    private static final String TAG = "ImageRepository";
+    private static final String IMAGES_PATH = "images";
+    private static final String CONTENT_TYPE = "image/webp";
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private static final ExecutorService encodeExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * An image once it is stored
+     */
+    public static class StoredImage {
+        private final String hash;
+        private final String placeholder;
+
+        StoredImage(String hash, String placeholder) {
+            this.hash = hash;
+            this.placeholder = placeholder;
+        }
+
+        /**
+         * @return The content hash the image is stored under
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * @return The BlurHash of the image, see {@link ImageHandler#blurHash}
+         */
+        public String getPlaceholder() {
+            return placeholder;
+        }
+    }
+
+    /**
+     * The versions every image is stored in
+     */
+    public enum ImageSize {
+        SMALL(96, 8 * 1024),
+        MEDIUM(320, 32 * 1024),
+        FULL(ImageHandler.MAX_DIMENSION, 256 * 1024);
+
+        private final int maxDimension;
+        private final int maxBytes;
+
+        ImageSize(int maxDimension, int maxBytes) {
+            this.maxDimension = maxDimension;
+            this.maxBytes = maxBytes;
+        }
+
+        /**
+         * @return The longest side of this version in pixels
+         */
+        public int getMaxDimension() {
+            return maxDimension;
+        }
+
+        /**
+         * @return The largest this version may be once encoded
+         */
+        public int getMaxBytes() {
+            return maxBytes;
+        }
+
+        /**
+         * @param size The longest side an image is shown at, in pixels
+         * @return The smallest version at least that large, or the full version
+         */
+        @NonNull
+        public static ImageSize forDisplaySize(int size) {
+            for (ImageSize imageSize : values()) {
+                if (imageSize.maxDimension >= size) {
+                    return imageSize;
+                }
+            }
+            return FULL;
+        }
+    }
+
+    private final FirebaseService firebaseService;
+
+    public ImageRepository() {
+        firebaseService = new FirebaseService();
+    }
+
+    /**
+     * @param hash The content hash of the image
+     * @param size The version of the image
+     * @return The Cloud Storage reference of that version of the image
+     */
+    public StorageReference getImageRef(@NonNull String hash, @NonNull ImageSize size) {
+        return firebaseService.getStorage().getReference()
+                .child(IMAGES_PATH)
+                .child(hash)
+                .child(size.name().toLowerCase(Locale.ROOT) + ".webp");
+    }
+
+    /**
+     * Encodes the image in every size on a background thread and uploads the versions that are not stored yet
+     *
+     * @param bitmap            The image to upload
+     * @param onSuccessListener The listener to be called with the content hash and preview of the image once it is stored
+     * @param onFailureListener The listener to be called when the image cannot be uploaded
+     */
+    public void uploadImage(@NonNull Bitmap bitmap, @NonNull OnSuccessListener<StoredImage> onSuccessListener, OnFailureListener onFailureListener) {
+        upload(() -> bitmap, onSuccessListener, onFailureListener);
+    }
+
+    /**
+     * Same as {@link #uploadImage(Bitmap, OnSuccessListener, OnFailureListener)} for an already encoded image,
+     * used to move images that were kept inside documents into Cloud Storage
+     *
+     * @param data              The encoded image
+     * @param onSuccessListener The listener to be called with the content hash and preview of the image once it is stored
+     * @param onFailureListener The listener to be called when the image cannot be uploaded
+     */
+    public void uploadEncodedImage(@NonNull byte[] data, @NonNull OnSuccessListener<StoredImage> onSuccessListener, OnFailureListener onFailureListener) {
+        upload(() -> ImageHandler.bytesToBitmap(data), onSuccessListener, onFailureListener);
+    }
+
+    private void upload(Callable<Bitmap> source, OnSuccessListener<StoredImage> onSuccessListener, OnFailureListener onFailureListener) {
+        Tasks.call(encodeExecutor, () -> encode(source.call()))
+                .onSuccessTask(this::uploadIfMissing)
+                .addOnSuccessListener(onSuccessListener)
+                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to upload image", e));
+    }
+
+    /**
+     * Fetches one version of an image
+     *
+     * @param hash              The content hash of the image
+     * @param size              The version to fetch
+     * @param onSuccessListener The listener to be called with the encoded image
+     * @param onFailureListener The listener to be called when the image cannot be fetched
+     */
+    public void fetchImage(@NonNull String hash, @NonNull ImageSize size, @NonNull OnSuccessListener<byte[]> onSuccessListener, OnFailureListener onFailureListener) {
+        getImageRef(hash, size).getBytes(size.getMaxBytes() * 2L)
+                .addOnSuccessListener(onSuccessListener)
+                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to fetch image: " + hash, e));
+    }
+
+    private static EncodedImage encode(Bitmap bitmap) {
+        if (bitmap == null) {
+            throw new IllegalArgumentException("Image could not be decoded");
+        }
+        Map<ImageSize, byte[]> versions = new EnumMap<>(ImageSize.class);
+        for (ImageSize size : ImageSize.values()) {
+            Bitmap scaled = ImageHandler.scaleToFit(bitmap, size.getMaxDimension());
+            versions.put(size, ImageHandler.compressBitmap(scaled, ImageHandler.webpFormat(), size.getMaxBytes()));
+        }
+        return new EncodedImage(ImageHandler.contentHash(versions.get(ImageSize.FULL)), ImageHandler.blurHash(bitmap), versions);
+    }
+
+    /**
+     * The full size version is uploaded last, so if it exists the thumbnails do too
+     */
+    private Task<StoredImage> uploadIfMissing(EncodedImage image) {
+        StoredImage stored = new StoredImage(image.hash, image.placeholder);
+        return getImageRef(image.hash, ImageSize.FULL).getMetadata().continueWithTask(metadataTask -> {
+            if (metadataTask.isSuccessful()) {
+                return Tasks.forResult(stored);
+            }
+            Exception e = metadataTask.getException();
+            if (!(e instanceof StorageException) || ((StorageException) e).getErrorCode() != StorageException.ERROR_OBJECT_NOT_FOUND) {
+                return Tasks.forException(e);
+            }
+
+            StorageMetadata metadata = new StorageMetadata.Builder()
+                    .setContentType(CONTENT_TYPE)
+                    .setCacheControl(CACHE_CONTROL)
+                    .build();
+            List<Task<?>> thumbnails = new ArrayList<>();
+            thumbnails.add(getImageRef(image.hash, ImageSize.SMALL).putBytes(image.versions.get(ImageSize.SMALL), metadata));
+            thumbnails.add(getImageRef(image.hash, ImageSize.MEDIUM).putBytes(image.versions.get(ImageSize.MEDIUM), metadata));
+            return Tasks.whenAll(thumbnails)
+                    .onSuccessTask(unused -> getImageRef(image.hash, ImageSize.FULL).putBytes(image.versions.get(ImageSize.FULL), metadata))
+                    .onSuccessTask(snapshot -> Tasks.forResult(stored));
+        });
+    }
+
+    private static class EncodedImage {
+        final String hash;
+        final String placeholder;
+        final Map<ImageSize, byte[]> versions;
+
+        EncodedImage(String hash, String placeholder, Map<ImageSize, byte[]> versions) {
+            this.hash = hash;
+            this.placeholder = placeholder;
+            this.versions = versions;
+        }
+    }
+}
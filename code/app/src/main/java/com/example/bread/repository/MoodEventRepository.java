@@ -4,26 +4,69 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import com.example.bread.filter.MoodFilter;
 import com.example.bread.firebase.FirebaseService;
+import com.example.bread.firebase.MoodEventMapper;
 import com.example.bread.model.MoodEvent;
+import com.example.bread.model.MoodEventChange;
+import com.example.bread.model.MoodRollup;
+import com.example.bread.search.Tokenizer;
+import com.example.bread.utils.ImageHandler;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.Blob;
 import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
 import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * Repository class for handling mood events in the database
+ * <p>
+ * Snapshots are parsed on {@link FirestoreThreads#PARSE}, listeners are still called on the main thread.
+ * Listeners and fetches read events through an {@link IdentityMap} shared by all repositories, so an
+ * unchanged event is mapped once and handed out as the same instance. Those instances must not be modified.
  */
 public class MoodEventRepository {
     private final FirebaseService firebaseService;
     private static final String TAG = "MoodEventRepository";
     private static final int MAX_EVENTS_PER_USER = 20; // Limit number of events fetched per user
+    private static final int MAX_FILTERED_EVENTS_PER_USER = 50; // Limit number of filtered events fetched per user
+    private static final int MAX_BATCH_WRITES = 500; // Firestore limit of writes per batch
+    private static final int MAX_QUERY_DISJUNCTIONS = 30; // Firestore limit of whereIn values per query
+    private static final int MAX_FEED_EVENTS = 50; // Limit total events returned for a feed
+    private static final int MAX_NARROWED_EVENTS = 200; // Limit events fetched per query when a multi word keyword is narrowed on the device
+    private static final int MAX_SHARED_EVENTS = 2000; // Limit events kept by the identity maps
+
+    // Pending server timestamps read as null, and as their local estimate
+    private static final IdentityMap<MoodEvent> MOOD_EVENTS = new IdentityMap<>(MAX_SHARED_EVENTS,
+            doc -> withDocumentId(MoodEventMapper.fromSnapshot(doc), doc));
+    private static final IdentityMap<MoodEvent> ESTIMATED_MOOD_EVENTS = new IdentityMap<>(MAX_SHARED_EVENTS,
+            doc -> withDocumentId(MoodEventMapper.fromSnapshot(doc, DocumentSnapshot.ServerTimestampBehavior.ESTIMATE), doc));
 
     public MoodEventRepository() {
         firebaseService = new FirebaseService();
@@ -33,6 +76,14 @@ public class MoodEventRepository {
         return firebaseService.getDb().collection("moodEvents");
     }
 
+    private static MoodEvent withDocumentId(MoodEvent moodEvent, DocumentSnapshot doc) {
+        if (moodEvent != null) {
+            // Explicitly set the ID from the document
+            moodEvent.setId(doc.getId());
+        }
+        return moodEvent;
+    }
+
     /**
      * Fetches all mood events from the database with the given participant reference
      * @param participantRef The reference to the participant whose mood events are to be fetched
@@ -45,14 +96,17 @@ public class MoodEventRepository {
                 .orderBy("timestamp", Query.Direction.DESCENDING)
                 .limit(MAX_EVENTS_PER_USER) // Limit query to improve performance
                 .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
+                .addOnSuccessListener(FirestoreThreads.PARSE, queryDocumentSnapshots -> {
                     if (queryDocumentSnapshots.isEmpty()) {
                         Log.e("MoodEventRepository", "No mood events found with participantRef: " + participantRef);
-                        onSuccessListener.onSuccess(new ArrayList<>()); // Return empty list instead of null
+                        FirestoreThreads.deliver(onSuccessListener, Collections.emptyList()); // Return empty list instead of null
                         return;
                     }
-                    List<MoodEvent> moodEvents = queryDocumentSnapshots.toObjects(MoodEvent.class);
-                    onSuccessListener.onSuccess(moodEvents);
+                    List<MoodEvent> moodEvents = new ArrayList<>();
+                    for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
+                        moodEvents.add(MOOD_EVENTS.get(doc));
+                    }
+                    FirestoreThreads.deliver(onSuccessListener, Collections.unmodifiableList(moodEvents));
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to fetch mood events with participantRef: " + participantRef, e));
     }
@@ -62,96 +116,647 @@ public class MoodEventRepository {
      * @param participantRef The reference to the participant whose mood events are to be fetched
      * @param onSuccessListener The listener to be called when the mood events are successfully fetched
      * @param onFailureListener The listener to be called when the mood events cannot be fetched
+     * @return A ListenerRegistration that can be used to remove the listener when not needed
      */
-    public void listenForEventsWithParticipantRef(@NonNull DocumentReference participantRef, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
-        getMoodEventCollRef()
-                .whereEqualTo("participantRef", participantRef)
+    public ListenerRegistration listenForEventsWithParticipantRef(@NonNull DocumentReference participantRef, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
+        return listenForEventsWithParticipantRef(participantRef, MoodFilter.all(), onSuccessListener, onFailureListener);
+    }
+
+    /**
+     * Listens for the most recent mood events of the given participant that match the filter.
+     * The filter is evaluated by Firestore, see {@link #applyFilter(Query, MoodFilter)}.
+     * @param participantRef The reference to the participant whose mood events are to be fetched
+     * @param filter The criteria the mood events must match
+     * @param onSuccessListener The listener to be called when the mood events are successfully fetched
+     * @param onFailureListener The listener to be called when the mood events cannot be fetched
+     * @return A ListenerRegistration that can be used to remove the listener when not needed
+     */
+    public ListenerRegistration listenForEventsWithParticipantRef(@NonNull DocumentReference participantRef, @NonNull MoodFilter filter, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
+        CompositeListenerRegistration registration = new CompositeListenerRegistration();
+        List<String> tokens = keywordTokens(filter);
+        registration.add(applyFilter(getMoodEventCollRef().whereEqualTo("participantRef", participantRef), filter)
                 .orderBy("timestamp", Query.Direction.DESCENDING) // Order by timestamp to get newest first
-                .limit(MAX_EVENTS_PER_USER) // Limit query to improve performance
-                .addSnapshotListener((value, error) -> {
+                .limit(filter.isEmpty() ? MAX_EVENTS_PER_USER : tokens.size() > 1 ? MAX_NARROWED_EVENTS : MAX_FILTERED_EVENTS_PER_USER) // Limit query to improve performance
+                .addSnapshotListener(FirestoreThreads.PARSE, (value, error) -> {
                     if (error != null) {
-                        onFailureListener.onFailure(error);
+                        FirestoreThreads.deliverFailure(registration, onFailureListener, error);
                         return;
                     }
                     if (value != null) {
                         List<MoodEvent> moodEvents = new ArrayList<>();
                         for (DocumentSnapshot doc : value.getDocuments()) {
-                            MoodEvent moodEvent = doc.toObject(MoodEvent.class);
-                            if (moodEvent != null) {
-                                // Explicitly set the ID from the document
-                                moodEvent.setId(doc.getId());
+                            MoodEvent moodEvent = MOOD_EVENTS.get(doc);
+                            if (moodEvent != null && mentionsAll(moodEvent, tokens)) {
                                 moodEvents.add(moodEvent);
                             }
                         }
-                        onSuccessListener.onSuccess(moodEvents);
+                        FirestoreThreads.deliver(registration, onSuccessListener, Collections.unmodifiableList(moodEvents));
                     } else {
-                        onSuccessListener.onSuccess(new ArrayList<>()); // Return empty list instead of null
+                        FirestoreThreads.deliver(registration, onSuccessListener, Collections.emptyList()); // Return empty list instead of null
                     }
-                });
+                }));
+        return registration;
+    }
+
+    /**
+     * Listens for changes to every mood event of the given participant. Instead of the full list,
+     * each snapshot is delivered as the document changes it contains, so the first callback holds
+     * every event as {@link MoodEventChange.Type#ADDED} and later callbacks only hold the deltas.
+     * Pending server timestamps are reported with their local estimate.
+     * @param participantRef The reference to the participant whose mood events are to be listened to
+     * @param onChangesListener The listener to be called with the changes of each snapshot
+     * @param onSyncedListener The listener to be called once, after the first snapshot confirmed by the server
+     *                         has been delivered, i.e. once the changes seen so far cover the complete result
+     * @param onFailureListener The listener to be called when the mood events cannot be listened to
+     * @return A ListenerRegistration that can be used to remove the listener when not needed
+     */
+    public ListenerRegistration listenForEventChangesWithParticipantRef(@NonNull DocumentReference participantRef, @NonNull OnSuccessListener<List<MoodEventChange>> onChangesListener, OnSuccessListener<Void> onSyncedListener, @NonNull OnFailureListener onFailureListener) {
+        return listenForEventChangesWithParticipantRef(participantRef, null, onChangesListener, onSyncedListener, onFailureListener);
+    }
+
+    /**
+     * Like {@link #listenForEventChangesWithParticipantRef(DocumentReference, OnSuccessListener, OnSuccessListener, OnFailureListener)},
+     * but only for the mood events with a timestamp at or after the given time, so resuming from a
+     * known state only reads the recent events instead of the whole history
+     * @param participantRef The reference to the participant whose mood events are to be listened to
+     * @param since The earliest timestamp to listen to, or null for every mood event
+     * @param onChangesListener The listener to be called with the changes of each snapshot
+     * @param onSyncedListener The listener to be called once, after the first snapshot confirmed by the server
+     *                         has been delivered, i.e. once the changes seen so far cover the complete result
+     * @param onFailureListener The listener to be called when the mood events cannot be listened to
+     * @return A ListenerRegistration that can be used to remove the listener when not needed
+     */
+    public ListenerRegistration listenForEventChangesWithParticipantRef(@NonNull DocumentReference participantRef, Date since, @NonNull OnSuccessListener<List<MoodEventChange>> onChangesListener, OnSuccessListener<Void> onSyncedListener, @NonNull OnFailureListener onFailureListener) {
+        CompositeListenerRegistration registration = new CompositeListenerRegistration();
+        AtomicBoolean synced = new AtomicBoolean(false);
+        Query query = getMoodEventCollRef().whereEqualTo("participantRef", participantRef);
+        if (since != null) {
+            query = query.whereGreaterThanOrEqualTo("timestamp", since)
+                    .orderBy("timestamp", Query.Direction.DESCENDING);
+        }
+        registration.add(query
+                .addSnapshotListener(FirestoreThreads.PARSE, MetadataChanges.INCLUDE, (value, error) -> {
+                    if (error != null) {
+                        FirestoreThreads.deliverFailure(registration, onFailureListener, error);
+                        return;
+                    }
+                    if (value == null) {
+                        return;
+                    }
+                    List<MoodEventChange> changes = new ArrayList<>();
+                    for (DocumentChange change : value.getDocumentChanges()) {
+                        DocumentSnapshot doc = change.getDocument();
+                        MoodEvent moodEvent = ESTIMATED_MOOD_EVENTS.get(doc);
+                        if (moodEvent == null) {
+                            continue;
+                        }
+                        MoodEventChange.Type type;
+                        switch (change.getType()) {
+                            case ADDED:
+                                type = MoodEventChange.Type.ADDED;
+                                break;
+                            case MODIFIED:
+                                type = MoodEventChange.Type.MODIFIED;
+                                break;
+                            default:
+                                type = MoodEventChange.Type.REMOVED;
+                                break;
+                        }
+                        changes.add(new MoodEventChange(type, doc.getId(), moodEvent));
+                    }
+                    if (!changes.isEmpty()) {
+                        FirestoreThreads.deliver(registration, onChangesListener, Collections.unmodifiableList(changes));
+                    }
+                    // Posted after the changes, so the synced listener still runs after them
+                    if (!value.getMetadata().isFromCache() && synced.compareAndSet(false, true) && onSyncedListener != null) {
+                        FirestoreThreads.deliver(registration, onSyncedListener, null);
+                    }
+                }));
+        return registration;
     }
 
     /**
      * Listens for all mood events that are created by the participants that the given participant is following
-     * Optimized version that batches queries and limits results
      * @param username The username of the participant whose following's mood events are to be fetched
      * @param onSuccessListener The listener to be called when the mood events are successfully fetched
      * @param onFailureListener The listener to be called when the mood events cannot be fetched
+     * @return A ListenerRegistration that can be used to remove the listener when not needed
+     */
+    public ListenerRegistration listenForEventsFromFollowing(@NonNull String username, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
+        return listenForEventsFromFollowing(username, MoodFilter.all(), onSuccessListener, onFailureListener);
+    }
+
+    /**
+     * Listens for the most recent mood events created by the participants that the given participant is following
+     * and that match the filter. The filter is evaluated by Firestore, see {@link #applyFilter(Query, MoodFilter)}.
+     * <p>
+     * Firestore allows at most {@value #MAX_QUERY_DISJUNCTIONS} whereIn values per query, so the followed
+     * participants are split into chunks of that many, one listener per chunk. The chunk results are
+     * merged and the {@value #MAX_FEED_EVENTS} newest events delivered whenever any chunk changes.
+     * A keyword of several words is queried by one word and narrowed to events mentioning all of them
+     * on the device, so each chunk fetches up to {@value #MAX_NARROWED_EVENTS} events in that case.
+     * Events without search tokens are only found by keyword once backfilled, see {@link #applyFilter(Query, MoodFilter)}.
+     * The chunks are parsed and merged on {@link FirestoreThreads#PARSE}, only the merged events are
+     * posted to the main thread.
+     * @param username The username of the participant whose following's mood events are to be fetched
+     * @param filter The criteria the mood events must match
+     * @param onSuccessListener The listener to be called when the mood events are successfully fetched
+     * @param onFailureListener The listener to be called when the mood events cannot be fetched
+     * @return A ListenerRegistration that can be used to remove the listeners when not needed
      */
-    public void listenForEventsFromFollowing(@NonNull String username, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
+    public ListenerRegistration listenForEventsFromFollowing(@NonNull String username, @NonNull MoodFilter filter, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
+        CompositeListenerRegistration registration = new CompositeListenerRegistration();
+        List<String> tokens = keywordTokens(filter);
         ParticipantRepository participantRepository = new ParticipantRepository();
+        // Events matching the queried word but not the others are dropped on the device, so fetch more of them
+        int limit = tokens.size() > 1 ? MAX_NARROWED_EVENTS : MAX_FEED_EVENTS;
 
         participantRepository.fetchFollowing(username, following -> {
+            if (registration.isRemoved()) {
+                return;
+            }
             if (following == null || following.isEmpty()) {
                 // If not following anyone, return empty list
-                onSuccessListener.onSuccess(new ArrayList<>());
+                onSuccessListener.onSuccess(Collections.emptyList());
                 return;
             }
 
-            // Create a list to hold all participant references
             List<DocumentReference> participantRefs = new ArrayList<>();
             for (String followingUsername : following) {
                 participantRefs.add(participantRepository.getParticipantRef(followingUsername));
             }
 
-            // If following list is large, limit it to prevent performance issues
-            final int MAX_FOLLOWING = 50; // Max number of users to query
-            if (participantRefs.size() > MAX_FOLLOWING) {
-                participantRefs = participantRefs.subList(0, MAX_FOLLOWING);
+            int chunkSize = MAX_QUERY_DISJUNCTIONS;
+            int chunkCount = (participantRefs.size() + chunkSize - 1) / chunkSize;
+            List<List<MoodEvent>> chunkResults = new ArrayList<>(Collections.nCopies(chunkCount, null));
+
+            for (int i = 0; i < chunkCount; i++) {
+                int chunkIndex = i;
+                List<DocumentReference> chunk = participantRefs.subList(i * chunkSize, Math.min(participantRefs.size(), (i + 1) * chunkSize));
+                Query query = applyFilter(getMoodEventCollRef().whereIn("participantRef", chunk), filter)
+                        .orderBy("timestamp", Query.Direction.DESCENDING)
+                        .limit(limit);
+
+                // Chunk results are only touched on the parse thread
+                registration.add(query.addSnapshotListener(FirestoreThreads.PARSE, (value, error) -> {
+                    if (error != null) {
+                        FirestoreThreads.deliverFailure(registration, onFailureListener, error);
+                        return;
+                    }
+
+                    List<MoodEvent> chunkEvents = new ArrayList<>();
+                    if (value != null) {
+                        for (DocumentSnapshot doc : value.getDocuments()) {
+                            MoodEvent moodEvent = MOOD_EVENTS.get(doc);
+                            if (moodEvent == null) {
+                                continue;
+                            }
+                            if (!mentionsAll(moodEvent, tokens)) {
+                                continue;
+                            }
+                            chunkEvents.add(moodEvent);
+                        }
+                    }
+                    chunkResults.set(chunkIndex, chunkEvents);
+
+                    // Wait until every chunk has reported once, so the feed does not fill in piece by piece
+                    if (chunkResults.contains(null)) {
+                        return;
+                    }
+                    List<MoodEvent> allMoodEvents = new ArrayList<>();
+                    for (List<MoodEvent> events : chunkResults) {
+                        allMoodEvents.addAll(events);
+                    }
+                    if (chunkCount > 1) {
+                        allMoodEvents.sort(Collections.reverseOrder());
+                    }
+                    if (allMoodEvents.size() > MAX_FEED_EVENTS) {
+                        allMoodEvents = new ArrayList<>(allMoodEvents.subList(0, MAX_FEED_EVENTS));
+                    }
+                    FirestoreThreads.deliver(registration, onSuccessListener, Collections.unmodifiableList(allMoodEvents));
+                }));
+            }
+        }, onFailureListener);
+        return registration;
+    }
+
+    /**
+     * Adds the criteria of a filter to a query, so only matching mood events are sent to the device.
+     * Emotional state and social situation become equality filters, the time range becomes range
+     * filters on the timestamp, and the keyword becomes an array-contains of one of its words on the
+     * search tokens, see {@link #queriedToken(List)}. Events have to mention the other words as well,
+     * which callers check on the device with {@link #mentionsAll(MoodEvent, List)}.
+     * <p>
+     * The search tokens hold every prefix of the words of an event, so a keyword word matches the
+     * events with a word starting with it. Events written before search tokens existed, or with
+     * whole-word tokens, are only found by keyword once {@link #backfillSearchTokens} rewrote them.
+     * Every combination used is declared in firestore.indexes.json.
+     * @param query The query to add the criteria to
+     * @param filter The criteria the mood events must match
+     * @return The query with the criteria added
+     */
+    private Query applyFilter(@NonNull Query query, @NonNull MoodFilter filter) {
+        if (filter.getEmotionalState() != null) {
+            query = query.whereEqualTo("emotionalState", filter.getEmotionalState().name());
+        }
+        if (filter.getSocialSituation() != null) {
+            query = query.whereEqualTo("socialSituation", filter.getSocialSituation().name());
+        }
+        if (filter.getSince() != null) {
+            query = query.whereGreaterThanOrEqualTo("timestamp", filter.getSince());
+        }
+        if (filter.getUntil() != null) {
+            query = query.whereLessThan("timestamp", filter.getUntil());
+        }
+        List<String> tokens = keywordTokens(filter);
+        if (!tokens.isEmpty()) {
+            query = query.whereArrayContains("searchTokens", queriedToken(tokens));
+        }
+        return query;
+    }
+
+    private static List<String> keywordTokens(@NonNull MoodFilter filter) {
+        return Tokenizer.tokenize(filter.getKeyword());
+    }
+
+    /**
+     * Picks the word of a keyword the server filters by. Querying one word rather than any of them
+     * keeps the results a superset of the events mentioning all words, ordered and limited like the
+     * final results. Word frequencies are not known, so the longest word stands in for the rarest.
+     */
+    private static String queriedToken(@NonNull List<String> tokens) {
+        String queried = tokens.get(0);
+        for (String token : tokens) {
+            if (token.length() > queried.length()) {
+                queried = token;
             }
+        }
+        return Tokenizer.queryToken(queried);
+    }
 
-            // Use whereIn to batch query just the followed users' events (not including user's own moods)
-            final int LIMIT_TOTAL_EVENTS = 50; // Limit total events returned
+    /**
+     * The query only matches one of the words, this keeps the events mentioning all of them
+     */
+    private static boolean mentionsAll(@NonNull MoodEvent moodEvent, @NonNull List<String> tokens) {
+        return Tokenizer.matchesAll(moodEvent, tokens);
+    }
+
+    /**
+     * Counts the mood events created by the given participant since the given date with a single
+     * count() aggregation. Results are cached for a short time.
+     * @param participantRef The reference to the participant whose mood events are to be counted
+     * @param since The earliest timestamp to include
+     * @param onSuccessListener The listener to be called with the number of mood events
+     * @param onFailureListener The listener to be called when the mood events cannot be counted
+     */
+    public void countEventsWithParticipantRef(@NonNull DocumentReference participantRef, @NonNull Date since, @NonNull OnSuccessListener<Long> onSuccessListener, OnFailureListener onFailureListener) {
+        Query query = getMoodEventCollRef()
+                .whereEqualTo("participantRef", participantRef)
+                .whereGreaterThanOrEqualTo("timestamp", since);
+        CountCache.count(countKey(participantRef) + "&since=" + since.getTime(), query, onSuccessListener, onFailureListener);
+    }
+
+    /**
+     * Counts the mood events created by the given participant since the given date for every
+     * emotional state. Runs one count() aggregation per emotional state other than NONE, so nine
+     * aggregations rather than one, each billed like a single read instead of one read per mood
+     * event. Results are cached for a short time.
+     * @param participantRef The reference to the participant whose mood events are to be counted
+     * @param since The earliest timestamp to include, pass a stable value (e.g. start of a day) to benefit from caching
+     * @param onSuccessListener The listener to be called with the count for each emotional state
+     * @param onFailureListener The listener to be called when the mood events cannot be counted
+     */
+    public void countEventsByEmotionalState(@NonNull DocumentReference participantRef, @NonNull Date since, @NonNull OnSuccessListener<Map<MoodEvent.EmotionalState, Long>> onSuccessListener, OnFailureListener onFailureListener) {
+        List<MoodEvent.EmotionalState> states = new ArrayList<>();
+        for (MoodEvent.EmotionalState state : MoodEvent.EmotionalState.values()) {
+            if (state != MoodEvent.EmotionalState.NONE) {
+                states.add(state);
+            }
+        }
 
-            // Create query - using whereIn allows us to fetch events from multiple users at once
+        Map<MoodEvent.EmotionalState, Long> counts = new EnumMap<>(MoodEvent.EmotionalState.class);
+        AtomicInteger remaining = new AtomicInteger(states.size());
+        AtomicBoolean failed = new AtomicBoolean(false);
+        for (MoodEvent.EmotionalState state : states) {
             Query query = getMoodEventCollRef()
-                    .whereIn("participantRef", participantRefs)
-                    .orderBy("timestamp", Query.Direction.DESCENDING)
-                    .limit(LIMIT_TOTAL_EVENTS);
-
-            // Set up snapshot listener to get real-time updates
-            query.addSnapshotListener((value, error) -> {
-                if (error != null) {
-                    onFailureListener.onFailure(error);
-                    return;
+                    .whereEqualTo("participantRef", participantRef)
+                    .whereEqualTo("emotionalState", state.name())
+                    .whereGreaterThanOrEqualTo("timestamp", since);
+            String key = countKey(participantRef) + "&emotionalState=" + state.name() + "&since=" + since.getTime();
+            CountCache.count(key, query, count -> {
+                synchronized (counts) {
+                    counts.put(state, count);
                 }
+                if (remaining.decrementAndGet() == 0 && !failed.get()) {
+                    onSuccessListener.onSuccess(counts);
+                }
+            }, e -> {
+                // Only report the first failure
+                if (failed.compareAndSet(false, true)) {
+                    if (onFailureListener != null) {
+                        onFailureListener.onFailure(e);
+                    } else {
+                        Log.e(TAG, "Failed to count mood events by emotional state for: " + participantRef.getPath(), e);
+                    }
+                }
+            });
+        }
+    }
 
-                if (value != null) {
-                    List<MoodEvent> allMoodEvents = new ArrayList<>();
-                    for (DocumentSnapshot doc : value.getDocuments()) {
-                        MoodEvent moodEvent = doc.toObject(MoodEvent.class);
+    private String countKey(@NonNull DocumentReference participantRef) {
+        return "moodEvents?participantRef=" + participantRef.getPath();
+    }
+
+    /**
+     * Drops cached counts for the author of the given mood event after it was written
+     */
+    private void invalidateCounts(@NonNull MoodEvent moodEvent) {
+        if (moodEvent.getParticipantRef() != null) {
+            CountCache.invalidatePrefix(countKey(moodEvent.getParticipantRef()));
+        }
+    }
+
+    private CollectionReference getDailyRollupCollRef(@NonNull DocumentReference participantRef) {
+        return participantRef.collection("rollups");
+    }
+
+    private CollectionReference getMonthlyRollupCollRef(@NonNull DocumentReference participantRef) {
+        return participantRef.collection("monthlyRollups");
+    }
+
+    /**
+     * Returns the date a mood event is counted under in the rollups. New events only get their
+     * server timestamp once written, so the current time of the device stands in for it; an event
+     * written within the clock skew of the device from midnight UTC can therefore be counted on the
+     * neighbouring day, which {@link #rebuildRollups} repairs.
+     */
+    private static Date rollupDate(@NonNull MoodEvent moodEvent) {
+        return moodEvent.getTimestamp() != null ? moodEvent.getTimestamp() : new Date();
+    }
+
+    /**
+     * Rollup days and months are UTC, not the zone of the device, so every device increments and
+     * decrements the same bucket for an event
+     */
+    private static String dayKey(@NonNull Date date) {
+        return rollupFormat("yyyy-MM-dd").format(date);
+    }
+
+    private static String monthKey(@NonNull Date date) {
+        return rollupFormat("yyyy-MM").format(date);
+    }
+
+    private static SimpleDateFormat rollupFormat(@NonNull String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    /**
+     * Adds the contribution of a mood event to the daily and monthly rollup deltas
+     * @param deltas The deltas per rollup document and per counter field path
+     * @param moodEvent The mood event whose contribution is added
+     * @param delta 1 to count the event, -1 to remove it
+     */
+    private void addRollupDeltas(@NonNull Map<DocumentReference, Map<String, Long>> deltas, @NonNull MoodEvent moodEvent, long delta) {
+        if (moodEvent.getParticipantRef() == null) {
+            return;
+        }
+        Date date = rollupDate(moodEvent);
+        MoodEvent.EmotionalState state = moodEvent.getEmotionalState() != null ? moodEvent.getEmotionalState() : MoodEvent.EmotionalState.NONE;
+        MoodEvent.SocialSituation situation = moodEvent.getSocialSituation() != null ? moodEvent.getSocialSituation() : MoodEvent.SocialSituation.NONE;
+        DocumentReference[] rollupRefs = {
+                getDailyRollupCollRef(moodEvent.getParticipantRef()).document(dayKey(date)),
+                getMonthlyRollupCollRef(moodEvent.getParticipantRef()).document(monthKey(date))
+        };
+        for (DocumentReference rollupRef : rollupRefs) {
+            Map<String, Long> fields = deltas.get(rollupRef);
+            if (fields == null) {
+                fields = new HashMap<>();
+                deltas.put(rollupRef, fields);
+            }
+            fields.merge(MoodRollup.FIELD_TOTAL, delta, Long::sum);
+            fields.merge(MoodRollup.FIELD_EMOTIONAL_STATES + "." + state.name(), delta, Long::sum);
+            fields.merge(MoodRollup.FIELD_SOCIAL_SITUATIONS + "." + situation.name(), delta, Long::sum);
+        }
+    }
+
+    /**
+     * Writes the non-zero deltas as increments, merged into the rollup documents so they are created on first use
+     * @param deltas The deltas per rollup document and per counter field path
+     * @param writer Writes the merge data of a document as part of a batch
+     */
+    private static void writeRollupDeltas(@NonNull Map<DocumentReference, Map<String, Long>> deltas, @NonNull BiConsumer<DocumentReference, Map<String, Object>> writer) {
+        for (Map.Entry<DocumentReference, Map<String, Long>> rollup : deltas.entrySet()) {
+            Map<String, Object> data = new HashMap<>();
+            for (Map.Entry<String, Long> field : rollup.getValue().entrySet()) {
+                if (field.getValue() == 0) {
+                    continue;
+                }
+                FieldValue increment = FieldValue.increment(field.getValue());
+                int dot = field.getKey().indexOf('.');
+                if (dot < 0) {
+                    data.put(field.getKey(), increment);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> nested = (Map<String, Object>) data.get(field.getKey().substring(0, dot));
+                    if (nested == null) {
+                        nested = new HashMap<>();
+                        data.put(field.getKey().substring(0, dot), nested);
+                    }
+                    nested.put(field.getKey().substring(dot + 1), increment);
+                }
+            }
+            if (!data.isEmpty()) {
+                writer.accept(rollup.getKey(), data);
+            }
+        }
+    }
+
+    /**
+     * Fetches the daily rollups of a participant between two dates, both inclusive. Days without events have no rollup.
+     * Rollup days are UTC days, see {@link #dayKey(Date)}.
+     * @param participantRef The reference to the participant whose rollups are to be fetched
+     * @param from The first day to fetch
+     * @param to The last day to fetch
+     * @param onSuccessListener The listener to be called with the rollups, oldest first
+     * @param onFailureListener The listener to be called when the rollups cannot be fetched
+     */
+    public void fetchDailyRollups(@NonNull DocumentReference participantRef, @NonNull Date from, @NonNull Date to, @NonNull OnSuccessListener<List<MoodRollup>> onSuccessListener, OnFailureListener onFailureListener) {
+        fetchRollups(getDailyRollupCollRef(participantRef), dayKey(from), dayKey(to), onSuccessListener, onFailureListener);
+    }
+
+    /**
+     * Fetches the monthly rollups of a participant between two dates, both months inclusive. Months without events have no rollup.
+     * @param participantRef The reference to the participant whose rollups are to be fetched
+     * @param from A date in the first month to fetch
+     * @param to A date in the last month to fetch
+     * @param onSuccessListener The listener to be called with the rollups, oldest first
+     * @param onFailureListener The listener to be called when the rollups cannot be fetched
+     */
+    public void fetchMonthlyRollups(@NonNull DocumentReference participantRef, @NonNull Date from, @NonNull Date to, @NonNull OnSuccessListener<List<MoodRollup>> onSuccessListener, OnFailureListener onFailureListener) {
+        fetchRollups(getMonthlyRollupCollRef(participantRef), monthKey(from), monthKey(to), onSuccessListener, onFailureListener);
+    }
+
+    private void fetchRollups(@NonNull CollectionReference rollupCollRef, @NonNull String fromKey, @NonNull String toKey, @NonNull OnSuccessListener<List<MoodRollup>> onSuccessListener, OnFailureListener onFailureListener) {
+        rollupCollRef
+                .orderBy(FieldPath.documentId())
+                .startAt(fromKey)
+                .endAt(toKey)
+                .get()
+                .addOnSuccessListener(FirestoreThreads.PARSE, queryDocumentSnapshots -> {
+                    List<MoodRollup> rollups = new ArrayList<>();
+                    for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
+                        MoodRollup rollup = doc.toObject(MoodRollup.class);
+                        if (rollup != null) {
+                            rollup.setId(doc.getId());
+                            rollups.add(rollup);
+                        }
+                    }
+                    FirestoreThreads.deliver(onSuccessListener, Collections.unmodifiableList(rollups));
+                })
+                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to fetch rollups from " + fromKey + " to " + toKey, e));
+    }
+
+    /**
+     * Recomputes all rollups of a participant from their mood events, replacing the existing ones.
+     * Only needed for events written before rollups were maintained, or to repair drift.
+     * @param participantRef The reference to the participant whose rollups are to be rebuilt
+     * @param onSuccessListener The listener to be called when the rollups are rebuilt
+     * @param onFailureListener The listener to be called when the rollups cannot be rebuilt
+     */
+    public void rebuildRollups(@NonNull DocumentReference participantRef, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
+        OnFailureListener failureListener = onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to rebuild rollups of: " + participantRef, e);
+        Task<QuerySnapshot> eventsTask = getMoodEventCollRef().whereEqualTo("participantRef", participantRef).get();
+        Task<QuerySnapshot> dailyTask = getDailyRollupCollRef(participantRef).get();
+        Task<QuerySnapshot> monthlyTask = getMonthlyRollupCollRef(participantRef).get();
+        Tasks.whenAllSuccess(eventsTask, dailyTask, monthlyTask)
+                .addOnSuccessListener(FirestoreThreads.PARSE, results -> {
+                    Map<DocumentReference, Map<String, Long>> counts = new HashMap<>();
+                    for (DocumentSnapshot doc : eventsTask.getResult().getDocuments()) {
+                        MoodEvent moodEvent = MoodEventMapper.fromSnapshot(doc);
                         if (moodEvent != null) {
-                            // Explicitly set the ID from the document
-                            moodEvent.setId(doc.getId());
-                            allMoodEvents.add(moodEvent);
+                            addRollupDeltas(counts, moodEvent, 1);
                         }
                     }
-                    onSuccessListener.onSuccess(allMoodEvents);
-                } else {
-                    onSuccessListener.onSuccess(new ArrayList<>());
-                }
-            });
 
-        }, onFailureListener);
+                    List<DocumentReference> deletes = new ArrayList<>();
+                    for (DocumentSnapshot doc : dailyTask.getResult().getDocuments()) {
+                        deletes.add(doc.getReference());
+                    }
+                    for (DocumentSnapshot doc : monthlyTask.getResult().getDocuments()) {
+                        deletes.add(doc.getReference());
+                    }
+
+                    // Each rollup is deleted, then recreated from the increments; a batch holds at most 500 writes
+                    List<Task<Void>> commits = new ArrayList<>();
+                    WriteBatch[] batch = {firebaseService.getDb().batch()};
+                    int[] writes = {0};
+                    Runnable countWrite = () -> {
+                        if (++writes[0] == MAX_BATCH_WRITES) {
+                            commits.add(batch[0].commit());
+                            batch[0] = firebaseService.getDb().batch();
+                            writes[0] = 0;
+                        }
+                    };
+                    for (DocumentReference rollupRef : deletes) {
+                        if (!counts.containsKey(rollupRef)) {
+                            batch[0].delete(rollupRef);
+                            countWrite.run();
+                        }
+                    }
+                    writeRollupDeltas(counts, (rollupRef, data) -> {
+                        batch[0].set(rollupRef, data);
+                        countWrite.run();
+                    });
+                    commits.add(batch[0].commit());
+                    Tasks.whenAll(commits)
+                            .addOnSuccessListener(onSuccessListener)
+                            .addOnFailureListener(failureListener);
+                })
+                .addOnFailureListener(failureListener);
+    }
+
+    /**
+     * Rewrites the images a participant attached as base64 text as binary blobs, without re-encoding them.
+     * Events written after the switch to blobs already store binary, so this only touches older events.
+     * @param participantRef The reference to the participant whose mood events are to be migrated
+     * @param onSuccessListener The listener to be called with the number of migrated mood events
+     * @param onFailureListener The listener to be called when the mood events cannot be migrated
+     */
+    public void migrateAttachedImages(@NonNull DocumentReference participantRef, @NonNull OnSuccessListener<Integer> onSuccessListener, OnFailureListener onFailureListener) {
+        OnFailureListener failureListener = onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to migrate attached images of: " + participantRef.getPath(), e);
+        getMoodEventCollRef().whereEqualTo("participantRef", participantRef).get()
+                .addOnSuccessListener(FirestoreThreads.PARSE, snapshots -> {
+                    List<Task<Void>> commits = new ArrayList<>();
+                    WriteBatch batch = firebaseService.getDb().batch();
+                    int writes = 0;
+                    int migrated = 0;
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        String base64 = doc.getString("attachedImage");
+                        if (base64 == null) {
+                            continue;
+                        }
+                        Map<String, Object> update = new HashMap<>();
+                        update.put("attachedImageData", Blob.fromBytes(ImageHandler.base64ToBytes(base64)));
+                        update.put("attachedImage", FieldValue.delete());
+                        batch.update(doc.getReference(), update);
+                        migrated++;
+                        if (++writes == MAX_BATCH_WRITES) {
+                            commits.add(batch.commit());
+                            batch = firebaseService.getDb().batch();
+                            writes = 0;
+                        }
+                    }
+                    commits.add(batch.commit());
+                    int count = migrated;
+                    Tasks.whenAll(commits)
+                            .addOnSuccessListener(unused -> onSuccessListener.onSuccess(count))
+                            .addOnFailureListener(failureListener);
+                })
+                .addOnFailureListener(failureListener);
+    }
+
+    /**
+     * Rewrites the search tokens of the events of a participant that were written before search tokens
+     * existed, or with whole-word tokens, so keyword queries find them, see {@link #applyFilter(Query, MoodFilter)}.
+     * Events whose stored tokens are already up to date are not written.
+     * @param participantRef The reference to the participant whose mood events are to be backfilled
+     * @param onSuccessListener The listener to be called with the number of rewritten mood events
+     * @param onFailureListener The listener to be called when the mood events cannot be backfilled
+     */
+    public void backfillSearchTokens(@NonNull DocumentReference participantRef, @NonNull OnSuccessListener<Integer> onSuccessListener, OnFailureListener onFailureListener) {
+        OnFailureListener failureListener = onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to backfill search tokens of: " + participantRef.getPath(), e);
+        getMoodEventCollRef().whereEqualTo("participantRef", participantRef).get()
+                .addOnSuccessListener(FirestoreThreads.PARSE, snapshots -> {
+                    List<Task<Void>> commits = new ArrayList<>();
+                    WriteBatch batch = firebaseService.getDb().batch();
+                    int writes = 0;
+                    int backfilled = 0;
+                    for (DocumentSnapshot doc : snapshots.getDocuments()) {
+                        MoodEvent moodEvent = MOOD_EVENTS.get(doc);
+                        if (moodEvent == null) {
+                            continue;
+                        }
+                        List<String> searchTokens = Tokenizer.searchTokens(moodEvent);
+                        if (searchTokens.equals(moodEvent.getSearchTokens())) {
+                            continue;
+                        }
+                        batch.update(doc.getReference(), MoodEventMapper.SEARCH_TOKENS, searchTokens);
+                        backfilled++;
+                        if (++writes == MAX_BATCH_WRITES) {
+                            commits.add(batch.commit());
+                            batch = firebaseService.getDb().batch();
+                            writes = 0;
+                        }
+                    }
+                    commits.add(batch.commit());
+                    int count = backfilled;
+                    Tasks.whenAll(commits)
+                            .addOnSuccessListener(unused -> onSuccessListener.onSuccess(count))
+                            .addOnFailureListener(failureListener);
+                })
+                .addOnFailureListener(failureListener);
     }
 
     /**
@@ -161,11 +766,36 @@ public class MoodEventRepository {
      * @param onFailureListener The listener to be called when the mood event cannot be added
      */
     public void addMoodEvent(@NonNull MoodEvent moodEvent, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
-        getMoodEventCollRef().document(moodEvent.getId()).set(moodEvent)
-                .addOnSuccessListener(onSuccessListener)
+        moodEvent.setSearchTokens(Tokenizer.searchTokens(moodEvent));
+        moodEvent.migrateAttachedImage();
+        Map<DocumentReference, Map<String, Long>> deltas = new HashMap<>();
+        addRollupDeltas(deltas, moodEvent, 1);
+
+        // A batch rather than a transaction, so new events can still be added while offline
+        WriteBatch batch = firebaseService.getDb().batch();
+        batch.set(getMoodEventCollRef().document(moodEvent.getId()), MoodEventMapper.toMap(moodEvent));
+        writeRollupDeltas(deltas, (rollupRef, data) -> batch.set(rollupRef, data, SetOptions.merge()));
+        batch.commit()
+                .addOnSuccessListener(aVoid -> {
+                    invalidateCounts(moodEvent);
+                    onSuccessListener.onSuccess(aVoid);
+                })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to add mood event: " + moodEvent, e));
     }
 
+    /**
+     * Points a mood event at its attached image once the image is stored in Cloud Storage
+     * @param moodEventId The id of the mood event the image is attached to
+     * @param image The stored image, its BlurHash is kept next to the reference
+     * @param onSuccessListener The listener to be called when the reference is written
+     * @param onFailureListener The listener to be called when the reference cannot be written, e.g. the event was deleted
+     */
+    public void setAttachedImageRef(@NonNull String moodEventId, @NonNull ImageRepository.StoredImage image, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
+        getMoodEventCollRef().document(moodEventId).update("attachedImageRef", image.getHash(), "attachedImagePlaceholder", image.getPlaceholder())
+                .addOnSuccessListener(onSuccessListener)
+                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to attach image to mood event: " + moodEventId, e));
+    }
+
     /**
      * Deletes a mood event from the database
      * @param moodEvent The mood event to be deleted
@@ -173,26 +803,97 @@ public class MoodEventRepository {
      * @param onFailureListener The listener to be called when the mood event cannot be deleted
      */
     public void deleteMoodEvent(@NonNull MoodEvent moodEvent, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
-        getMoodEventCollRef().document(moodEvent.getId()).delete()
-                .addOnSuccessListener(onSuccessListener)
-                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to delete mood event: " + moodEvent, e));
+        DocumentReference moodEventRef = getMoodEventCollRef().document(moodEvent.getId());
+        readPrevious(moodEventRef, previous -> {
+            Map<DocumentReference, Map<String, Long>> deltas = new HashMap<>();
+            if (previous == null) {
+                // Not readable, the given event is the best guess of what is stored
+                addRollupDeltas(deltas, moodEvent, -1);
+            } else if (previous.exists()) {
+                // Decrement the buckets of the stored event, the given one may be stale
+                MoodEvent stored = MoodEventMapper.fromSnapshot(previous);
+                addRollupDeltas(deltas, stored != null ? stored : moodEvent, -1);
+            }
+            // An event that no longer exists was already taken out of the rollups when it was deleted
+
+            // A batch rather than a transaction, so events can still be deleted while offline
+            WriteBatch batch = firebaseService.getDb().batch();
+            batch.delete(moodEventRef);
+            writeRollupDeltas(deltas, (rollupRef, data) -> batch.set(rollupRef, data, SetOptions.merge()));
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        invalidateCounts(moodEvent);
+                        onSuccessListener.onSuccess(aVoid);
+                    })
+                    .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to delete mood event: " + moodEvent, e));
+        });
     }
 
     /**
      * Updates a mood event in the database
-     * @param moodEvent The mood event to be updated
+     * @param edited The mood event to be updated, it is not modified
      * @param onSuccessListener The listener to be called when the mood event is successfully updated
      * @param onFailureListener The listener to be called when the mood event cannot be updated
      */
-    public void updateMoodEvent(@NonNull MoodEvent moodEvent, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
+    public void updateMoodEvent(@NonNull MoodEvent edited, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
         // need to add check if the mood event id is null
-        if (moodEvent.getId() == null) {
+        if (edited.getId() == null) {
             onFailureListener.onFailure(new IllegalArgumentException("Mood event ID cannot be null"));
             return;
         }
-        Log.d("MoodEventRepository", "Updating mood event with ID: " + moodEvent.getId());
-        getMoodEventCollRef().document(moodEvent.getId()).set(moodEvent)
-                .addOnSuccessListener(onSuccessListener)
-                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to update mood event: " + moodEvent.getId(), e));
+        Log.d("MoodEventRepository", "Updating mood event with ID: " + edited.getId());
+        // The event may be an instance shared by the repository, which must not be modified
+        MoodEvent moodEvent = new MoodEvent(edited);
+        moodEvent.setSearchTokens(Tokenizer.searchTokens(moodEvent));
+        moodEvent.migrateAttachedImage();
+        DocumentReference moodEventRef = getMoodEventCollRef().document(moodEvent.getId());
+        readPrevious(moodEventRef, previous -> {
+            MoodEvent stored = previous != null ? MoodEventMapper.fromSnapshot(previous) : null;
+            // Moving an event to another emotion, situation or day adjusts both buckets in the same batch;
+            // counters that cancel out are not written at all
+            Map<DocumentReference, Map<String, Long>> deltas = new HashMap<>();
+            if (stored != null) {
+                addRollupDeltas(deltas, stored, -1);
+                addRollupDeltas(deltas, moodEvent, 1);
+                // The attached image may have finished uploading after the event being edited was read
+                if (moodEvent.getAttachedImageRef() == null) {
+                    moodEvent.setAttachedImageRef(stored.getAttachedImageRef());
+                    moodEvent.setAttachedImagePlaceholder(stored.getAttachedImagePlaceholder());
+                }
+            } else {
+                // Without the previous state the old contribution cannot be moved, rebuildRollups repairs that
+                Log.w(TAG, "Updating mood event without its previous state, rollups are left as they are: " + moodEvent.getId());
+            }
+
+            // A batch rather than a transaction, so events can still be edited while offline
+            WriteBatch batch = firebaseService.getDb().batch();
+            batch.set(moodEventRef, MoodEventMapper.toMap(moodEvent));
+            writeRollupDeltas(deltas, (rollupRef, data) -> batch.set(rollupRef, data, SetOptions.merge()));
+            batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        invalidateCounts(moodEvent);
+                        onSuccessListener.onSuccess(aVoid);
+                    })
+                    .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to update mood event: " + moodEvent.getId(), e));
+        });
+    }
+
+    /**
+     * Reads the last known state of a mood event before it is rewritten, so the rollups can be moved
+     * by the difference. The read comes from the server while online and from the local cache while
+     * offline, so writes built on it keep working offline.
+     * @param moodEventRef The mood event to read
+     * @param onPreviousListener The listener to be called on {@link FirestoreThreads#PARSE} with the snapshot
+     *                           of the mood event, which does not exist if it was deleted, or null if it cannot be read
+     */
+    private void readPrevious(@NonNull DocumentReference moodEventRef, @NonNull OnSuccessListener<DocumentSnapshot> onPreviousListener) {
+        moodEventRef.get().addOnCompleteListener(FirestoreThreads.PARSE, task -> {
+            if (!task.isSuccessful()) {
+                Log.w(TAG, "Could not read mood event before writing it: " + moodEventRef.getPath(), task.getException());
+                onPreviousListener.onSuccess(null);
+                return;
+            }
+            onPreviousListener.onSuccess(task.getResult());
+        });
     }
-}
\ No newline at end of file
+}
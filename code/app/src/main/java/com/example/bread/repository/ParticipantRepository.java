@@ -1,33 +1,77 @@
 package com.example.bread.repository;
 
+import android.graphics.Bitmap;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
 import com.example.bread.firebase.FirebaseService;
+import com.example.bread.firebase.FollowRequestMapper;
+import com.example.bread.firebase.ParticipantMapper;
 import com.example.bread.model.FollowRequest;
 import com.example.bread.model.Participant;
+import com.example.bread.utils.ImageHandler;
 import com.google.android.gms.tasks.OnFailureListener;
 import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.firestore.Blob;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Repository class for handling participants in the database
+ * Repository class for handling participants in the database.
+ * <p>
+ * Every participant is split over two documents. The summary in "participants" holds what lists,
+ * search and listeners need (username, names, counts and the profile picture reference and version)
+ * and stays small. The details in "participantDetails" hold the heavy or rarely read fields
+ * ({@link #DETAIL_FIELDS}) and are only read when the whole participant is fetched.
+ * <p>
+ * Documents are turned into participants on {@link FirestoreThreads#PARSE}, listeners are still called on the main thread.
+ * Summaries are read through an {@link IdentityMap} shared by all repositories, so the same unchanged participant
+ * is one instance across lists, caches and listeners. Those instances must not be modified, {@link #fetchParticipant}
+ * maps its own participant since it fills in the details.
  */
 public class ParticipantRepository {
     private final FirebaseService firebaseService;
+    private final ImageRepository imageRepository;
     private static final String TAG = "ParticipantRepository";
+    private static final String DETAILS_COLLECTION = "participantDetails";
+    // Fields kept in the details document rather than the summary
+    private static final List<String> DETAIL_FIELDS = Arrays.asList("email", "profilePicture", "profilePictureData");
+    private static final int MAX_SHARED_PARTICIPANTS = 500; // Limit summaries kept by the identity map
+    private static final IdentityMap<Participant> PARTICIPANTS = new IdentityMap<>(MAX_SHARED_PARTICIPANTS, ParticipantMapper::fromSnapshot);
+    // A prefetched follow graph older than this is read again rather than used
+    private static final long PREFETCH_TTL_MS = 10_000;
+    // Follow graph reads started by prefetchFollowing, by username, taken by the next fetchFollowing of the user
+    private static final Map<String, Prefetch> PREFETCHED_FOLLOWING = new ConcurrentHashMap<>();
+
+    private static final class Prefetch {
+        final Task<QuerySnapshot> task;
+        final long startedAt = SystemClock.elapsedRealtime();
+
+        Prefetch(Task<QuerySnapshot> task) {
+            this.task = task;
+        }
+    }
 
     // List types enum
     public enum ListType {
@@ -37,6 +81,7 @@ public class ParticipantRepository {
 
     public ParticipantRepository() {
         firebaseService = new FirebaseService();
+        imageRepository = new ImageRepository();
     }
 
     public CollectionReference getParticipantCollRef() {
@@ -44,7 +89,18 @@ public class ParticipantRepository {
     }
 
     /**
-     * Fetches the base participant object from firebase without fetching followers and following
+     * Constructs a reference to the details document of the participant with the given username
+     *
+     * @param username The username of the participant
+     * @return The reference to the participant details
+     */
+    public DocumentReference getParticipantDetailsRef(@NonNull String username) {
+        return firebaseService.getDb().collection(DETAILS_COLLECTION).document(username);
+    }
+
+    /**
+     * Fetches the base participant object from firebase without fetching followers and following.
+     * Only the summary is read, so the email and any inline profile picture are not set.
      *
      * @param username          The username of the participant to fetch
      * @param onSuccessListener The listener to be called when the participant is successfully fetched
@@ -52,20 +108,20 @@ public class ParticipantRepository {
      */
     public void fetchBaseParticipant(@NonNull String username, @NonNull OnSuccessListener<Participant> onSuccessListener, OnFailureListener onFailureListener) {
         getParticipantCollRef().document(username).get()
-                .addOnSuccessListener(documentSnapshot -> {
+                .addOnSuccessListener(FirestoreThreads.PARSE, documentSnapshot -> {
                     if (documentSnapshot.exists()) {
-                        Participant participant = documentSnapshot.toObject(Participant.class);
-                        onSuccessListener.onSuccess(participant);
+                        Participant participant = PARTICIPANTS.get(documentSnapshot);
+                        FirestoreThreads.deliver(onSuccessListener, participant);
                     } else {
                         Log.e(TAG, "Participant with username: " + username + " does not exist");
-                        onSuccessListener.onSuccess(null);
+                        FirestoreThreads.deliver(onSuccessListener, null);
                     }
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to fetch participant with username: " + username, e));
     }
 
     /**
-     * Fetches the participant object from firebase with followers and following
+     * Fetches the participant object from firebase with its details, followers and following
      *
      * @param username          The username of the participant to fetch
      * @param onSuccessListener The listener to be called when the participant is successfully fetched
@@ -73,20 +129,50 @@ public class ParticipantRepository {
      */
     public void fetchParticipant(@NonNull String username, @NonNull OnSuccessListener<Participant> onSuccessListener, OnFailureListener onFailureListener) {
         getParticipantCollRef().document(username).get()
-                .addOnSuccessListener(documentSnapshot -> {
+                .addOnSuccessListener(FirestoreThreads.PARSE, documentSnapshot -> {
                     if (documentSnapshot.exists()) {
-                        Participant participant = documentSnapshot.toObject(Participant.class);
-                        fetchFollowersAndFollowing(Objects.requireNonNull(participant), onSuccessListener, onFailureListener);
+                        Participant participant = Objects.requireNonNull(ParticipantMapper.fromSnapshot(documentSnapshot));
+                        fetchParticipantDetails(participant, withDetails ->
+                                fetchFollowersAndFollowing(withDetails, onSuccessListener, onFailureListener), onFailureListener);
                     } else {
                         Log.e(TAG, "Participant with username: " + username + " does not exist");
-                        onSuccessListener.onSuccess(null);
+                        FirestoreThreads.deliver(onSuccessListener, null);
                     }
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to fetch participant with username: " + username, e));
     }
 
     /**
-     * Fetches the base participant object from firebase with the given reference
+     * Fills in the fields of the participant kept in its details document. Fields already set from a
+     * summary written before the split are kept if the details document does not have them.
+     * The participant may be shared, so the details are set on a copy of it.
+     *
+     * @param participant       The participant read from its summary
+     * @param onSuccessListener The listener to be called with a copy of the participant with its details set
+     * @param onFailureListener The listener to be called when the details cannot be fetched
+     */
+    public void fetchParticipantDetails(@NonNull Participant participant, @NonNull OnSuccessListener<Participant> onSuccessListener, OnFailureListener onFailureListener) {
+        getParticipantDetailsRef(participant.getUsername()).get()
+                .addOnSuccessListener(FirestoreThreads.PARSE, details -> {
+                    Participant withDetails = new Participant(participant);
+                    if (details.exists()) {
+                        if (details.contains("email")) {
+                            withDetails.setEmail(details.getString("email"));
+                        }
+                        if (details.contains("profilePictureData")) {
+                            withDetails.setProfilePictureData(details.getBlob("profilePictureData"));
+                        }
+                        if (details.contains("profilePicture")) {
+                            withDetails.setProfilePicture(details.getString("profilePicture"));
+                        }
+                    }
+                    FirestoreThreads.deliver(onSuccessListener, withDetails);
+                })
+                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to fetch details of: " + participant.getUsername(), e));
+    }
+
+    /**
+     * Fetches the base participant object from firebase with the given reference, see {@link #fetchBaseParticipant}
      *
      * @param participantRef    The reference to the participant to fetch
      * @param onSuccessListener The listener to be called when the participant is successfully fetched
@@ -94,13 +180,13 @@ public class ParticipantRepository {
      */
     public void fetchParticipantByRef(@NonNull DocumentReference participantRef, @NonNull OnSuccessListener<Participant> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
         participantRef.get()
-                .addOnSuccessListener(documentSnapshot -> {
+                .addOnSuccessListener(FirestoreThreads.PARSE, documentSnapshot -> {
                     if (documentSnapshot.exists()) {
-                        Participant participant = documentSnapshot.toObject(Participant.class);
-                        onSuccessListener.onSuccess(participant);
+                        Participant participant = PARTICIPANTS.get(documentSnapshot);
+                        FirestoreThreads.deliver(onSuccessListener, participant);
                     } else {
                         Log.e(TAG, "Participant with reference: " + participantRef + " does not exist");
-                        onSuccessListener.onSuccess(null);
+                        FirestoreThreads.deliver(onSuccessListener, null);
                     }
                 })
                 .addOnFailureListener(onFailureListener);
@@ -142,14 +228,14 @@ public class ParticipantRepository {
      */
     public void fetchFollowers(@NonNull String username, @NonNull OnSuccessListener<List<String>> onSuccessListener, OnFailureListener onFailureListener) {
         getParticipantCollRef().document(username).collection("followers").get()
-                .addOnSuccessListener(followersSnapshot -> {
+                .addOnSuccessListener(FirestoreThreads.PARSE, followersSnapshot -> {
                     List<String> followers = new ArrayList<>();
                     for (DocumentSnapshot doc : followersSnapshot) {
                         followers.add(doc.getString("username"));
                     }
                     // Update follower count in participant document
                     updateFollowerCount(username, followers.size());
-                    onSuccessListener.onSuccess(followers);
+                    FirestoreThreads.deliver(onSuccessListener, Collections.unmodifiableList(followers));
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to fetch followers for participant: " + username, e));
     }
@@ -162,19 +248,33 @@ public class ParticipantRepository {
      * @param onFailureListener The listener to be called when the following cannot be fetched
      */
     public void fetchFollowing(@NonNull String username, @NonNull OnSuccessListener<List<String>> onSuccessListener, OnFailureListener onFailureListener) {
-        getParticipantCollRef().document(username).collection("following").get()
-                .addOnSuccessListener(followingSnapshot -> {
+        Prefetch prefetch = PREFETCHED_FOLLOWING.remove(username);
+        Task<QuerySnapshot> read = prefetch != null && SystemClock.elapsedRealtime() - prefetch.startedAt < PREFETCH_TTL_MS
+                ? prefetch.task
+                : getParticipantCollRef().document(username).collection("following").get();
+        read
+                .addOnSuccessListener(FirestoreThreads.PARSE, followingSnapshot -> {
                     List<String> following = new ArrayList<>();
                     for (DocumentSnapshot doc : followingSnapshot) {
                         following.add(doc.getString("username"));
                     }
                     // Update following count in participant document
                     updateFollowingCount(username, following.size());
-                    onSuccessListener.onSuccess(following);
+                    FirestoreThreads.deliver(onSuccessListener, Collections.unmodifiableList(following));
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to fetch following for participant: " + username, e));
     }
 
+    /**
+     * Starts reading who the participant follows ahead of time, for example while the home page is inflated.
+     * The next {@link #fetchFollowing} of the participant within a few seconds uses this read instead of starting one.
+     *
+     * @param username The username of the participant
+     */
+    public void prefetchFollowing(@NonNull String username) {
+        PREFETCHED_FOLLOWING.computeIfAbsent(username, key -> new Prefetch(getParticipantCollRef().document(key).collection("following").get()));
+    }
+
     /**
      * Update follower count in the participant document
      */
@@ -191,6 +291,79 @@ public class ParticipantRepository {
                 .addOnFailureListener(e -> Log.e(TAG, "Failed to update following count for " + username, e));
     }
 
+    /**
+     * Recounts the followers with a count() aggregation and stores the result in the participant document
+     */
+    private void refreshFollowerCount(String username, @NonNull OnSuccessListener<Void> onComplete) {
+        CountCache.invalidatePrefix(getFollowersCollRef(username).getPath());
+        countFollowers(username, count -> {
+            updateFollowerCount(username, count.intValue());
+            onComplete.onSuccess(null);
+        }, e -> onComplete.onSuccess(null));
+    }
+
+    /**
+     * Recounts the following with a count() aggregation and stores the result in the participant document
+     */
+    private void refreshFollowingCount(String username, @NonNull OnSuccessListener<Void> onComplete) {
+        CountCache.invalidatePrefix(getFollowingCollRef(username).getPath());
+        countFollowing(username, count -> {
+            updateFollowingCount(username, count.intValue());
+            onComplete.onSuccess(null);
+        }, e -> onComplete.onSuccess(null));
+    }
+
+    private CollectionReference getFollowersCollRef(@NonNull String username) {
+        return getParticipantCollRef().document(username).collection("followers");
+    }
+
+    private CollectionReference getFollowingCollRef(@NonNull String username) {
+        return getParticipantCollRef().document(username).collection("following");
+    }
+
+    private CollectionReference getFollowRequestsCollRef(@NonNull String username) {
+        return getParticipantCollRef().document(username).collection("followRequests");
+    }
+
+    /**
+     * Counts the followers of the given participant with a single count() aggregation instead of
+     * downloading the followers subcollection. Results are cached for a short time.
+     *
+     * @param username          The username of the participant to count followers for
+     * @param onSuccessListener The listener to be called with the number of followers
+     * @param onFailureListener The listener to be called when the followers cannot be counted
+     */
+    public void countFollowers(@NonNull String username, @NonNull OnSuccessListener<Long> onSuccessListener, OnFailureListener onFailureListener) {
+        CollectionReference followersRef = getFollowersCollRef(username);
+        CountCache.count(followersRef.getPath(), followersRef, onSuccessListener, onFailureListener);
+    }
+
+    /**
+     * Counts the participants the given participant is following with a single count() aggregation.
+     * Results are cached for a short time.
+     *
+     * @param username          The username of the participant to count following for
+     * @param onSuccessListener The listener to be called with the number of followed participants
+     * @param onFailureListener The listener to be called when the following cannot be counted
+     */
+    public void countFollowing(@NonNull String username, @NonNull OnSuccessListener<Long> onSuccessListener, OnFailureListener onFailureListener) {
+        CollectionReference followingRef = getFollowingCollRef(username);
+        CountCache.count(followingRef.getPath(), followingRef, onSuccessListener, onFailureListener);
+    }
+
+    /**
+     * Counts the pending follow requests of the given participant with a single count() aggregation.
+     * Results are cached for a short time.
+     *
+     * @param username          The username of the participant to count requests for
+     * @param onSuccessListener The listener to be called with the number of pending requests
+     * @param onFailureListener The listener to be called when the requests cannot be counted
+     */
+    public void countFollowRequests(@NonNull String username, @NonNull OnSuccessListener<Long> onSuccessListener, OnFailureListener onFailureListener) {
+        CollectionReference requestsRef = getFollowRequestsCollRef(username);
+        CountCache.count(requestsRef.getPath() + "?status=pending", requestsRef.whereEqualTo("status", "pending"), onSuccessListener, onFailureListener);
+    }
+
     /**
      * Adds a participant to the database
      *
@@ -199,11 +372,141 @@ public class ParticipantRepository {
      * @param onFailureListener The listener to be called when the participant cannot be added
      */
     public void addParticipant(@NonNull Participant participant, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
-        getParticipantCollRef().document(participant.getUsername()).set(participant)
+        participant.migrateProfilePictureData();
+        if (participant.getProfilePictureData() != null && participant.getProfilePictureVersion() == 0) {
+            participant.setProfilePictureVersion(1);
+        }
+        WriteBatch batch = firebaseService.getDb().batch();
+        batch.set(getParticipantRef(participant.getUsername()), ParticipantMapper.toSummaryMap(participant));
+        batch.set(getParticipantDetailsRef(participant.getUsername()), ParticipantMapper.toDetailsMap(participant));
+        batch.commit()
                 .addOnSuccessListener(onSuccessListener)
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to add participant: " + participant, e));
     }
 
+    /**
+     * Uploads a new profile picture to Cloud Storage and points the participant at it.
+     * The document only stores the content hash and the BlurHash of the picture and drops any picture kept inline.
+     *
+     * @param username          The username of the participant
+     * @param bitmap            The new profile picture
+     * @param onSuccessListener The listener to be called with the content hash of the picture once the participant is updated
+     * @param onFailureListener The listener to be called when the picture cannot be uploaded or the participant cannot be updated
+     */
+    public void updateProfilePicture(@NonNull String username, @NonNull Bitmap bitmap, @NonNull OnSuccessListener<String> onSuccessListener, OnFailureListener onFailureListener) {
+        OnFailureListener failureListener = onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to update profile picture of: " + username, e);
+        imageRepository.uploadImage(bitmap, image -> setProfilePictureRef(username, image, onSuccessListener, failureListener), failureListener);
+    }
+
+    /**
+     * Stores a new profile picture in the participant details document as a binary blob, for deployments
+     * that keep images in Firestore rather than Cloud Storage. The summary only gets a new picture version.
+     *
+     * @param username          The username of the participant
+     * @param data              The encoded picture, see {@link ImageHandler#compressImageToBytes}
+     * @param onSuccessListener The listener to be called when the participant is updated
+     * @param onFailureListener The listener to be called when the participant cannot be updated
+     */
+    public void updateProfilePictureData(@NonNull String username, @NonNull byte[] data, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
+        Map<String, Object> details = new HashMap<>();
+        details.put("profilePictureData", Blob.fromBytes(data));
+        details.put("profilePicture", FieldValue.delete());
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("profilePictureVersion", FieldValue.increment(1));
+        summary.put("profilePictureRef", FieldValue.delete());
+        summary.put("profilePicturePlaceholder", FieldValue.delete());
+        summary.put("profilePicture", FieldValue.delete());
+        summary.put("profilePictureData", FieldValue.delete());
+
+        WriteBatch batch = firebaseService.getDb().batch();
+        batch.set(getParticipantDetailsRef(username), details, SetOptions.merge());
+        batch.update(getParticipantRef(username), summary);
+        batch.commit()
+                .addOnSuccessListener(onSuccessListener)
+                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to update profile picture of: " + username, e));
+    }
+
+    /**
+     * Moves the heavy and rarely read fields of a participant written before the summary/details split
+     * out of the summary document, rewriting a base64 picture as a blob on the way. Does nothing for
+     * participants that are already split.
+     *
+     * @param username          The username of the participant to migrate
+     * @param onSuccessListener The listener to be called with true if the participant was migrated
+     * @param onFailureListener The listener to be called when the participant cannot be migrated
+     */
+    public void migrateParticipantDetails(@NonNull String username, @NonNull OnSuccessListener<Boolean> onSuccessListener, OnFailureListener onFailureListener) {
+        DocumentReference summaryRef = getParticipantRef(username);
+        DocumentReference detailsRef = getParticipantDetailsRef(username);
+        firebaseService.getDb().runTransaction((Transaction.Function<Boolean>) transaction -> {
+                    DocumentSnapshot summary = transaction.get(summaryRef);
+                    if (!summary.exists()) {
+                        return false;
+                    }
+                    Map<String, Object> details = new HashMap<>();
+                    Map<String, Object> removed = new HashMap<>();
+                    for (String field : DETAIL_FIELDS) {
+                        if (summary.contains(field)) {
+                            details.put(field, summary.get(field));
+                            removed.put(field, FieldValue.delete());
+                        }
+                    }
+                    if (details.isEmpty()) {
+                        return false;
+                    }
+                    Object base64 = details.remove("profilePicture");
+                    if (base64 instanceof String) {
+                        details.put("profilePictureData", Blob.fromBytes(ImageHandler.base64ToBytes((String) base64)));
+                    }
+                    if (details.containsKey("profilePictureData") && !summary.contains("profilePictureRef")) {
+                        // Lets list rows notice the picture without reading the details
+                        removed.put("profilePictureVersion", FieldValue.increment(1));
+                    }
+                    transaction.set(detailsRef, details, SetOptions.merge());
+                    transaction.update(summaryRef, removed);
+                    return true;
+                })
+                .addOnSuccessListener(onSuccessListener)
+                .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to migrate participant: " + username, e));
+    }
+
+    /**
+     * Moves a profile picture stored inline, as binary or base64, into Cloud Storage. Does nothing if the participant
+     * has no inline picture or already has one in Cloud Storage.
+     *
+     * @param participant       The participant to migrate
+     * @param onSuccessListener The listener to be called with the content hash of the picture once the participant is updated
+     * @param onFailureListener The listener to be called when the picture cannot be moved
+     */
+    public void migrateProfilePicture(@NonNull Participant participant, @NonNull OnSuccessListener<String> onSuccessListener, OnFailureListener onFailureListener) {
+        if (!participant.hasInlineProfilePicture() || participant.getProfilePictureRef() != null) {
+            onSuccessListener.onSuccess(participant.getProfilePictureRef());
+            return;
+        }
+        String username = participant.getUsername();
+        OnFailureListener failureListener = onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to migrate profile picture of: " + username, e);
+        imageRepository.uploadEncodedImage(participant.getProfilePictureBytes(), image -> setProfilePictureRef(username, image, onSuccessListener, failureListener), failureListener);
+    }
+
+    private void setProfilePictureRef(String username, ImageRepository.StoredImage image, OnSuccessListener<String> onSuccessListener, OnFailureListener onFailureListener) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("profilePictureRef", image.getHash());
+        summary.put("profilePicturePlaceholder", image.getPlaceholder());
+        summary.put("profilePictureVersion", FieldValue.increment(1));
+        summary.put("profilePicture", FieldValue.delete());
+        summary.put("profilePictureData", FieldValue.delete());
+        Map<String, Object> details = new HashMap<>();
+        details.put("profilePicture", FieldValue.delete());
+        details.put("profilePictureData", FieldValue.delete());
+
+        WriteBatch batch = firebaseService.getDb().batch();
+        batch.update(getParticipantRef(username), summary);
+        batch.set(getParticipantDetailsRef(username), details, SetOptions.merge());
+        batch.commit()
+                .addOnSuccessListener(unused -> onSuccessListener.onSuccess(image.getHash()))
+                .addOnFailureListener(onFailureListener);
+    }
+
     /**
      * Adds a follower to the given participant
      *
@@ -218,9 +521,7 @@ public class ParticipantRepository {
         getParticipantCollRef().document(username).collection("followers").document(followerUsername).set(follower)
                 .addOnSuccessListener(aVoid -> {
                     // Update the follower count after adding
-                    fetchFollowers(username, followers -> {
-                        onSuccessListener.onSuccess(aVoid);
-                    }, e -> onSuccessListener.onSuccess(aVoid));
+                    refreshFollowerCount(username, onSuccessListener);
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to add follower: " + followerUsername + " to participant: " + username, e));
     }
@@ -239,9 +540,7 @@ public class ParticipantRepository {
         getParticipantCollRef().document(username).collection("following").document(followingUsername).set(following)
                 .addOnSuccessListener(aVoid -> {
                     // Update the following count after adding
-                    fetchFollowing(username, followingList -> {
-                        onSuccessListener.onSuccess(aVoid);
-                    }, e -> onSuccessListener.onSuccess(aVoid));
+                    refreshFollowingCount(username, onSuccessListener);
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e -> Log.e(TAG, "Failed to add following: " + followingUsername + " to participant: " + username, e));
     }
@@ -256,8 +555,11 @@ public class ParticipantRepository {
      */
     public void sendFollowRequest(@NonNull String fromUsername, @NonNull String toUsername, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
         FollowRequest request = new FollowRequest(fromUsername);
-        getParticipantCollRef().document(toUsername).collection("followRequests").document(fromUsername).set(request)
-                .addOnSuccessListener(onSuccessListener)
+        getFollowRequestsCollRef(toUsername).document(fromUsername).set(request.toMap())
+                .addOnSuccessListener(aVoid -> {
+                    CountCache.invalidatePrefix(getFollowRequestsCollRef(toUsername).getPath());
+                    onSuccessListener.onSuccess(aVoid);
+                })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e ->
                         Log.e(TAG, "Failed to send follow request from: " + fromUsername + " to: " + toUsername, e));
     }
@@ -270,13 +572,30 @@ public class ParticipantRepository {
      * @param onFailureListener The listener to be called when requests cannot be fetched
      */
     public void fetchFollowRequests(@NonNull String username, @NonNull OnSuccessListener<List<FollowRequest>> onSuccessListener, OnFailureListener onFailureListener) {
+        fetchFollowRequests(username, 0, onSuccessListener, onFailureListener);
+    }
+
+    /**
+     * Fetch at most the given number of pending follow requests for a participant
+     *
+     * @param username          The username of the participant to fetch requests for
+     * @param limit             The maximum number of requests to fetch, or 0 to fetch all of them
+     * @param onSuccessListener The listener to be called when requests are successfully fetched
+     * @param onFailureListener The listener to be called when requests cannot be fetched
+     */
+    public void fetchFollowRequests(@NonNull String username, int limit, @NonNull OnSuccessListener<List<FollowRequest>> onSuccessListener, OnFailureListener onFailureListener) {
         // Query for pending follow requests
-        getParticipantCollRef().document(username).collection("followRequests")
-                .whereEqualTo("status", "pending")
-                .get()
-                .addOnSuccessListener(querySnapshot -> {
-                    List<FollowRequest> requests = querySnapshot.toObjects(FollowRequest.class);
-                    onSuccessListener.onSuccess(requests);
+        Query query = getFollowRequestsCollRef(username).whereEqualTo("status", "pending");
+        if (limit > 0) {
+            query = query.limit(limit);
+        }
+        query.get()
+                .addOnSuccessListener(FirestoreThreads.PARSE, querySnapshot -> {
+                    List<FollowRequest> requests = new ArrayList<>();
+                    for (DocumentSnapshot doc : querySnapshot.getDocuments()) {
+                        requests.add(FollowRequestMapper.fromSnapshot(doc));
+                    }
+                    FirestoreThreads.deliver(onSuccessListener, Collections.unmodifiableList(requests));
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e ->
                         Log.e(TAG, "Failed to fetch follow requests for: " + username, e));
@@ -292,9 +611,10 @@ public class ParticipantRepository {
      */
     public void acceptFollowRequest(@NonNull String username, @NonNull String requestorUsername, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
         // Update request status to accepted
-        getParticipantCollRef().document(username).collection("followRequests").document(requestorUsername)
+        getFollowRequestsCollRef(username).document(requestorUsername)
                 .update("status", "accepted")
                 .addOnSuccessListener(aVoid -> {
+                    CountCache.invalidatePrefix(getFollowRequestsCollRef(username).getPath());
                     // Add follower relationship
                     addFollower(username, requestorUsername, unused -> {
                         // Add following relationship
@@ -322,8 +642,11 @@ public class ParticipantRepository {
      * Delete a follow request document
      */
     private void deleteFollowRequest(@NonNull String username, @NonNull String requestorUsername, @NonNull OnSuccessListener<Void> onSuccessListener, OnFailureListener onFailureListener) {
-        getParticipantCollRef().document(username).collection("followRequests").document(requestorUsername).delete()
-                .addOnSuccessListener(onSuccessListener)
+        getFollowRequestsCollRef(username).document(requestorUsername).delete()
+                .addOnSuccessListener(aVoid -> {
+                    CountCache.invalidatePrefix(getFollowRequestsCollRef(username).getPath());
+                    onSuccessListener.onSuccess(aVoid);
+                })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e ->
                         Log.e(TAG, "Failed to delete follow request from: " + requestorUsername + " for: " + username, e));
     }
@@ -346,14 +669,17 @@ public class ParticipantRepository {
                 .whereLessThan("username", endPrefix)
                 .limit(20) // Limit results to avoid too many results
                 .get()
-                .addOnSuccessListener(queryDocumentSnapshots -> {
+                .addOnSuccessListener(FirestoreThreads.PARSE, queryDocumentSnapshots -> {
                     if (queryDocumentSnapshots.isEmpty()) {
-                        onSuccessListener.onSuccess(new ArrayList<>());
+                        FirestoreThreads.deliver(onSuccessListener, Collections.emptyList());
                         return;
                     }
 
-                    List<Participant> participants = queryDocumentSnapshots.toObjects(Participant.class);
-                    onSuccessListener.onSuccess(participants);
+                    List<Participant> participants = new ArrayList<>();
+                    for (DocumentSnapshot doc : queryDocumentSnapshots.getDocuments()) {
+                        participants.add(PARTICIPANTS.get(doc));
+                    }
+                    FirestoreThreads.deliver(onSuccessListener, Collections.unmodifiableList(participants));
                 })
                 .addOnFailureListener(onFailureListener != null ? onFailureListener : e ->
                         Log.e(TAG, "Failed to search users with prefix: " + usernamePrefix, e));
@@ -425,6 +751,8 @@ public class ParticipantRepository {
                     // Also remove user from follower's following collection
                     getParticipantCollRef().document(followerUsername).collection("following").document(username).delete()
                             .addOnSuccessListener(aVoid -> {
+                                refreshFollowerCount(username, ignored -> {});
+                                refreshFollowingCount(followerUsername, ignored -> {});
                                 // Also delete any previous follow request documents to allow new requests
                                 deleteFollowRequest(username, followerUsername, onSuccessListener, e -> {
                                     // Still consider success even if request delete fails
@@ -454,6 +782,8 @@ public class ParticipantRepository {
                     // Also remove user from target's followers collection
                     getParticipantCollRef().document(targetUsername).collection("followers").document(username).delete()
                             .addOnSuccessListener(aVoid -> {
+                                refreshFollowingCount(username, ignored -> {});
+                                refreshFollowerCount(targetUsername, ignored -> {});
                                 // Also delete any previous follow request documents to allow new requests
                                 deleteFollowRequest(targetUsername, username, onSuccessListener, e -> {
                                     // Still consider success even if request delete fails
@@ -476,19 +806,21 @@ public class ParticipantRepository {
      * @return A ListenerRegistration that can be used to remove the listener when not needed
      */
     public ListenerRegistration listenForParticipantUpdates(@NonNull String username, @NonNull OnSuccessListener<Participant> onParticipantUpdateListener) {
-        return getParticipantCollRef().document(username)
-                .addSnapshotListener((documentSnapshot, e) -> {
+        CompositeListenerRegistration registration = new CompositeListenerRegistration();
+        registration.add(getParticipantCollRef().document(username)
+                .addSnapshotListener(FirestoreThreads.PARSE, (documentSnapshot, e) -> {
                     if (e != null) {
                         Log.e(TAG, "Error listening for participant updates", e);
                         return;
                     }
 
                     if (documentSnapshot != null && documentSnapshot.exists()) {
-                        Participant participant = documentSnapshot.toObject(Participant.class);
+                        Participant participant = PARTICIPANTS.get(documentSnapshot);
                         if (participant != null) {
-                            onParticipantUpdateListener.onSuccess(participant);
+                            FirestoreThreads.deliver(registration, onParticipantUpdateListener, participant);
                         }
                     }
-                });
+                }));
+        return registration;
     }
 }
@@ -0,0 +1,203 @@
+package com.example.bread.search;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over the title, reason and trigger of mood events.
+ * <p>
+ * Every indexed event gets a small integer slot, and every token maps to the set of slots whose
+ * events contain it. The token dictionary is kept sorted so a query token matches all tokens it is
+ * a prefix of with a single range lookup, and a multi word query intersects the slot sets, so a
+ * query costs a few bitset operations regardless of how many events are indexed. Events are added,
+ * replaced and removed one at a time, and are only re-tokenized when their text changes. The index
+ * keeps the id, the tokens and the concatenated searchable text of each event, the text to tell
+ * whether it changed, but not the events themselves.
+ * <p>
+ * {@link com.example.bread.filter.MoodFilterEngine} syncs the index with the events it filters, so it
+ * only covers the loaded page of a list, not the whole history of a user.
+ * <p>
+ * The class is not thread safe, callers are expected to confine it to one thread.
+ */
+public class MoodEventIndex {
+
+    private final TreeMap<String, BitSet> postings = new TreeMap<>();
+    private final Map<String, Integer> slotsById = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<String[]> tokens = new ArrayList<>();
+    private final List<String> texts = new ArrayList<>();
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /**
+     * Adds the mood event, or replaces the indexed event with the same id
+     * @param moodEvent The mood event to index, must have an id
+     */
+    public void put(@NonNull MoodEvent moodEvent) {
+        String id = Objects.requireNonNull(moodEvent.getId(), "Mood event id cannot be null");
+        String text = searchableText(moodEvent);
+        Integer slot = slotsById.get(id);
+        if (slot != null) {
+            if (text.equals(texts.get(slot))) {
+                return;
+            }
+            unindex(slot);
+        } else {
+            slot = freeSlots.isEmpty() ? ids.size() : freeSlots.pop();
+            slotsById.put(id, slot);
+            if (slot == ids.size()) {
+                ids.add(id);
+                tokens.add(null);
+                texts.add(null);
+            } else {
+                ids.set(slot, id);
+            }
+        }
+
+        String[] eventTokens = Tokenizer.tokenize(moodEvent).toArray(new String[0]);
+        for (String token : eventTokens) {
+            BitSet slots = postings.get(token);
+            if (slots == null) {
+                slots = new BitSet();
+                postings.put(token, slots);
+            }
+            slots.set(slot);
+        }
+        tokens.set(slot, eventTokens);
+        texts.set(slot, text);
+    }
+
+    /**
+     * Removes the mood event with the given id, if indexed
+     * @param id The id of the mood event
+     */
+    public void remove(@NonNull String id) {
+        Integer slot = slotsById.remove(id);
+        if (slot == null) {
+            return;
+        }
+        unindex(slot);
+        ids.set(slot, null);
+        texts.set(slot, null);
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Makes the index hold exactly the given mood events, only touching the ones that changed
+     * @param moodEvents The mood events to index
+     */
+    public void sync(@NonNull Collection<MoodEvent> moodEvents) {
+        Set<String> synced = new HashSet<>();
+        for (MoodEvent moodEvent : moodEvents) {
+            if (moodEvent.getId() != null) {
+                synced.add(moodEvent.getId());
+                put(moodEvent);
+            }
+        }
+        for (String id : slotsById.keySet().toArray(new String[0])) {
+            if (!synced.contains(id)) {
+                remove(id);
+            }
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        slotsById.clear();
+        ids.clear();
+        tokens.clear();
+        texts.clear();
+        freeSlots.clear();
+    }
+
+    public int size() {
+        return slotsById.size();
+    }
+
+    /**
+     * Finds the mood events matching every word of the query, each word matching any token it is a prefix of
+     * @param query The keywords to search for
+     * @return The ids of the matching mood events in no particular order, or of all indexed events if the query has no words
+     */
+    @NonNull
+    public List<String> search(@NonNull String query) {
+        BitSet matches = match(query);
+        List<String> results = new ArrayList<>(matches.cardinality());
+        for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+            results.add(ids.get(slot));
+        }
+        return results;
+    }
+
+    /**
+     * @param moodEvent The mood event to check
+     * @param query The keywords to search for
+     * @return true if the indexed version of the mood event matches the query
+     */
+    public boolean matches(@NonNull MoodEvent moodEvent, @NonNull String query) {
+        Integer slot = moodEvent.getId() != null ? slotsById.get(moodEvent.getId()) : null;
+        return slot != null && match(query).get(slot);
+    }
+
+    private BitSet match(String query) {
+        BitSet result = null;
+        for (String word : Tokenizer.tokenize(query)) {
+            BitSet wordMatches = new BitSet();
+            // Every token starting with the word sorts between the word and the word followed by the highest char
+            SortedMap<String, BitSet> range = postings.subMap(word, word + Character.MAX_VALUE);
+            for (BitSet slots : range.values()) {
+                wordMatches.or(slots);
+            }
+            if (result == null) {
+                result = wordMatches;
+            } else {
+                result.and(wordMatches);
+            }
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        if (result == null) {
+            result = new BitSet();
+            for (int slot : slotsById.values()) {
+                result.set(slot);
+            }
+        }
+        return result;
+    }
+
+    private void unindex(int slot) {
+        String[] eventTokens = tokens.get(slot);
+        if (eventTokens == null) {
+            return;
+        }
+        for (String token : eventTokens) {
+            BitSet slots = postings.get(token);
+            if (slots != null) {
+                slots.clear(slot);
+                if (slots.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+        tokens.set(slot, null);
+    }
+
+    private static String searchableText(MoodEvent moodEvent) {
+        return moodEvent.getTitle() + '\u0000' + moodEvent.getReason() + '\u0000' + moodEvent.getTrigger();
+    }
+}
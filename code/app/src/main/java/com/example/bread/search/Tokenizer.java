@@ -0,0 +1,141 @@
+package com.example.bread.search;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits mood event text into normalized search tokens.
+ * <p>
+ * Text is lowercased, stripped of diacritics and split on anything that is not a letter or digit,
+ * so "Café exams!" becomes [cafe, exams]. The same rules must be used for indexing and querying.
+ * <p>
+ * Firestore can only match whole array elements, so the search tokens stored with a mood event hold
+ * every prefix of its words, see {@link #searchTokens(MoodEvent)}, and a query word matches the
+ * events with a word starting with it.
+ */
+public final class Tokenizer {
+    /**
+     * Longest prefix stored in the search tokens, longer query words are queried by this many characters
+     */
+    public static final int MAX_PREFIX_LENGTH = 20;
+
+    private Tokenizer() {
+    }
+
+    /**
+     * @param text The text to normalize
+     * @return The text lowercased and without diacritics
+     */
+    @NonNull
+    public static String normalize(@NonNull String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                builder.append(c);
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param text The text to tokenize, may be null
+     * @return The distinct tokens of the text, in order of first occurrence
+     */
+    @NonNull
+    public static List<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(text, tokens);
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * @param moodEvent The mood event to tokenize
+     * @return The distinct tokens of the title, reason and trigger of the mood event
+     */
+    @NonNull
+    public static List<String> tokenize(@NonNull MoodEvent moodEvent) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(moodEvent.getTitle(), tokens);
+        addTokens(moodEvent.getReason(), tokens);
+        addTokens(moodEvent.getTrigger(), tokens);
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * @param moodEvent The mood event to compute the stored search tokens of
+     * @return Every prefix, up to {@value #MAX_PREFIX_LENGTH} characters, of the tokens of the mood event
+     */
+    @NonNull
+    public static List<String> searchTokens(@NonNull MoodEvent moodEvent) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        for (String token : tokenize(moodEvent)) {
+            for (int length = 1; length <= Math.min(token.length(), MAX_PREFIX_LENGTH); length++) {
+                prefixes.add(token.substring(0, length));
+            }
+        }
+        return new ArrayList<>(prefixes);
+    }
+
+    /**
+     * @param word A token of a query
+     * @return The search token a query for the word looks up, see {@link #searchTokens(MoodEvent)}
+     */
+    @NonNull
+    public static String queryToken(@NonNull String word) {
+        return word.length() > MAX_PREFIX_LENGTH ? word.substring(0, MAX_PREFIX_LENGTH) : word;
+    }
+
+    /**
+     * Checks a mood event against the tokens of a query from its own text, so it also works for
+     * events stored without search tokens
+     * @param moodEvent The mood event to check
+     * @param words The tokens of the query
+     * @return true if every word is the start of a word of the title, reason or trigger
+     */
+    public static boolean matchesAll(@NonNull MoodEvent moodEvent, @NonNull List<String> words) {
+        if (words.isEmpty()) {
+            return true;
+        }
+        List<String> tokens = tokenize(moodEvent);
+        for (String word : words) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addTokens(String text, Set<String> tokens) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+}
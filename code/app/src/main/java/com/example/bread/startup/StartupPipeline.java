@@ -0,0 +1,89 @@
+package com.example.bread.startup;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.repository.ParticipantRepository;
+
+/**
+ * Runs the work of a cold start and measures how long it takes until the first feed row is shown.
+ * <p>
+ * Firestore keeps its default persistent cache, so nothing has to be set up before the first
+ * activity is created. The launcher goes straight to the home page or the login page, and the home
+ * page starts reading the follow graph before it inflates its views, so the feed listener finds the
+ * read already running. The feed query
+ * itself needs the follow graph and starts once the feed tab is created; until it delivers, the feed
+ * shows the page saved by the last session.
+ * <p>
+ * Time to first feed row, from the start of the process to the first rows of the feed being shown,
+ * is logged and reported as fully drawn, for launches from the launcher only. All methods are called
+ * on the main thread.
+ */
+public final class StartupPipeline {
+    private static final String TAG = "StartupPipeline";
+
+    private static StartupPipeline instance;
+
+    private boolean homeCreated = false;
+    private boolean measuring = false;
+    private long timeToFirstFeedRowMs = -1;
+
+    private StartupPipeline() {
+    }
+
+    public static synchronized StartupPipeline getInstance() {
+        if (instance == null) {
+            instance = new StartupPipeline();
+        }
+        return instance;
+    }
+
+    /**
+     * Called by the home page before it inflates its views. Starts the reads the feed waits for unless
+     * the home page is recreated, and starts measuring if this is the first home page of a launch from the launcher.
+     *
+     * @param activity           The home page
+     * @param savedInstanceState The saved state of the home page, null unless it is recreated
+     * @param username           The signed in user, or null if the user has no username yet
+     */
+    public void onHomeCreated(@NonNull Activity activity, Bundle savedInstanceState, String username) {
+        if (!homeCreated) {
+            homeCreated = true;
+            Intent intent = activity.getIntent();
+            measuring = savedInstanceState == null && intent != null && Intent.ACTION_MAIN.equals(intent.getAction());
+        }
+        // A recreated home page keeps its feed view model, which does not read the follow graph again
+        if (username != null && savedInstanceState == null) {
+            new ParticipantRepository().prefetchFollowing(username);
+        }
+    }
+
+    /**
+     * Called whenever rows of the feed were shown, only the first call of a measured launch is recorded
+     *
+     * @param activity The home page
+     * @param restored True if the rows were restored from the last session rather than loaded
+     */
+    public void onFeedRowsShown(@NonNull Activity activity, boolean restored) {
+        if (!measuring) {
+            return;
+        }
+        measuring = false;
+        timeToFirstFeedRowMs = SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime();
+        Log.i(TAG, "Time to first feed row: " + timeToFirstFeedRowMs + " ms" + (restored ? " (restored)" : " (loaded)"));
+        activity.reportFullyDrawn();
+    }
+
+    /**
+     * @return Milliseconds from the start of the process to the first feed row, or -1 if not measured
+     */
+    public long getTimeToFirstFeedRowMs() {
+        return timeToFirstFeedRowMs;
+    }
+}
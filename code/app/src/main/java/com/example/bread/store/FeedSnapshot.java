@@ -0,0 +1,237 @@
+package com.example.bread.store;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+import com.google.firebase.firestore.FirebaseFirestore;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The first page of a mood event list as it was last shown, saved as a small binary file so the
+ * next cold start can show it before any query runs.
+ * <p>
+ * The file starts with a magic number, the format version and the watermark, the time the page was
+ * saved. Every string of the page (ids, texts, author paths, search tokens) is written once to a
+ * dictionary and rows refer to it by index, so repeated authors and titles cost four bytes. A row
+ * holds everything {@link MoodEvent#equals} compares except images kept inline, so the events read
+ * back are equal to the ones the listener delivers later and the list only has to apply what changed
+ * since. Files of another version are ignored rather than migrated, they are rewritten once the
+ * listener delivers.
+ * <p>
+ * Only the reference and BlurHash of an attached image are saved. Inline images, binary or legacy
+ * base64, would make the page as large as the images and be copied on the main thread when it is
+ * restored; their rows show the placeholder until the listener delivers them. Presentation data is
+ * not saved either: the emoticon is a lookup of the saved emotional state, and the date text of the
+ * home feed is relative to the time it is shown, so a saved one would be stale. Both are computed
+ * with the rest of the row off the main thread.
+ * <p>
+ * Reading maps the file instead of copying it onto the heap.
+ */
+public final class FeedSnapshot {
+    private static final int MAGIC = 0x42524653; // "BRFS"
+    static final int VERSION = 2;
+    private static final int NONE = -1;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final long watermark;
+    private final List<MoodEvent> events;
+
+    private FeedSnapshot(long watermark, List<MoodEvent> events) {
+        this.watermark = watermark;
+        this.events = events;
+    }
+
+    /**
+     * @return The time the page was saved, in epoch millis
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    /**
+     * @return The events of the page, newest first. The list must not be modified.
+     */
+    @NonNull
+    public List<MoodEvent> getEvents() {
+        return events;
+    }
+
+    /**
+     * Writes the page to a temporary file next to the target, then renames it, so a reader never sees half a page
+     *
+     * @param file      The file to write
+     * @param watermark The time the page is saved
+     * @param events    The events of the page, in display order
+     * @throws IOException If the file could not be written
+     */
+    public static void write(@NonNull File file, long watermark, @NonNull List<MoodEvent> events) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int stringBytes = 0;
+        int[][] rows = new int[events.size()][];
+        for (int i = 0; i < events.size(); i++) {
+            MoodEvent event = events.get(i);
+            Map<String, Object> geoInfo = event.getGeoInfo();
+            rows[i] = new int[]{
+                    intern(indexes, strings, event.getId()),
+                    intern(indexes, strings, event.getTitle()),
+                    intern(indexes, strings, event.getReason()),
+                    intern(indexes, strings, event.getTrigger()),
+                    intern(indexes, strings, event.getParticipantRef() != null ? event.getParticipantRef().getPath() : null),
+                    intern(indexes, strings, isPlainLocation(geoInfo) ? (String) geoInfo.get("geohash") : null),
+                    intern(indexes, strings, event.getAttachedImageRef()),
+                    intern(indexes, strings, event.getAttachedImagePlaceholder()),
+                    // Search tokens never contain spaces
+                    intern(indexes, strings, event.getSearchTokens() != null ? String.join(" ", event.getSearchTokens()) : null),
+            };
+        }
+        for (byte[] string : strings) {
+            stringBytes += 4 + string.length;
+        }
+
+        int rowBytes = 8 + 1 + 9 * 4 + 2 * 8;
+        ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 8 + 4 + stringBytes + 4 + events.size() * rowBytes);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(watermark);
+        buffer.putInt(strings.size());
+        for (byte[] string : strings) {
+            buffer.putInt(string.length).put(string);
+        }
+        buffer.putInt(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            MoodEvent event = events.get(i);
+            buffer.putLong(event.getTimestamp() != null ? event.getTimestamp().getTime() : NO_TIME);
+            buffer.put((byte) (code(event.getEmotionalState()) | code(event.getSocialSituation()) << 4));
+            for (int index : rows[i]) {
+                buffer.putInt(index);
+            }
+            Map<String, Object> geoInfo = event.getGeoInfo();
+            boolean located = isPlainLocation(geoInfo);
+            buffer.putDouble(located ? (Double) geoInfo.get("latitude") : Double.NaN);
+            buffer.putDouble(located ? (Double) geoInfo.get("longitude") : Double.NaN);
+        }
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(buffer.array(), 0, buffer.position());
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * @param file The file of a page written by {@link #write}
+     * @return The page, or null if there is no file or it was written in another format
+     * @throws IOException If the file could not be read or is truncated
+     */
+    public static FeedSnapshot read(@NonNull File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 16 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long watermark = buffer.getLong();
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            FirebaseFirestore db = null;
+            int count = buffer.getInt();
+            List<MoodEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                MoodEvent event = new MoodEvent();
+                long time = buffer.getLong();
+                event.setTimestamp(time != NO_TIME ? new Date(time) : null);
+                int states = buffer.get();
+                event.setEmotionalState(decode(MoodEvent.EmotionalState.values(), states & 0x0F));
+                event.setSocialSituation(decode(MoodEvent.SocialSituation.values(), (states >> 4) & 0x0F));
+                event.setId(string(strings, buffer.getInt()));
+                event.setTitle(string(strings, buffer.getInt()));
+                event.setReason(string(strings, buffer.getInt()));
+                event.setTrigger(string(strings, buffer.getInt()));
+                String participantPath = string(strings, buffer.getInt());
+                if (participantPath != null) {
+                    // Only builds a reference, nothing is read from Firestore
+                    db = db != null ? db : FirebaseFirestore.getInstance();
+                    event.setParticipantRef(db.document(participantPath));
+                }
+                String geohash = string(strings, buffer.getInt());
+                event.setAttachedImageRef(string(strings, buffer.getInt()));
+                event.setAttachedImagePlaceholder(string(strings, buffer.getInt()));
+                String searchTokens = string(strings, buffer.getInt());
+                if (searchTokens != null) {
+                    event.setSearchTokens(searchTokens.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(searchTokens.split(" "))));
+                }
+                double latitude = buffer.getDouble();
+                double longitude = buffer.getDouble();
+                if (!Double.isNaN(latitude)) {
+                    Map<String, Object> geoInfo = new HashMap<>();
+                    geoInfo.put("geohash", geohash);
+                    geoInfo.put("latitude", latitude);
+                    geoInfo.put("longitude", longitude);
+                    event.setGeoInfo(geoInfo);
+                }
+                events.add(event);
+            }
+            return new FeedSnapshot(watermark, Collections.unmodifiableList(events));
+        } catch (RuntimeException e) {
+            // A truncated or corrupted file underflows the buffer or holds indexes out of range
+            throw new IOException("Corrupted feed snapshot " + file, e);
+        }
+    }
+
+    private static int intern(Map<String, Integer> indexes, List<byte[]> strings, String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer index = indexes.get(value);
+        if (index == null) {
+            index = strings.size();
+            indexes.put(value, index);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return index;
+    }
+
+    private static String string(String[] strings, int index) {
+        return index != NONE ? strings[index] : null;
+    }
+
+    /**
+     * Other location shapes are not saved, the listener delivers them
+     */
+    private static boolean isPlainLocation(Map<String, Object> geoInfo) {
+        return geoInfo != null && geoInfo.size() == 3
+                && geoInfo.get("geohash") instanceof String
+                && geoInfo.get("latitude") instanceof Double
+                && geoInfo.get("longitude") instanceof Double;
+    }
+
+    private static int code(Enum<?> value) {
+        return value != null ? value.ordinal() + 1 : 0;
+    }
+
+    private static <E> E decode(E[] values, int code) {
+        return code != 0 && code <= values.length ? values[code - 1] : null;
+    }
+}
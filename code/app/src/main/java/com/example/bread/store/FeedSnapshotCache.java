@@ -0,0 +1,100 @@
+package com.example.bread.store;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the first page of each mood event list in a {@link FeedSnapshot} file, so a cold start shows
+ * the list as it was left before authentication, the follow graph and the listener finish.
+ * <p>
+ * Pages are loaded on the main thread, the files are small and mapped rather than read. Pages are saved
+ * from the thread the lists are filtered on and written on a background thread, and only when they changed. A page older than {@link #MAX_AGE_MS} is not shown,
+ * its relative times and contents would be too far off.
+ */
+public class FeedSnapshotCache {
+    private static final String TAG = "FeedSnapshotCache";
+    private static final String SNAPSHOT_DIR = "feed_snapshots";
+    // A full feed, and more than the first page of the history
+    public static final int MAX_ROWS = 50;
+    static final long MAX_AGE_MS = TimeUnit.DAYS.toMillis(7);
+
+    private static FeedSnapshotCache instance;
+
+    private final File snapshotDir;
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+    // Last page saved by name, loaded on the main thread and saved from the filtering thread
+    private final Map<String, List<MoodEvent>> savedPages = new ConcurrentHashMap<>();
+
+    FeedSnapshotCache(@NonNull File snapshotDir) {
+        this.snapshotDir = snapshotDir;
+    }
+
+    public static synchronized FeedSnapshotCache getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new FeedSnapshotCache(new File(context.getApplicationContext().getFilesDir(), SNAPSHOT_DIR));
+        }
+        return instance;
+    }
+
+    private File fileOf(String name) {
+        return new File(snapshotDir, name.replaceAll("[^A-Za-z0-9_-]", "_") + ".bin");
+    }
+
+    /**
+     * @param name The name of the list, unique per user
+     * @return The page saved last, or null if there is none, it is too old or it cannot be read
+     */
+    public FeedSnapshot load(@NonNull String name) {
+        try {
+            FeedSnapshot snapshot = FeedSnapshot.read(fileOf(name));
+            if (snapshot == null || System.currentTimeMillis() - snapshot.getWatermark() > MAX_AGE_MS) {
+                return null;
+            }
+            savedPages.put(name, snapshot.getEvents());
+            return snapshot;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to read the snapshot of " + name, e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves the first {@value #MAX_ROWS} events of a list, unless they are the page saved last
+     *
+     * @param name   The name of the list, unique per user
+     * @param events The events shown, in display order
+     */
+    public void save(@NonNull String name, @NonNull List<MoodEvent> events) {
+        List<MoodEvent> page = new ArrayList<>(events.subList(0, Math.min(MAX_ROWS, events.size())));
+        if (page.equals(savedPages.get(name))) {
+            return;
+        }
+        savedPages.put(name, page);
+        long watermark = System.currentTimeMillis();
+        File file = fileOf(name);
+        writeExecutor.execute(() -> {
+            try {
+                if (!snapshotDir.isDirectory() && !snapshotDir.mkdirs()) {
+                    throw new IOException("Could not create " + snapshotDir);
+                }
+                FeedSnapshot.write(file, watermark, page);
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to save the snapshot of " + name, e);
+            }
+        });
+    }
+}
@@ -0,0 +1,386 @@
+package com.example.bread.store;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.MoodEvent;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentReference;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Immutable, column oriented store of mood events, newest first.
+ * <p>
+ * Instead of one object graph per event (a Date, a HashMap for the location, a DocumentReference,
+ * several Strings), every field is a column indexed by position: timestamps are a {@code long[]},
+ * the emotional state and social situation share one byte, authors are indexes into a table holding
+ * one reference per distinct author, and locations are two {@code double[]}. The text fields of all
+ * events are kept as UTF-8 in a single byte array and only turned into Strings when an event is read.
+ * 50,000 events take a few MB this way, against tens of MB as objects.
+ * <p>
+ * The instances of the newest {@value #MAX_RESIDENT_EVENTS} events are kept as they were given, so
+ * reading one returns the shared repository instance and adapters can keep telling unchanged rows
+ * apart by identity. The repository keeps no more instances than that, so this adds no events to
+ * memory. {@link #get(int)} materializes a new {@link MoodEvent} equal to the one that was stored
+ * only for older events. {@link #asList()} and {@link #view(int[])} are lists backed by the store,
+ * which replace copies of the events.
+ */
+public final class MoodEventStore {
+    private static final MoodEvent.EmotionalState[] STATES = MoodEvent.EmotionalState.values();
+    private static final MoodEvent.SocialSituation[] SITUATIONS = MoodEvent.SocialSituation.values();
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private static final int NO_AUTHOR = -1;
+    // As many as the repository shares instances of, lists never show more
+    public static final int MAX_RESIDENT_EVENTS = 2000;
+
+    // Text fields of an event, in the order they are kept in the text column
+    private static final int TEXT_ID = 0;
+    private static final int TEXT_TITLE = 1;
+    private static final int TEXT_REASON = 2;
+    private static final int TEXT_TRIGGER = 3;
+    private static final int TEXT_GEOHASH = 4;
+    private static final int TEXT_IMAGE = 5;
+    private static final int TEXT_IMAGE_REF = 6;
+    private static final int TEXT_IMAGE_PLACEHOLDER = 7;
+    private static final int TEXT_SEARCH_TOKENS = 8;
+    private static final int TEXT_FIELDS = 9;
+
+    private static final MoodEventStore EMPTY = of(Collections.emptyList());
+
+    private final int size;
+    private final long[] times;
+    // Emotional state ordinal + 1 in the low 4 bits, social situation ordinal + 1 in the high 4 bits, 0 for none
+    private final byte[] states;
+    private final int[] authors;
+    private final DocumentReference[] authorRefs;
+    // NaN if the event has no location
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final byte[] text;
+    // Start of each text field in the text column, the next entry is its end
+    private final int[] textOffsets;
+    // Text fields that are set, a field that is not is read as null rather than ""
+    private final BitSet textPresent;
+    // Rarely set fields, by position
+    private final Map<Integer, byte[]> imageData;
+    private final Map<Integer, Map<String, Object>> otherGeoInfo;
+    // Open addressing table of position + 1 by id hash, to look events up by id
+    private final int[] idTable;
+    private final int[] idHashes;
+    // The given instances of the newest events
+    private final MoodEvent[] resident;
+
+    private MoodEventStore(List<MoodEvent> events) {
+        size = events.size();
+        resident = events.subList(0, Math.min(size, MAX_RESIDENT_EVENTS)).toArray(new MoodEvent[0]);
+        times = new long[size];
+        states = new byte[size];
+        authors = new int[size];
+        latitudes = new double[size];
+        longitudes = new double[size];
+        textOffsets = new int[size * TEXT_FIELDS + 1];
+        textPresent = new BitSet(size * TEXT_FIELDS);
+        imageData = new HashMap<>();
+        otherGeoInfo = new HashMap<>();
+        idHashes = new int[size];
+
+        Map<String, Integer> authorIndexes = new HashMap<>();
+        List<DocumentReference> authorList = new ArrayList<>();
+        TextWriter writer = new TextWriter(size * 64);
+        for (int i = 0; i < size; i++) {
+            MoodEvent event = events.get(i);
+            times[i] = event.getTimestamp() != null ? event.getTimestamp().getTime() : NO_TIME;
+            states[i] = (byte) (code(event.getEmotionalState()) | code(event.getSocialSituation()) << 4);
+
+            DocumentReference author = event.getParticipantRef();
+            if (author == null) {
+                authors[i] = NO_AUTHOR;
+            } else {
+                Integer index = authorIndexes.get(author.getPath());
+                if (index == null) {
+                    index = authorList.size();
+                    authorIndexes.put(author.getPath(), index);
+                    authorList.add(author);
+                }
+                authors[i] = index;
+            }
+
+            String geohash = null;
+            latitudes[i] = Double.NaN;
+            longitudes[i] = Double.NaN;
+            Map<String, Object> geoInfo = event.getGeoInfo();
+            if (isPlainLocation(geoInfo)) {
+                geohash = (String) geoInfo.get("geohash");
+                latitudes[i] = (Double) geoInfo.get("latitude");
+                longitudes[i] = (Double) geoInfo.get("longitude");
+            } else if (geoInfo != null) {
+                otherGeoInfo.put(i, new HashMap<>(geoInfo));
+            }
+
+            byte[] data = event.getAttachedImageData() != null ? event.getAttachedImageData().toBytes() : null;
+            if (data != null) {
+                imageData.put(i, data);
+            }
+
+            String id = event.getId();
+            idHashes[i] = id != null ? id.hashCode() : 0;
+            int field = i * TEXT_FIELDS;
+            writeText(writer, field + TEXT_ID, id);
+            writeText(writer, field + TEXT_TITLE, event.getTitle());
+            writeText(writer, field + TEXT_REASON, event.getReason());
+            writeText(writer, field + TEXT_TRIGGER, event.getTrigger());
+            writeText(writer, field + TEXT_GEOHASH, geohash);
+            writeText(writer, field + TEXT_IMAGE, event.getAttachedImage());
+            writeText(writer, field + TEXT_IMAGE_REF, event.getAttachedImageRef());
+            writeText(writer, field + TEXT_IMAGE_PLACEHOLDER, event.getAttachedImagePlaceholder());
+            // Search tokens never contain spaces
+            writeText(writer, field + TEXT_SEARCH_TOKENS, event.getSearchTokens() != null ? String.join(" ", event.getSearchTokens()) : null);
+        }
+        textOffsets[size * TEXT_FIELDS] = writer.length;
+        text = writer.toByteArray();
+        authorRefs = authorList.toArray(new DocumentReference[0]);
+
+        idTable = new int[Integer.highestOneBit(Math.max(1, size) * 2) * 2];
+        for (int i = 0; i < size; i++) {
+            if (textPresent.get(i * TEXT_FIELDS + TEXT_ID)) {
+                int slot = slotOf(idHashes[i]);
+                while (idTable[slot] != 0) {
+                    slot = (slot + 1) & (idTable.length - 1);
+                }
+                idTable[slot] = i + 1;
+            }
+        }
+    }
+
+    /**
+     * @param moodEvents The events to store, in any order
+     * @return A store holding the events newest first, events without a timestamp last
+     */
+    @NonNull
+    public static MoodEventStore of(@NonNull Collection<MoodEvent> moodEvents) {
+        List<MoodEvent> sorted = new ArrayList<>(moodEvents);
+        sorted.sort(Collections.reverseOrder());
+        return new MoodEventStore(sorted);
+    }
+
+    @NonNull
+    public static MoodEventStore empty() {
+        return EMPTY;
+    }
+
+    private static boolean isPlainLocation(Map<String, Object> geoInfo) {
+        return geoInfo != null && geoInfo.size() == 3
+                && geoInfo.get("geohash") instanceof String
+                && geoInfo.get("latitude") instanceof Double
+                && geoInfo.get("longitude") instanceof Double;
+    }
+
+    private static int code(Enum<?> value) {
+        return value != null ? value.ordinal() + 1 : 0;
+    }
+
+    private void writeText(TextWriter writer, int field, String value) {
+        textOffsets[field] = writer.length;
+        if (value != null) {
+            textPresent.set(field);
+            writer.write(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private int slotOf(int hash) {
+        // Spread the high bits, ids often only differ there
+        return (hash ^ (hash >>> 16)) & (idTable.length - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The timestamp of the event in epoch millis, or {@link Long#MIN_VALUE} if it has none
+     */
+    public long getTime(int position) {
+        return times[position];
+    }
+
+    public MoodEvent.EmotionalState getEmotionalState(int position) {
+        int code = states[position] & 0x0F;
+        return code != 0 ? STATES[code - 1] : null;
+    }
+
+    public MoodEvent.SocialSituation getSocialSituation(int position) {
+        int code = (states[position] >> 4) & 0x0F;
+        return code != 0 ? SITUATIONS[code - 1] : null;
+    }
+
+    public DocumentReference getParticipantRef(int position) {
+        return authors[position] != NO_AUTHOR ? authorRefs[authors[position]] : null;
+    }
+
+    public String getId(int position) {
+        return readText(position * TEXT_FIELDS + TEXT_ID);
+    }
+
+    public String getTitle(int position) {
+        return readText(position * TEXT_FIELDS + TEXT_TITLE);
+    }
+
+    public String getReason(int position) {
+        return readText(position * TEXT_FIELDS + TEXT_REASON);
+    }
+
+    public String getTrigger(int position) {
+        return readText(position * TEXT_FIELDS + TEXT_TRIGGER);
+    }
+
+    private String readText(int field) {
+        if (!textPresent.get(field)) {
+            return null;
+        }
+        int start = textOffsets[field];
+        return new String(text, start, textOffsets[field + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param id The id of an event
+     * @return The position of the event with that id, or -1 if the store does not hold it
+     */
+    public int indexOf(@NonNull String id) {
+        int hash = id.hashCode();
+        int slot = slotOf(hash);
+        while (idTable[slot] != 0) {
+            int position = idTable[slot] - 1;
+            if (idHashes[position] == hash && id.equals(getId(position))) {
+                return position;
+            }
+            slot = (slot + 1) & (idTable.length - 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Reads the event at a position. Resident events are the instances the store was given, older
+     * ones are materialized as a new object on every call.
+     *
+     * @param position The position of the event, 0 being the newest
+     * @return An event equal to the one stored
+     */
+    @NonNull
+    public MoodEvent get(int position) {
+        if (position < resident.length) {
+            return resident[position];
+        }
+        MoodEvent event = new MoodEvent();
+        int field = position * TEXT_FIELDS;
+        event.setId(readText(field + TEXT_ID));
+        event.setTitle(readText(field + TEXT_TITLE));
+        event.setReason(readText(field + TEXT_REASON));
+        event.setTrigger(readText(field + TEXT_TRIGGER));
+        event.setAttachedImage(readText(field + TEXT_IMAGE));
+        event.setAttachedImageRef(readText(field + TEXT_IMAGE_REF));
+        event.setAttachedImagePlaceholder(readText(field + TEXT_IMAGE_PLACEHOLDER));
+        String searchTokens = readText(field + TEXT_SEARCH_TOKENS);
+        if (searchTokens != null) {
+            event.setSearchTokens(searchTokens.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(searchTokens.split(" "))));
+        }
+        event.setTimestamp(times[position] != NO_TIME ? new Date(times[position]) : null);
+        event.setEmotionalState(getEmotionalState(position));
+        event.setSocialSituation(getSocialSituation(position));
+        event.setParticipantRef(getParticipantRef(position));
+        if (!Double.isNaN(latitudes[position])) {
+            Map<String, Object> geoInfo = new HashMap<>();
+            geoInfo.put("geohash", readText(field + TEXT_GEOHASH));
+            geoInfo.put("latitude", latitudes[position]);
+            geoInfo.put("longitude", longitudes[position]);
+            event.setGeoInfo(geoInfo);
+        } else if (otherGeoInfo.containsKey(position)) {
+            event.setGeoInfo(new HashMap<>(otherGeoInfo.get(position)));
+        }
+        byte[] data = imageData.get(position);
+        if (data != null) {
+            event.setAttachedImageData(Blob.fromBytes(data));
+        }
+        return event;
+    }
+
+    /**
+     * @return Every event, newest first, see {@link #get(int)}
+     */
+    @NonNull
+    public List<MoodEvent> asList() {
+        return new View(this, null);
+    }
+
+    /**
+     * @param positions Positions of the store, in the order the list should have them
+     * @return The events at the positions, see {@link #get(int)}
+     */
+    @NonNull
+    public List<MoodEvent> view(@NonNull int[] positions) {
+        return new View(this, positions);
+    }
+
+    /**
+     * An unmodifiable list of events read from a store
+     */
+    private static final class View extends AbstractList<MoodEvent> implements RandomAccess {
+        private final MoodEventStore store;
+        private final int[] positions;
+
+        private View(MoodEventStore store, int[] positions) {
+            this.store = store;
+            this.positions = positions;
+        }
+
+        @Override
+        public MoodEvent get(int index) {
+            if (positions == null) {
+                if (index < 0 || index >= store.size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + store.size);
+                }
+                return store.get(index);
+            }
+            return store.get(positions[index]);
+        }
+
+        @Override
+        public int size() {
+            return positions != null ? positions.length : store.size;
+        }
+    }
+
+    /**
+     * A growable byte array, avoids the synchronization of ByteArrayOutputStream
+     */
+    private static final class TextWriter {
+        private byte[] bytes;
+        private int length;
+
+        TextWriter(int capacity) {
+            bytes = new byte[Math.max(16, capacity)];
+        }
+
+        void write(byte[] value) {
+            if (length + value.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + value.length));
+            }
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
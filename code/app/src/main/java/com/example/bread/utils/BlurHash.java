@@ -0,0 +1,206 @@
+package com.example.bread.utils;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Encodes an image into a BlurHash, a string of a few dozen characters describing a blurred version of it,
+ * and decodes it back into pixels. See https://blurha.sh for the format.
+ * <p>
+ * The hash is computed once when an image is uploaded and stored next to its reference, so lists can
+ * show a preview of the right colors and shape while the real image is still loading.
+ * Works on ARGB pixel arrays, see {@link ImageHandler#blurHash} for bitmaps.
+ */
+public final class BlurHash {
+    private static final String BASE83 = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+    private static final int MAX_COMPONENTS = 9;
+
+    private BlurHash() {
+    }
+
+    /**
+     * @param pixels      the ARGB pixels of the image, row by row
+     * @param width       the width of the image
+     * @param height      the height of the image
+     * @param componentsX the number of horizontal components, 1 to 9, more keeps more detail
+     * @param componentsY the number of vertical components, 1 to 9
+     * @return the hash, 4 + 2 * componentsX * componentsY characters long
+     */
+    @NonNull
+    public static String encode(@NonNull int[] pixels, int width, int height, int componentsX, int componentsY) {
+        if (componentsX < 1 || componentsX > MAX_COMPONENTS || componentsY < 1 || componentsY > MAX_COMPONENTS) {
+            throw new IllegalArgumentException("Components must be between 1 and " + MAX_COMPONENTS);
+        }
+        if (width <= 0 || height <= 0 || pixels.length < width * height) {
+            throw new IllegalArgumentException("Invalid image size " + width + "x" + height);
+        }
+
+        float[] linear = new float[width * height * 3];
+        for (int p = 0; p < width * height; p++) {
+            linear[p * 3] = srgbToLinear((pixels[p] >> 16) & 0xff);
+            linear[p * 3 + 1] = srgbToLinear((pixels[p] >> 8) & 0xff);
+            linear[p * 3 + 2] = srgbToLinear(pixels[p] & 0xff);
+        }
+        float[][] cosX = cosines(componentsX, width);
+        float[][] cosY = cosines(componentsY, height);
+
+        float[][] factors = new float[componentsX * componentsY][3];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                float normalisation = (i == 0 && j == 0) ? 1 : 2;
+                float r = 0, g = 0, b = 0;
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        float basis = cosX[i][x] * cosY[j][y];
+                        int p = (y * width + x) * 3;
+                        r += basis * linear[p];
+                        g += basis * linear[p + 1];
+                        b += basis * linear[p + 2];
+                    }
+                }
+                float scale = normalisation / (width * height);
+                factors[j * componentsX + i] = new float[]{r * scale, g * scale, b * scale};
+            }
+        }
+
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length);
+        encode83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+        float maximumValue;
+        if (factors.length > 1) {
+            float actualMaximum = 0;
+            for (int f = 1; f < factors.length; f++) {
+                for (float value : factors[f]) {
+                    actualMaximum = Math.max(actualMaximum, Math.abs(value));
+                }
+            }
+            int quantisedMaximum = (int) Math.max(0, Math.min(82, Math.floor(actualMaximum * 166 - 0.5)));
+            maximumValue = (quantisedMaximum + 1) / 166f;
+            encode83(hash, quantisedMaximum, 1);
+        } else {
+            maximumValue = 1;
+            encode83(hash, 0, 1);
+        }
+        float[] dc = factors[0];
+        encode83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+        for (int f = 1; f < factors.length; f++) {
+            float[] ac = factors[f];
+            encode83(hash, quantiseAc(ac[0], maximumValue) * 19 * 19 + quantiseAc(ac[1], maximumValue) * 19 + quantiseAc(ac[2], maximumValue), 2);
+        }
+        return hash.toString();
+    }
+
+    /**
+     * @param hash   the hash to decode
+     * @param width  the width of the preview, a few dozen pixels are enough since it is blurred anyway
+     * @param height the height of the preview
+     * @return the opaque ARGB pixels of the preview, row by row, or null if the hash is malformed
+     */
+    public static int[] decode(String hash, int width, int height) {
+        if (hash == null || hash.length() < 6 || width <= 0 || height <= 0) {
+            return null;
+        }
+        int sizeFlag = decode83(hash, 0, 1);
+        int componentsX = sizeFlag % 9 + 1;
+        int componentsY = sizeFlag / 9 + 1;
+        if (sizeFlag < 0 || hash.length() != 4 + 2 * componentsX * componentsY) {
+            return null;
+        }
+        int quantisedMaximum = decode83(hash, 1, 2);
+        int dc = decode83(hash, 2, 6);
+        if (quantisedMaximum < 0 || dc < 0) {
+            return null;
+        }
+        float maximumValue = (quantisedMaximum + 1) / 166f;
+
+        float[][] colors = new float[componentsX * componentsY][];
+        colors[0] = new float[]{srgbToLinear((dc >> 16) & 0xff), srgbToLinear((dc >> 8) & 0xff), srgbToLinear(dc & 0xff)};
+        for (int c = 1; c < colors.length; c++) {
+            int ac = decode83(hash, 4 + c * 2, 6 + c * 2);
+            if (ac < 0) {
+                return null;
+            }
+            colors[c] = new float[]{
+                    signedPow((ac / (19 * 19) - 9) / 9f) * maximumValue,
+                    signedPow((ac / 19 % 19 - 9) / 9f) * maximumValue,
+                    signedPow((ac % 19 - 9) / 9f) * maximumValue};
+        }
+
+        float[][] cosX = cosines(componentsX, width);
+        float[][] cosY = cosines(componentsY, height);
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float r = 0, g = 0, b = 0;
+                for (int j = 0; j < componentsY; j++) {
+                    for (int i = 0; i < componentsX; i++) {
+                        float basis = cosX[i][x] * cosY[j][y];
+                        float[] color = colors[j * componentsX + i];
+                        r += color[0] * basis;
+                        g += color[1] * basis;
+                        b += color[2] * basis;
+                    }
+                }
+                pixels[y * width + x] = 0xff000000 | (linearToSrgb(r) << 16) | (linearToSrgb(g) << 8) | linearToSrgb(b);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * @return cos(pi * component * position / size) for every component and position
+     */
+    private static float[][] cosines(int components, int size) {
+        float[][] cosines = new float[components][size];
+        for (int c = 0; c < components; c++) {
+            for (int p = 0; p < size; p++) {
+                cosines[c][p] = (float) Math.cos(Math.PI * c * p / size);
+            }
+        }
+        return cosines;
+    }
+
+    private static int quantiseAc(float value, float maximumValue) {
+        return (int) Math.max(0, Math.min(18, Math.floor(signedSqrt(value / maximumValue) * 9 + 9.5)));
+    }
+
+    private static float signedSqrt(float value) {
+        return Math.copySign((float) Math.sqrt(Math.abs(value)), value);
+    }
+
+    private static float signedPow(float value) {
+        return Math.copySign(value * value, value);
+    }
+
+    private static float srgbToLinear(int value) {
+        float v = value / 255f;
+        return v <= 0.04045f ? v / 12.92f : (float) Math.pow((v + 0.055f) / 1.055f, 2.4f);
+    }
+
+    private static int linearToSrgb(float value) {
+        float v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308f
+                ? (int) (v * 12.92f * 255 + 0.5f)
+                : (int) ((1.055f * Math.pow(v, 1 / 2.4f) - 0.055f) * 255 + 0.5f);
+    }
+
+    private static void encode83(StringBuilder out, int value, int length) {
+        for (int i = 1; i <= length; i++) {
+            int digit = (int) (value / Math.pow(83, length - i)) % 83;
+            out.append(BASE83.charAt(digit));
+        }
+    }
+
+    /**
+     * @return the value of the characters from start to end, or -1 if one is not a base 83 digit
+     */
+    private static int decode83(String hash, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = BASE83.indexOf(hash.charAt(i));
+            if (digit < 0) {
+                return -1;
+            }
+            value = value * 83 + digit;
+        }
+        return value;
+    }
+}
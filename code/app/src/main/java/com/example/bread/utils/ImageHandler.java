@@ -4,11 +4,24 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Base64;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Utility class for handling images that are stored in Firebase.
@@ -16,9 +29,24 @@ import java.io.InputStream;
  * <a href="https://stackoverflow.com/questions/18545246/how-to-compress-image-size">Compress Image Size</a>
  */
 public class ImageHandler {
+    private static final String TAG = "ImageHandler";
 
     public static final int MAX_IMAGE_SIZE = 64 * 1024; // 64 KB
     public static final float SCALE_FACTOR = 0.7f;
+    private static final float MIN_SCALE_FACTOR = 0.1f;
+    /**
+     * Longest side images are decoded to before compression. A 64 KB image cannot keep more detail than this.
+     */
+    public static final int MAX_DIMENSION = 1024;
+    public static final int MIN_QUALITY = 30;
+    public static final int MAX_QUALITY = 95;
+    // BlurHash previews are computed from a tiny copy and keep 4x3 components, about 30 characters
+    private static final int BLUR_HASH_SAMPLE_SIZE = 32;
+    private static final int BLUR_HASH_LONG_COMPONENTS = 4;
+    private static final int BLUR_HASH_SHORT_COMPONENTS = 3;
+
+    private static final ExecutorService compressExecutor = Executors.newSingleThreadExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     /**
      * Compress an image file to a base64 encoded string with size less that {@link #MAX_IMAGE_SIZE}.
@@ -33,19 +61,87 @@ public class ImageHandler {
      * For usage check out this android page <a href="https://developer.android.com/training/data-storage/shared/photopicker#java">Photo picker</a>
      * </p>
      *
+     * <p>
+     * This method does blocking IO and encoding, use {@link #compressImageToBase64Async} from the main thread.
+     * </p>
+     *
      * @param context the context
      * @param uri     the URI of the image file
      * @return Base64 encoded string of the compressed image
      * @throws IOException if the file cannot be read
      */
     public static String compressImageToBase64(Context context, Uri uri) throws IOException {
-        InputStream inputStream = context.getContentResolver().openInputStream(uri);
-        Bitmap orginalBitmap = BitmapFactory.decodeStream(inputStream);
-        if (inputStream != null) {
-            inputStream.close();
+        return compressImageToBase64(context, uri, Bitmap.CompressFormat.JPEG);
+    }
+
+    /**
+     * Same as {@link #compressImageToBase64(Context, Uri)}, encoding in the given format.
+     *
+     * @param context the context
+     * @param uri     the URI of the image file
+     * @param format  the format to encode in, see {@link #webpFormat()} for WebP
+     * @return Base64 encoded string of the compressed image
+     * @throws IOException if the file cannot be read
+     */
+    public static String compressImageToBase64(Context context, Uri uri, Bitmap.CompressFormat format) throws IOException {
+        Bitmap bitmap = decodeSampledBitmap(context, uri, MAX_DIMENSION);
+        return compressBitmapToBase64(bitmap, format);
+    }
+
+    /**
+     * Compress an image file on a background thread, delivering the result on the main thread.
+     *
+     * @param context           the context
+     * @param uri               the URI of the image file
+     * @param format            the format to encode in
+     * @param onSuccessListener receives the base64 encoded string of the compressed image
+     * @param onFailureListener receives the error if the file cannot be read
+     */
+    public static void compressImageToBase64Async(@NonNull Context context, @NonNull Uri uri, @NonNull Bitmap.CompressFormat format,
+                                                  @NonNull OnSuccessListener<String> onSuccessListener, OnFailureListener onFailureListener) {
+        Context appContext = context.getApplicationContext();
+        compressExecutor.execute(() -> {
+            try {
+                String base64 = compressImageToBase64(appContext, uri, format);
+                mainHandler.post(() -> onSuccessListener.onSuccess(base64));
+            } catch (IOException | RuntimeException e) {
+                Log.e(TAG, "Failed to compress image", e);
+                if (onFailureListener != null) {
+                    mainHandler.post(() -> onFailureListener.onFailure(e));
+                }
+            }
+        });
+    }
+
+    /**
+     * Decode an image file, skipping pixels while decoding so the result is not much larger than needed.
+     *
+     * @param context the context
+     * @param uri     the URI of the image file
+     * @param maxSize the longest side the decoded bitmap should have
+     * @return the decoded bitmap, at most twice maxSize on its longest side, or null if the file is not an image
+     * @throws IOException if the file cannot be read
+     */
+    public static Bitmap decodeSampledBitmap(Context context, Uri uri, int maxSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            BitmapFactory.decodeStream(inputStream, null, options);
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
         }
 
-        return compressBitmapToBase64(orginalBitmap);
+        options.inSampleSize = 1;
+        while (Math.max(options.outWidth, options.outHeight) / (options.inSampleSize * 2) >= maxSize) {
+            options.inSampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap;
+        try (InputStream inputStream = context.getContentResolver().openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(inputStream, null, options);
+        }
+        return bitmap != null ? scaleToFit(bitmap, maxSize) : null;
     }
 
     /**
@@ -55,42 +151,165 @@ public class ImageHandler {
      * @return Base64 encoded string of the compressed image
      */
     public static String compressBitmapToBase64(Bitmap bitmap) {
+        return compressBitmapToBase64(bitmap, Bitmap.CompressFormat.JPEG);
+    }
+
+    /**
+     * Compress a bitmap to a base64 encoded string with size less that {@link #MAX_IMAGE_SIZE}.
+     *
+     * <p>
+     * The highest quality that fits the limit is found by binary search, so an image is encoded
+     * about log2({@link #MAX_QUALITY} - {@link #MIN_QUALITY}) times. If even {@link #MIN_QUALITY}
+     * is too large, the bitmap is scaled down by the ratio it overshot by and searched again.
+     * </p>
+     *
+     * @param bitmap the bitmap to compress
+     * @param format the format to encode in
+     * @return Base64 encoded string of the compressed image
+     */
+    public static String compressBitmapToBase64(Bitmap bitmap, Bitmap.CompressFormat format) {
+        byte[] compressedData = compressBitmap(bitmap, format, MAX_IMAGE_SIZE);
+        return compressedData != null ? Base64.encodeToString(compressedData, Base64.DEFAULT) : null;
+    }
+
+    /**
+     * Compress a bitmap to at most the given number of bytes, see {@link #compressBitmapToBase64(Bitmap, Bitmap.CompressFormat)}.
+     *
+     * @param bitmap   the bitmap to compress
+     * @param format   the format to encode in
+     * @param maxBytes the size limit of the encoded image
+     * @return the encoded image
+     */
+    public static byte[] compressBitmap(Bitmap bitmap, Bitmap.CompressFormat format, int maxBytes) {
         if (bitmap == null) {
             return null;
         }
 
-        int quality = 100;
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        bitmap.compress(Bitmap.CompressFormat.JPEG, quality, outputStream);
-
-        // Keep reducing quality until we're under the size limit
-        while (outputStream.toByteArray().length > MAX_IMAGE_SIZE) {
-            outputStream.reset();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(maxBytes);
+        while (true) {
+            int low = MIN_QUALITY;
+            int high = MAX_QUALITY;
+            int best = -1;
+            int smallest = Integer.MAX_VALUE;
+            int quality = -1;
+            while (low <= high) {
+                quality = (low + high) >>> 1;
+                outputStream.reset();
+                bitmap.compress(format, quality, outputStream);
+                // size() reads the count without copying the buffer
+                int size = outputStream.size();
+                smallest = Math.min(smallest, size);
+                if (size <= maxBytes) {
+                    best = quality;
+                    low = quality + 1;
+                } else {
+                    high = quality - 1;
+                }
+            }
 
-            quality -= 10;
-            if (quality <= 10) {
-                quality = 70;
-                // Scale down the bitmap
-                bitmap = scaleBitmap(bitmap);
+            if (best >= 0) {
+                if (quality != best) {
+                    outputStream.reset();
+                    bitmap.compress(format, best, outputStream);
+                }
+                return outputStream.toByteArray();
+            }
+            if (bitmap.getWidth() <= 1 || bitmap.getHeight() <= 1) {
+                outputStream.reset();
+                bitmap.compress(format, MIN_QUALITY, outputStream);
+                return outputStream.toByteArray();
             }
-            bitmap.compress(Bitmap.CompressFormat.JPEG, quality, outputStream);
+            // Encoded size grows with the pixel count, so scale both sides by the square root of the overshoot,
+            // only clamped from below so a large overshoot still converges in a few passes
+            float factor = Math.max(MIN_SCALE_FACTOR, (float) Math.sqrt((double) maxBytes / smallest) * 0.95f);
+            bitmap = scaleBitmap(bitmap, factor);
         }
-        byte[] compressedData = outputStream.toByteArray();
-        return Base64.encodeToString(compressedData, Base64.DEFAULT);
     }
 
     /**
-     * Scale a bitmap by a factor of {@link #SCALE_FACTOR}.
+     * @return the lossy WebP format of the running platform, usually smaller than JPEG at the same quality
+     */
+    @SuppressWarnings("deprecation")
+    public static Bitmap.CompressFormat webpFormat() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? Bitmap.CompressFormat.WEBP_LOSSY : Bitmap.CompressFormat.WEBP;
+    }
+
+    /**
+     * Scale a bitmap so its longest side is at most the given size.
+     *
+     * @param bitmap  the bitmap to scale
+     * @param maxSize the longest side the bitmap may have
+     * @return the scaled bitmap, or the same bitmap if it already fits
+     */
+    public static Bitmap scaleToFit(Bitmap bitmap, int maxSize) {
+        int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        return longest > maxSize ? scaleBitmap(bitmap, (float) maxSize / longest) : bitmap;
+    }
+
+    /**
+     * Scale a bitmap by the given factor.
      *
      * @param bitmap the bitmap to scale
+     * @param factor the factor to scale both sides by
      * @return the scaled bitmap
      */
-    private static Bitmap scaleBitmap(Bitmap bitmap) {
-        int width = Math.round(bitmap.getWidth() * SCALE_FACTOR);
-        int height = Math.round(bitmap.getHeight() * SCALE_FACTOR);
+    private static Bitmap scaleBitmap(Bitmap bitmap, float factor) {
+        int width = Math.max(1, Math.round(bitmap.getWidth() * factor));
+        int height = Math.max(1, Math.round(bitmap.getHeight() * factor));
         return Bitmap.createScaledBitmap(bitmap, width, height, true);
     }
 
+    /**
+     * Hash encoded image data, so the same image always gets the same name wherever it is stored.
+     *
+     * @param data the encoded image
+     * @return the SHA-256 of the data as lowercase hex
+     */
+    public static String contentHash(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required on every Java platform
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Compute the BlurHash of a bitmap, a string of a few dozen characters stored next to an image reference
+     * and shown with {@link #blurHashToBitmap} while the image itself loads.
+     *
+     * @param bitmap the bitmap to describe, only a downscaled copy is read
+     * @return the BlurHash of the bitmap, with more components along its longer side
+     */
+    public static String blurHash(Bitmap bitmap) {
+        Bitmap small = scaleToFit(bitmap, BLUR_HASH_SAMPLE_SIZE);
+        int width = small.getWidth();
+        int height = small.getHeight();
+        int[] pixels = new int[width * height];
+        small.getPixels(pixels, 0, width, 0, 0, width, height);
+        return width >= height
+                ? BlurHash.encode(pixels, width, height, BLUR_HASH_LONG_COMPONENTS, BLUR_HASH_SHORT_COMPONENTS)
+                : BlurHash.encode(pixels, width, height, BLUR_HASH_SHORT_COMPONENTS, BLUR_HASH_LONG_COMPONENTS);
+    }
+
+    /**
+     * Render a BlurHash into a small bitmap, meant to be stretched over the view the image will be shown in.
+     *
+     * @param blurHash the hash computed by {@link #blurHash(Bitmap)}
+     * @param width    the width of the bitmap
+     * @param height   the height of the bitmap
+     * @return the blurred preview, or null if the hash is malformed
+     */
+    public static Bitmap blurHashToBitmap(String blurHash, int width, int height) {
+        int[] pixels = BlurHash.decode(blurHash, width, height);
+        return pixels != null ? Bitmap.createBitmap(pixels, width, height, Bitmap.Config.ARGB_8888) : null;
+    }
+
     /**
      * Convert a base64 encoded string to a bitmap.
      *
@@ -98,7 +317,41 @@ public class ImageHandler {
      * @return the bitmap
      */
     public static Bitmap base64ToBitmap(String base64) {
-        byte[] decodedString = Base64.decode(base64, Base64.DEFAULT);
-        return BitmapFactory.decodeByteArray(decodedString, 0, decodedString.length);
+        return bytesToBitmap(base64ToBytes(base64));
+    }
+
+    /**
+     * Compress an image file to bytes with size less that {@link #MAX_IMAGE_SIZE}, for storing in a
+     * {@link com.google.firebase.firestore.Blob} field. Same as {@link #compressImageToBase64(Context, Uri, Bitmap.CompressFormat)}
+     * without the third bigger base64 text.
+     *
+     * @param context the context
+     * @param uri     the URI of the image file
+     * @param format  the format to encode in
+     * @return the compressed image
+     * @throws IOException if the file cannot be read
+     */
+    public static byte[] compressImageToBytes(Context context, Uri uri, Bitmap.CompressFormat format) throws IOException {
+        return compressBitmap(decodeSampledBitmap(context, uri, MAX_DIMENSION), format, MAX_IMAGE_SIZE);
+    }
+
+    /**
+     * Convert a base64 encoded string to the bytes it encodes, used to move images stored as text into blobs.
+     *
+     * @param base64 the base64 encoded string
+     * @return the decoded bytes
+     */
+    public static byte[] base64ToBytes(String base64) {
+        return Base64.decode(base64, Base64.DEFAULT);
+    }
+
+    /**
+     * Convert an encoded image to a bitmap.
+     *
+     * @param data the encoded image
+     * @return the bitmap, or null if the data is not an image
+     */
+    public static Bitmap bytesToBitmap(byte[] data) {
+        return BitmapFactory.decodeByteArray(data, 0, data.length);
     }
 }
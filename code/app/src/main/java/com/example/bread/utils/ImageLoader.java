@@ -0,0 +1,570 @@
+package com.example.bread.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Base64;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import androidx.annotation.DrawableRes;
+import androidx.annotation.NonNull;
+
+import com.example.bread.model.Participant;
+import com.example.bread.repository.ImageRepository;
+import com.example.bread.repository.ParticipantRepository;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.DocumentSnapshot;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loads images kept inline as binary or base64, or stored in Cloud Storage, into image views without blocking the main thread.
+ * <p>
+ * Images are decoded on a background thread and downsampled to the size of the target view.
+ * Decoded bitmaps are kept in a memory cache bounded by their size in bytes, and the downsampled
+ * thumbnails are written to a disk cache so they survive restarts without decoding the full image again.
+ * Both caches are keyed by a hash of the image content and the target size, so the same picture
+ * delivered in different snapshots is only decoded once.
+ * <p>
+ * Images stored with a BlurHash show it as soon as they are bound, so a row never shows a generic
+ * placeholder while the real image is fetched.
+ * <p>
+ * Every view has at most one load in flight. Loading another image into a view, for example when
+ * a list row is recycled, cancels the previous load so a stale image never replaces the current one.
+ * Downloads do not hold a decode thread while they wait on the network, and views loading the same
+ * image at the same time share one download.
+ * All public methods must be called on the main thread.
+ */
+public class ImageLoader {
+    private static final String TAG = "ImageLoader";
+    private static final String DISK_CACHE_DIR = "thumbnails";
+    private static final long MAX_DISK_CACHE_BYTES = 16 * 1024 * 1024; // 16 MB
+    private static final int THUMBNAIL_QUALITY = 90;
+    private static final int DECODE_THREADS = 2;
+    private static final int PREVIEW_SIZE = 32; // BlurHash previews are blurred, they are stretched over the view
+
+    private static ImageLoader instance;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    // Remembers content hashes so rebinding the same string does not hash it again, without keeping the string alive
+    private final Map<String, String> contentHashes = new WeakHashMap<>();
+    private final Map<byte[], String> dataHashes = new WeakHashMap<>();
+    // Downloads in flight by the key of what they fetch, guarded by itself
+    private final Map<String, Task<?>> fetches = new HashMap<>();
+    private final Map<ImageView, Request> requests = new WeakHashMap<>();
+    private final ExecutorService decodeExecutor = Executors.newFixedThreadPool(DECODE_THREADS);
+    private final File diskCacheDir;
+    private final int defaultTargetSize;
+    private final ImageRepository imageRepository = new ImageRepository();
+    private final ParticipantRepository participantRepository = new ParticipantRepository();
+
+    private ImageLoader(Context context) {
+        Context appContext = context.getApplicationContext();
+        // An eighth of the heap, the usual budget for a bitmap cache
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        diskCacheDir = new File(appContext.getCacheDir(), DISK_CACHE_DIR);
+        defaultTargetSize = appContext.getResources().getDisplayMetrics().widthPixels;
+    }
+
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageLoader(context);
+        }
+        return instance;
+    }
+
+    /**
+     * Shows the profile picture of the participant, preferring the thumbnail in Cloud Storage
+     * closest to the size of the view over a picture kept inline as binary or base64
+     *
+     * @param participant the participant whose picture to show
+     * @param imageView   the view to show the picture in
+     * @param placeholder the drawable shown until the picture is loaded, or 0 to keep the current drawable
+     */
+    public void loadProfilePicture(@NonNull Participant participant, @NonNull ImageView imageView, @DrawableRes int placeholder) {
+        if (participant.getProfilePictureRef() != null) {
+            loadStoredImage(participant.getProfilePictureRef(), participant.getProfilePicturePlaceholder(), imageView, placeholder);
+        } else if (participant.getProfilePicture() != null) {
+            load(participant.getProfilePicture(), imageView, placeholder);
+        } else if (participant.hasInlineProfilePicture()) {
+            load(participant.getProfilePictureBytes(), imageView, placeholder);
+        } else if (participant.getProfilePictureVersion() > 0) {
+            loadDetailsPicture(participant.getUsername(), participant.getProfilePictureVersion(), imageView, placeholder);
+        } else {
+            showPlaceholder(imageView, placeholder);
+        }
+    }
+
+    /**
+     * Shows a profile picture kept in the participant details document when only the summary was read.
+     * The picture is cached by its version, so the details are only read again after the picture changes.
+     */
+    private void loadDetailsPicture(String username, long version, ImageView imageView, int placeholder) {
+        int targetSize = targetSize(imageView);
+        String key = "participant_" + sha1(username.getBytes(StandardCharsets.UTF_8)) + "_v" + version + "_" + targetSize;
+        start(key, imageView, placeholder, null, () -> {
+            Bitmap cached = readThumbnail(key);
+            if (cached != null) {
+                return Tasks.forResult(cached);
+            }
+            Task<DocumentSnapshot> details = fetchOnce("participant_" + username + "_v" + version,
+                    () -> participantRepository.getParticipantDetailsRef(username).get());
+            return details.continueWith(decodeExecutor, task -> {
+                Blob data = task.getResult().getBlob("profilePictureData");
+                String base64 = task.getResult().getString("profilePicture");
+                if (data != null) {
+                    return decode(key, data.toBytes(), targetSize);
+                }
+                return base64 != null ? decode(key, base64, targetSize) : null;
+            });
+        });
+    }
+
+    /**
+     * Shows an image stored in Cloud Storage, fetching only the smallest version that fills the view.
+     * Stored images never change, so a version is downloaded at most once and then served from the caches.
+     *
+     * @param hash        the content hash of the image, or null to only show the placeholder
+     * @param imageView   the view to show the image in
+     * @param placeholder the drawable shown until the image is loaded, or 0 to keep the current drawable
+     */
+    public void loadStoredImage(String hash, @NonNull ImageView imageView, @DrawableRes int placeholder) {
+        loadStoredImage(hash, null, imageView, placeholder, ImageRepository.ImageSize.FULL);
+    }
+
+    /**
+     * Same as {@link #loadStoredImage(String, ImageView, int)}, showing a preview of the image until it is loaded
+     *
+     * @param hash        the content hash of the image, or null to only show the placeholder
+     * @param blurHash    the BlurHash stored with the image, or null to show the placeholder drawable instead
+     * @param imageView   the view to show the image in
+     * @param placeholder the drawable shown until the image is loaded when there is no preview, or 0 to keep the current drawable
+     */
+    public void loadStoredImage(String hash, String blurHash, @NonNull ImageView imageView, @DrawableRes int placeholder) {
+        loadStoredImage(hash, blurHash, imageView, placeholder, ImageRepository.ImageSize.FULL);
+    }
+
+    /**
+     * Same as {@link #loadStoredImage(String, String, ImageView, int)}, but never fetches more than the medium thumbnail
+     * however large the view is. Used by list rows, so scrolling a feed never downloads a full size image.
+     *
+     * @param hash        the content hash of the image, or null to only show the placeholder
+     * @param blurHash    the BlurHash stored with the image, or null to show the placeholder drawable instead
+     * @param imageView   the view to show the thumbnail in
+     * @param placeholder the drawable shown until the thumbnail is loaded when there is no preview, or 0 to keep the current drawable
+     */
+    public void loadStoredThumbnail(String hash, String blurHash, @NonNull ImageView imageView, @DrawableRes int placeholder) {
+        loadStoredImage(hash, blurHash, imageView, placeholder, ImageRepository.ImageSize.MEDIUM);
+    }
+
+    private void loadStoredImage(String hash, String blurHash, ImageView imageView, int placeholder, ImageRepository.ImageSize maxSize) {
+        if (hash == null || hash.isEmpty()) {
+            showPlaceholder(imageView, placeholder);
+            return;
+        }
+        int targetSize = targetSize(imageView);
+        ImageRepository.ImageSize size = ImageRepository.ImageSize.forDisplaySize(Math.min(targetSize, maxSize.getMaxDimension()));
+        String key = hash + "_" + size.name().toLowerCase(Locale.ROOT);
+        start(key, imageView, placeholder, blurHash, () -> fetchStored(key, hash, size, targetSize));
+    }
+
+    /**
+     * Shows the image in the view, decoding it in the background if it is not cached
+     *
+     * @param base64      the base64 encoded image, or null to only show the placeholder
+     * @param imageView   the view to show the image in
+     * @param placeholder the drawable shown until the image is loaded, or 0 to keep the current drawable
+     */
+    public void load(String base64, @NonNull ImageView imageView, @DrawableRes int placeholder) {
+        if (base64 == null || base64.isEmpty()) {
+            showPlaceholder(imageView, placeholder);
+            return;
+        }
+        int targetSize = targetSize(imageView);
+        String key = contentHash(base64) + "_" + targetSize;
+        start(key, imageView, placeholder, null, () -> Tasks.forResult(decode(key, base64, targetSize)));
+    }
+
+    /**
+     * Shows the encoded image in the view, decoding it in the background if it is not cached
+     *
+     * @param data        the encoded image, or null to only show the placeholder
+     * @param imageView   the view to show the image in
+     * @param placeholder the drawable shown until the image is loaded, or 0 to keep the current drawable
+     */
+    public void load(byte[] data, @NonNull ImageView imageView, @DrawableRes int placeholder) {
+        if (data == null || data.length == 0) {
+            showPlaceholder(imageView, placeholder);
+            return;
+        }
+        int targetSize = targetSize(imageView);
+        String key = contentHash(data) + "_" + targetSize;
+        start(key, imageView, placeholder, null, () -> Tasks.forResult(decode(key, data, targetSize)));
+    }
+
+    private void showPlaceholder(ImageView imageView, int placeholder) {
+        cancel(imageView);
+        if (placeholder != 0) {
+            imageView.setImageResource(placeholder);
+        }
+    }
+
+    /**
+     * @param loader runs on the decode executor, returning the image once it is loaded
+     */
+    private void start(String key, ImageView imageView, int placeholder, String blurHash, Callable<Task<Bitmap>> loader) {
+        Request pending = requests.get(imageView);
+        if (pending != null && pending.key.equals(key)) {
+            return;
+        }
+        cancel(imageView);
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+        Bitmap preview = blurHash != null ? preview(blurHash) : null;
+        if (preview != null) {
+            imageView.setImageBitmap(preview);
+        } else if (placeholder != 0) {
+            imageView.setImageResource(placeholder);
+        }
+
+        Request request = new Request(key);
+        requests.put(imageView, request);
+        request.future = decodeExecutor.submit(() -> {
+            Task<Bitmap> load;
+            try {
+                load = loader.call();
+            } catch (Exception e) {
+                load = Tasks.forException(e);
+            }
+            // Listeners without an executor run on the main thread
+            load.addOnCompleteListener(task -> {
+                Bitmap loaded = task.isSuccessful() ? task.getResult() : null;
+                if (!task.isSuccessful()) {
+                    Log.e(TAG, "Failed to load image: " + key, task.getException());
+                }
+                if (loaded != null) {
+                    memoryCache.put(key, loaded);
+                }
+                if (requests.get(imageView) != request) {
+                    return;
+                }
+                requests.remove(imageView);
+                if (loaded != null) {
+                    imageView.setImageBitmap(loaded);
+                }
+            });
+        });
+    }
+
+    /**
+     * Renders a BlurHash on the main thread, which takes well under a millisecond at this size
+     *
+     * @return the preview, or null if the hash is malformed
+     */
+    private Bitmap preview(String blurHash) {
+        String key = "blurhash_" + blurHash;
+        Bitmap preview = memoryCache.get(key);
+        if (preview == null) {
+            preview = ImageHandler.blurHashToBitmap(blurHash, PREVIEW_SIZE, PREVIEW_SIZE);
+            if (preview != null) {
+                memoryCache.put(key, preview);
+            }
+        }
+        return preview;
+    }
+
+    /**
+     * Cancels the load in flight for the view, if any
+     *
+     * @param imageView the view whose load to cancel
+     */
+    public void cancel(@NonNull ImageView imageView) {
+        Request request = requests.remove(imageView);
+        if (request != null && request.future != null) {
+            request.future.cancel(false);
+        }
+    }
+
+    /**
+     * Drops the decoded bitmaps held in memory, the disk cache is kept
+     */
+    public void clearMemoryCache() {
+        memoryCache.evictAll();
+    }
+
+    private int targetSize(ImageView imageView) {
+        int size = Math.max(imageView.getWidth(), imageView.getHeight());
+        if (size > 0) {
+            return size;
+        }
+        // Rows are bound before they are laid out, but their image sizes are fixed in the layout
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        if (params != null) {
+            size = Math.max(params.width, params.height);
+        }
+        return size > 0 ? size : defaultTargetSize;
+    }
+
+    private String contentHash(String base64) {
+        String hash = contentHashes.get(base64);
+        if (hash == null) {
+            hash = sha1(base64.getBytes(StandardCharsets.US_ASCII));
+            contentHashes.put(base64, hash);
+        }
+        return hash;
+    }
+
+    private String contentHash(byte[] data) {
+        // Arrays hash by identity, so this only skips hashing the very same array, e.g. a cached participant
+        String hash = dataHashes.get(data);
+        if (hash == null) {
+            hash = sha1(data);
+            dataHashes.put(data, hash);
+        }
+        return hash;
+    }
+
+    private static String sha1(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android runtime ships SHA-1, fall back to a weaker key just in case
+            return Integer.toHexString(Arrays.hashCode(data)) + "_" + data.length;
+        }
+    }
+
+    /**
+     * Runs on the decode executor
+     */
+    private Bitmap decode(String key, String base64, int targetSize) {
+        byte[] data;
+        try {
+            data = Base64.decode(base64, Base64.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            Log.e(TAG, "Invalid base64 image", e);
+            return null;
+        }
+        return decode(key, data, targetSize);
+    }
+
+    /**
+     * Runs on the decode executor
+     */
+    private Bitmap decode(String key, byte[] data, int targetSize) {
+        Bitmap cached = readThumbnail(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        File thumbnail = new File(diskCacheDir, key + ".jpg");
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, targetSize);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (bitmap != null && !Thread.currentThread().isInterrupted()) {
+            writeThumbnail(thumbnail, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * Runs on the decode executor
+     *
+     * @return the thumbnail cached on disk under the key, or null if there is none
+     */
+    private Bitmap readThumbnail(String key) {
+        File thumbnail = new File(diskCacheDir, key + ".jpg");
+        if (!thumbnail.isFile()) {
+            return null;
+        }
+        Bitmap bitmap = BitmapFactory.decodeFile(thumbnail.getPath(), new BitmapFactory.Options());
+        if (bitmap != null) {
+            thumbnail.setLastModified(System.currentTimeMillis());
+        } else {
+            thumbnail.delete();
+        }
+        return bitmap;
+    }
+
+    /**
+     * Runs on the decode executor. An image that is not on disk yet is downloaded without holding the
+     * thread, and decoded on the decode executor once it is written.
+     */
+    private Task<Bitmap> fetchStored(String key, String hash, ImageRepository.ImageSize size, int targetSize) {
+        File file = new File(diskCacheDir, key + ".webp");
+        if (file.isFile()) {
+            return Tasks.forResult(decodeStored(file, targetSize));
+        }
+        Task<File> download = fetchOnce(key, () -> imageRepository.getImageRef(hash, size).getBytes(size.getMaxBytes() * 2L)
+                .continueWith(decodeExecutor, task -> {
+                    writeFile(file, task.getResult());
+                    return file;
+                }));
+        return download.continueWith(decodeExecutor, task -> decodeStored(task.getResult(), targetSize));
+    }
+
+    /**
+     * Starts the fetch unless one for the same key is still in flight, in which case that one is shared
+     *
+     * @param key   identifies what is fetched
+     * @param fetch starts the fetch
+     * @return the fetch in flight for the key
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Task<T> fetchOnce(String key, Fetch<T> fetch) {
+        synchronized (fetches) {
+            Task<?> pending = fetches.get(key);
+            if (pending != null) {
+                return (Task<T>) pending;
+            }
+            Task<T> task = fetch.start();
+            fetches.put(key, task);
+            task.addOnCompleteListener(decodeExecutor, done -> {
+                synchronized (fetches) {
+                    fetches.remove(key, task);
+                }
+            });
+            return task;
+        }
+    }
+
+    /**
+     * Runs on the decode executor
+     */
+    private Bitmap decodeStored(File file, int targetSize) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, targetSize);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), options);
+        if (bitmap != null) {
+            file.setLastModified(System.currentTimeMillis());
+        } else {
+            file.delete();
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return the largest power of two that keeps both sides of the image at least the target size
+     */
+    static int sampleSize(int width, int height, int targetSize) {
+        int sampleSize = 1;
+        if (targetSize <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= targetSize && height / (sampleSize * 2) >= targetSize) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private void writeThumbnail(File thumbnail, Bitmap bitmap) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        bitmap.compress(Bitmap.CompressFormat.JPEG, THUMBNAIL_QUALITY, out);
+        try {
+            writeFile(thumbnail, out.toByteArray());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write thumbnail", e);
+        }
+    }
+
+    /**
+     * Writes the file through a temporary file so a crash never leaves a truncated image in the cache
+     */
+    private void writeFile(File file, byte[] bytes) throws IOException {
+        if (!diskCacheDir.isDirectory() && !diskCacheDir.mkdirs()) {
+            throw new IOException("Cannot create " + diskCacheDir);
+        }
+        File temp = new File(diskCacheDir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp);
+        }
+        trimDiskCache();
+    }
+
+    /**
+     * Deletes the least recently used thumbnails until the disk cache fits its budget
+     */
+    private synchronized void trimDiskCache() {
+        File[] files = diskCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= MAX_DISK_CACHE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= MAX_DISK_CACHE_BYTES) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private interface Fetch<T> {
+        Task<T> start();
+    }
+
+    private static class Request {
+        final String key;
+        Future<?> future;
+
+        Request(String key) {
+            this.key = key;
+        }
+    }
+}
@@ -2,12 +2,16 @@ package com.example.bread.view;
 
 import android.annotation.SuppressLint;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.util.Log;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.recyclerview.widget.RecyclerView;
 import com.example.bread.R;
+import com.example.bread.analytics.MoodAnalyticsManager;
 import com.example.bread.databinding.ActivityHomePageBinding;
 import com.example.bread.fragment.AddMoodEventFragment;
 import com.example.bread.fragment.FollowRequestsFragment;
@@ -16,35 +20,93 @@ import com.example.bread.fragment.HomeFragment;
 import com.example.bread.fragment.MapFragment;
 import com.example.bread.fragment.ProfileFragment;
 import com.example.bread.fragment.UserSearchFragment;
+import com.example.bread.repository.AttachmentOutbox;
+import com.example.bread.repository.MoodEventRepository;
+import com.example.bread.repository.ParticipantRepository;
+import com.example.bread.startup.StartupPipeline;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentReference;
 
 public class HomePage extends AppCompatActivity {
+    private static final String TAG = "HomePage";
+    // Tab fragments are kept and hidden under these tags, so switching back to a tab keeps its state
+    private static final String TAB_HOME = "home";
+    private static final String TAB_MAP = "map";
+    private static final String TAB_ADD = "add";
+    private static final String TAB_HISTORY = "history";
+    private static final String TAB_PROFILE = "profile";
+    private static final String[] TABS = {TAB_HOME, TAB_MAP, TAB_ADD, TAB_HISTORY, TAB_PROFILE};
+    // Cleared with the other preferences on logout, so each signed in user is migrated and backfilled once
+    private static final String PARTICIPANT_DETAILS_MIGRATED = "participantDetailsMigrated";
+    private static final String SEARCH_TOKENS_BACKFILLED = "searchTokensBackfilled";
 
     ActivityHomePageBinding binding;
+    // Shared by the mood event lists, so switching between tabs reuses the rows already inflated
+    private final RecyclerView.RecycledViewPool moodEventViewPool = new RecyclerView.RecycledViewPool();
 
     @SuppressLint("NonConstantResourceId")
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
+        // The home page is the launcher, signed out users go straight to the login page without inflating it
+        FirebaseUser currentUser = FirebaseAuth.getInstance().getCurrentUser();
+        if (currentUser == null) {
+            startActivity(new Intent(this, LoginPage.class));
+            finish();
+            return;
+        }
+        // The follow graph is read while the views are inflated
+        StartupPipeline.getInstance().onHomeCreated(this, savedInstanceState, currentUser.getDisplayName());
+
         //followed the following video for navigation bar implementation, accessed on Feb 27 2025
         //https://www.youtube.com/watch?v=jOFLmKMOcK0
         binding = ActivityHomePageBinding.inflate(getLayoutInflater());
         setContentView(binding.getRoot());
 
-        replaceFragment(new HomeFragment());
+        // Keep the on-device mood insights up to date while the user is signed in
+        if (currentUser.getDisplayName() != null) {
+            MoodAnalyticsManager.getInstance(this).start(currentUser.getDisplayName());
+            SharedPreferences preferences = getSharedPreferences("sharedPrefs", MODE_PRIVATE);
+            // Accounts created before the summary/details split are split once, the next time they sign in
+            if (!preferences.getBoolean(PARTICIPANT_DETAILS_MIGRATED, false)) {
+                new ParticipantRepository().migrateParticipantDetails(currentUser.getDisplayName(), migrated -> {
+                    if (migrated) {
+                        Log.i(TAG, "Moved participant details out of the summary");
+                    }
+                    preferences.edit().putBoolean(PARTICIPANT_DETAILS_MIGRATED, true).apply();
+                }, null);
+            }
+            // Photos whose upload was cut short last time are retried
+            AttachmentOutbox.getInstance(this).drain();
+            // Events written before prefix search tokens are rewritten once, so keyword search finds them
+            if (!preferences.getBoolean(SEARCH_TOKENS_BACKFILLED, false)) {
+                DocumentReference participantRef = new ParticipantRepository().getParticipantRef(currentUser.getDisplayName());
+                new MoodEventRepository().backfillSearchTokens(participantRef, backfilled -> {
+                    Log.i(TAG, "Backfilled search tokens of " + backfilled + " mood events");
+                    preferences.edit().putBoolean(SEARCH_TOKENS_BACKFILLED, true).apply();
+                }, null);
+            }
+        }
+
+        // The fragment manager restores the tabs of a recreated activity by itself
+        if (savedInstanceState == null) {
+            showTab(TAB_HOME);
+        }
 
         binding.bottomNavigationView.setOnItemSelectedListener(item -> {
             int itemId = item.getItemId();
             if (itemId == R.id.home) {
-                replaceFragment(new HomeFragment());
+                showTab(TAB_HOME);
             } else if (itemId == R.id.map) {
-                replaceFragment(new MapFragment());
+                showTab(TAB_MAP);
             } else if (itemId == R.id.add) {
                 // Different approaches in the two versions:
                 // 1. Your branch: Starts AddMoodEventActivity
                 // 2. Main branch: Uses AddMoodEventFragment
                 // We'll use the fragment approach from main:
-                replaceFragment(new AddMoodEventFragment());
+                showTab(TAB_ADD);
 
                 // If you need the activity approach, uncomment these lines:
                 /*
@@ -53,19 +115,82 @@ public class HomePage extends AppCompatActivity {
                 return false; // Don't select the tab
                 */
             } else if (itemId == R.id.history) {
-                replaceFragment(new HistoryFragment());
+                showTab(TAB_HISTORY);
             } else if (itemId == R.id.profile) {
-                replaceFragment(new ProfileFragment());
+                showTab(TAB_PROFILE);
             }
 
             return true;  // Important to return true to indicate the item was selected
         });
     }
 
-    private void replaceFragment(Fragment fragment) {
+    /**
+     * Shows the fragment of the tab, creating it the first time. The other tabs are hidden instead of
+     * destroyed, so their lists, filters and listeners are still there when they are selected again.
+     * The add tab is a form and starts empty every time.
+     *
+     * @param tab The tag of the tab
+     */
+    private void showTab(String tab) {
         FragmentManager fragmentManager = getSupportFragmentManager();
+        // Screens opened on top of a tab are closed when switching tabs
+        while (fragmentManager.getBackStackEntryCount() > 0) {
+            fragmentManager.popBackStackImmediate();
+        }
+
         FragmentTransaction transaction = fragmentManager.beginTransaction();
-        transaction.replace(R.id.frame_layout, fragment);
+        transaction.setReorderingAllowed(true);
+        for (String other : TABS) {
+            Fragment fragment = fragmentManager.findFragmentByTag(other);
+            if (fragment == null || other.equals(tab) && !other.equals(TAB_ADD)) {
+                continue;
+            }
+            if (other.equals(TAB_ADD)) {
+                transaction.remove(fragment);
+            } else {
+                transaction.hide(fragment);
+            }
+        }
+        Fragment fragment = fragmentManager.findFragmentByTag(tab);
+        if (fragment == null || tab.equals(TAB_ADD)) {
+            transaction.add(R.id.frame_layout, createTab(tab), tab);
+        } else {
+            transaction.show(fragment);
+        }
+        transaction.commit();
+    }
+
+    private Fragment createTab(String tab) {
+        switch (tab) {
+            case TAB_MAP:
+                return new MapFragment();
+            case TAB_ADD:
+                return new AddMoodEventFragment();
+            case TAB_HISTORY:
+                return new HistoryFragment();
+            case TAB_PROFILE:
+                return new ProfileFragment();
+            default:
+                return new HomeFragment();
+        }
+    }
+
+    /**
+     * Opens a screen on top of the current tab, going back shows the tab again as it was
+     *
+     * @param fragment The fragment of the screen
+     */
+    public void openScreen(Fragment fragment) {
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        FragmentTransaction transaction = fragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+        for (Fragment shown : fragmentManager.getFragments()) {
+            if (!shown.isHidden()) {
+                transaction.hide(shown);
+            }
+        }
+        transaction.add(R.id.frame_layout, fragment);
+        transaction.addToBackStack(null);
         transaction.commit();
     }
 
@@ -90,11 +215,11 @@ public class HomePage extends AppCompatActivity {
         }
 
         if (fragment != null) {
-            FragmentManager fragmentManager = getSupportFragmentManager();
-            FragmentTransaction transaction = fragmentManager.beginTransaction();
-            transaction.replace(R.id.frame_layout, fragment);
-            transaction.addToBackStack(null);
-            transaction.commit();
+            openScreen(fragment);
         }
     }
-}
\ No newline at end of file
+
+    public RecyclerView.RecycledViewPool getMoodEventViewPool() {
+        return moodEventViewPool;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.bread.viewmodel;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.filter.MoodFilter;
+import com.example.bread.model.MoodEvent;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.List;
+
+/**
+ * Holds the mood events of the participants the current user follows, for the home tab
+ */
+public class HomeFeedViewModel extends MoodEventListViewModel {
+    // Posts of several followees, the chunks of the feed query and a resubscribe after a follow change
+    // all arrive within a few milliseconds of each other, so the feed waits a little longer than a frame
+    private static final long FEED_COALESCE_WINDOW_MS = 100;
+
+    public HomeFeedViewModel() {
+        super(FEED_COALESCE_WINDOW_MS);
+    }
+
+    @Override
+    protected ListenerRegistration listen(@NonNull MoodFilter filter, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || user.getDisplayName() == null) {
+            return null;
+        }
+        return moodEventRepository.listenForEventsFromFollowing(user.getDisplayName(), filter, onSuccessListener, onFailureListener);
+    }
+
+    @Override
+    protected String getSnapshotName() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        return user != null && user.getDisplayName() != null ? "home_" + user.getDisplayName() : null;
+    }
+
+    /**
+     * Events still waiting for their server timestamp are left out of the feed
+     */
+    @Override
+    protected boolean shows(@NonNull MoodEvent event) {
+        return event.getTimestamp() != null;
+    }
+}
@@ -0,0 +1,276 @@
+package com.example.bread.viewmodel;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+import androidx.lifecycle.ViewModel;
+
+import com.example.bread.filter.MoodFilter;
+import com.example.bread.filter.MoodFilterEngine;
+import com.example.bread.model.MoodEvent;
+import com.example.bread.repository.MoodEventRepository;
+import com.example.bread.store.FeedSnapshot;
+import com.example.bread.store.FeedSnapshotCache;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Holds the mood events of a list tab and the listener keeping them up to date.
+ * <p>
+ * The view model outlives the views of its fragment, so a tab whose view is recreated, or an activity
+ * recreated for a configuration change, shows the events already loaded instead of querying them again.
+ * The listener is only removed when the tab goes away for good.
+ * <p>
+ * Snapshots arriving within the coalescing window are merged by a {@link SnapshotCoalescer}, so a burst
+ * of them is sorted, filtered and shown once. Sorting, filtering, comparing with the restored page and
+ * saving the first page run on a background thread, only the finished, unmodifiable list is posted to
+ * the main thread.
+ * <p>
+ * Tabs with a {@link #getSnapshotName() snapshot name} save their first page to a {@link FeedSnapshotCache},
+ * and a cold start shows the saved page until the listener delivers.
+ */
+public abstract class MoodEventListViewModel extends ViewModel {
+    // One thread, so each filter engine is confined to it and snapshots are shown in the order they arrive
+    private static final ExecutorService ENGINE = Executors.newSingleThreadExecutor();
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+
+    protected final MoodEventRepository moodEventRepository = new MoodEventRepository();
+    // Only used on ENGINE
+    private final MoodFilterEngine filterEngine = new MoodFilterEngine();
+    private final MutableLiveData<List<MoodEvent>> events = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> loading = new MutableLiveData<>(false);
+    private final MutableLiveData<Exception> error = new MutableLiveData<>();
+    private ListenerRegistration listener;
+    private final SnapshotCoalescer<List<MoodEvent>> snapshots;
+    private FeedSnapshotCache snapshotCache;
+    private String snapshotName;
+    // The saved page being shown until the listener first delivers
+    private List<MoodEvent> restoredEvents;
+    // Changes whenever the listener is replaced, so events filtered for the previous one are dropped
+    private int generation;
+
+    // Filter the listener is querying with, and the selections of the filter dialog it was built from
+    private MoodFilter activeFilter = MoodFilter.all();
+    private boolean filteringByWeek = false;
+    private MoodEvent.EmotionalState selectedEmotionalState = null;
+    private String searchKeyword = "";
+
+    public MoodEventListViewModel() {
+        this(SnapshotCoalescer.FRAME_WINDOW_MS);
+    }
+
+    /**
+     * @param coalesceWindowMs How long snapshots are merged before the events are updated
+     */
+    protected MoodEventListViewModel(long coalesceWindowMs) {
+        snapshots = new SnapshotCoalescer<>(coalesceWindowMs, this::showSnapshot);
+    }
+
+    /**
+     * Shows the page saved by the last session until the listener delivers, and saves the first page
+     * whenever the unfiltered events change. Only restores a page before the events are first loaded.
+     *
+     * @param snapshotCache The cache of saved pages
+     */
+    public void restore(@NonNull FeedSnapshotCache snapshotCache) {
+        String name = getSnapshotName();
+        if (name == null || this.snapshotCache != null) {
+            return;
+        }
+        this.snapshotCache = snapshotCache;
+        snapshotName = name;
+        if (events.getValue() != null) {
+            return;
+        }
+        FeedSnapshot snapshot = snapshotCache.load(name);
+        if (snapshot != null && !snapshot.getEvents().isEmpty()) {
+            restoredEvents = snapshot.getEvents();
+            events.setValue(restoredEvents);
+        }
+    }
+
+    /**
+     * Starts listening for the events, unless the view model already does
+     */
+    public void start() {
+        if (listener == null) {
+            listen();
+        }
+    }
+
+    /**
+     * Queries the events matching the filter dialog selections, the filter is applied again when they arrive
+     *
+     * @param filteringByWeek        Only show the events of the last 7 days
+     * @param selectedEmotionalState Only show events with this state, or null for every state
+     * @param searchKeyword          Only show events whose reason has a word starting with it, or empty
+     */
+    public void setFilter(boolean filteringByWeek, MoodEvent.EmotionalState selectedEmotionalState, @NonNull String searchKeyword) {
+        this.filteringByWeek = filteringByWeek;
+        this.selectedEmotionalState = selectedEmotionalState;
+        this.searchKeyword = searchKeyword;
+        activeFilter = buildFilter();
+        listen();
+    }
+
+    public void resetFilter() {
+        setFilter(false, null, "");
+    }
+
+    /**
+     * @return The filter selected in the filter dialog, the week window starting now
+     */
+    private MoodFilter buildFilter() {
+        MoodFilter filter = MoodFilter.all()
+                .withEmotionalState(selectedEmotionalState)
+                .withKeyword(searchKeyword);
+        if (filteringByWeek) {
+            filter = filter.recentDays(7);
+        }
+        return filter;
+    }
+
+    private void listen() {
+        if (listener != null) {
+            listener.remove();
+        }
+        // Snapshots of the previous filter must not replace the events of the new one
+        snapshots.cancel();
+        generation++;
+        loading.setValue(true);
+        listener = listen(activeFilter, snapshots::offer, e -> {
+            loading.setValue(false);
+            error.setValue(e);
+        });
+    }
+
+    /**
+     * Shows the last snapshot of a coalescing window. Called on the main thread, the events are
+     * filtered on {@link #ENGINE} and posted back once they are ready.
+     */
+    private void showSnapshot(List<MoodEvent> moodEvents) {
+        int shownGeneration = generation;
+        MoodFilter filter = activeFilter;
+        List<MoodEvent> restored = restoredEvents;
+        FeedSnapshotCache cache = snapshotCache;
+        String cacheName = snapshotName;
+        ENGINE.execute(() -> {
+            List<MoodEvent> shown = new ArrayList<>();
+            if (moodEvents != null) {
+                for (MoodEvent event : moodEvents) {
+                    if (shows(event)) {
+                        shown.add(event);
+                    }
+                }
+            }
+            // The engine keeps the events newest first in a compact store, the snapshot can be let go
+            filterEngine.setEvents(shown);
+            // The listener already only receives matching events, the engine applies the word prefix matching the server cannot do
+            List<MoodEvent> matching = Collections.unmodifiableList(filter.isEmpty() ? filterEngine.getEvents() : filterEngine.filter(filter));
+            // The saved page is equal to the events it showed, so if nothing changed since there is nothing to update
+            boolean changed = restored == null || !restored.equals(matching);
+            if (cache != null && filter.isEmpty()) {
+                cache.save(cacheName, matching);
+            }
+            MAIN.post(() -> {
+                if (generation != shownGeneration) {
+                    return;
+                }
+                if (changed) {
+                    events.setValue(matching);
+                }
+                restoredEvents = null;
+                loading.setValue(false);
+            });
+        });
+    }
+
+    /**
+     * Starts the repository listener of the tab
+     *
+     * @param filter            The filter to query with
+     * @param onSuccessListener Called with the matching events on every change
+     * @param onFailureListener Called if the events could not be loaded
+     * @return The registration of the listener, or null if there is nothing to listen to
+     */
+    protected abstract ListenerRegistration listen(@NonNull MoodFilter filter, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener);
+
+    /**
+     * @return The name the first page of the tab is saved under, unique per user, or null to not save it
+     */
+    protected String getSnapshotName() {
+        return null;
+    }
+
+    /**
+     * @return True if the tab shows the event
+     */
+    protected boolean shows(@NonNull MoodEvent event) {
+        return true;
+    }
+
+    /**
+     * @return True while the events shown are the page restored from the last session
+     */
+    public boolean isShowingRestored() {
+        return restoredEvents != null;
+    }
+
+    /**
+     * @return The events to show, newest first, null until they are first loaded
+     */
+    public LiveData<List<MoodEvent>> getEvents() {
+        return events;
+    }
+
+    public LiveData<Boolean> isLoading() {
+        return loading;
+    }
+
+    /**
+     * @return The last failure to load the events, null once it was handled with {@link #clearError}
+     */
+    public LiveData<Exception> getError() {
+        return error;
+    }
+
+    public void clearError() {
+        error.setValue(null);
+    }
+
+    public MoodFilter getActiveFilter() {
+        return activeFilter;
+    }
+
+    public boolean isFilteringByWeek() {
+        return filteringByWeek;
+    }
+
+    public MoodEvent.EmotionalState getSelectedEmotionalState() {
+        return selectedEmotionalState;
+    }
+
+    public String getSearchKeyword() {
+        return searchKeyword;
+    }
+
+    @Override
+    protected void onCleared() {
+        snapshots.cancel();
+        generation++;
+        if (listener != null) {
+            listener.remove();
+            listener = null;
+        }
+    }
+}
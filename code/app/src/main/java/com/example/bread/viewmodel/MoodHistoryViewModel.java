@@ -0,0 +1,35 @@
+package com.example.bread.viewmodel;
+
+import androidx.annotation.NonNull;
+
+import com.example.bread.filter.MoodFilter;
+import com.example.bread.model.MoodEvent;
+import com.example.bread.repository.ParticipantRepository;
+import com.google.android.gms.tasks.OnFailureListener;
+import com.google.android.gms.tasks.OnSuccessListener;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.ListenerRegistration;
+
+import java.util.List;
+
+/**
+ * Holds the mood events of the current user, for the history tab
+ */
+public class MoodHistoryViewModel extends MoodEventListViewModel {
+
+    @Override
+    protected ListenerRegistration listen(@NonNull MoodFilter filter, @NonNull OnSuccessListener<List<MoodEvent>> onSuccessListener, @NonNull OnFailureListener onFailureListener) {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        if (user == null || user.getDisplayName() == null) {
+            return null;
+        }
+        return moodEventRepository.listenForEventsWithParticipantRef(new ParticipantRepository().getParticipantRef(user.getDisplayName()), filter, onSuccessListener, onFailureListener);
+    }
+
+    @Override
+    protected String getSnapshotName() {
+        FirebaseUser user = FirebaseAuth.getInstance().getCurrentUser();
+        return user != null && user.getDisplayName() != null ? "history_" + user.getDisplayName() : null;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.bread.viewmodel;
+
+import android.view.Choreographer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Merges the values a listener emits in quick succession into one delivery, on the main thread.
+ * <p>
+ * The first value offered schedules a delivery on the frame after the window, every value offered
+ * until then replaces the pending one. A snapshot listener emits the whole result every time, so the
+ * last value already contains the changes of the ones it replaced, and a burst of snapshots is
+ * delivered, and laid out, once.
+ *
+ * @param <T> The emitted value
+ */
+public class SnapshotCoalescer<T> {
+    // One frame, so values emitted while the current frame is drawn are delivered together
+    public static final long FRAME_WINDOW_MS = 16;
+
+    /**
+     * Called with the last value offered during a window
+     */
+    public interface Delivery<T> {
+        void deliver(T value);
+    }
+
+    private final long windowMs;
+    private final Delivery<T> delivery;
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> flush();
+    private T pending;
+    private boolean scheduled;
+
+    /**
+     * @param windowMs How long to wait for more values after the first one, at least one frame is waited
+     * @param delivery Called with the last value of each window
+     */
+    public SnapshotCoalescer(long windowMs, @NonNull Delivery<T> delivery) {
+        this.windowMs = windowMs;
+        this.delivery = delivery;
+    }
+
+    /**
+     * Replaces the pending value and schedules its delivery, unless one is already scheduled.
+     * Must be called on the main thread.
+     */
+    public void offer(T value) {
+        pending = value;
+        if (!scheduled) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallbackDelayed(frameCallback, Math.max(0, windowMs - FRAME_WINDOW_MS));
+        }
+    }
+
+    /**
+     * Delivers the pending value now, if there is one
+     */
+    public void flush() {
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            scheduled = false;
+            T value = pending;
+            pending = null;
+            delivery.deliver(value);
+        }
+    }
+
+    /**
+     * Drops the pending value, for example when the listener that emitted it is replaced
+     */
+    public void cancel() {
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            scheduled = false;
+        }
+        pending = null;
+    }
+}
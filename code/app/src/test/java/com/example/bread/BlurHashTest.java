@@ -0,0 +1,74 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bread.utils.BlurHash;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Checks that BlurHash previews keep the colors of the image they were computed from.
+ */
+public class BlurHashTest {
+
+    private static int channelDistance(int a, int b, int shift) {
+        return Math.abs(((a >> shift) & 0xff) - ((b >> shift) & 0xff));
+    }
+
+    @Test
+    public void hashLengthTest() {
+        int[] pixels = new int[32 * 24];
+        assertEquals(4 + 2 * 4 * 3, BlurHash.encode(pixels, 32, 24, 4, 3).length());
+        assertEquals(4 + 2, BlurHash.encode(pixels, 32, 24, 1, 1).length());
+    }
+
+    @Test
+    public void solidColorRoundTripTest() {
+        int color = 0xff336699;
+        int[] pixels = new int[32 * 24];
+        Arrays.fill(pixels, color);
+
+        int[] decoded = BlurHash.decode(BlurHash.encode(pixels, 32, 24, 4, 3), 8, 6);
+        assertNotNull(decoded);
+        assertEquals(48, decoded.length);
+        for (int pixel : decoded) {
+            assertEquals(0xff, pixel >>> 24);
+            assertTrue(channelDistance(pixel, color, 16) < 16);
+            assertTrue(channelDistance(pixel, color, 8) < 16);
+            assertTrue(channelDistance(pixel, color, 0) < 16);
+        }
+    }
+
+    @Test
+    public void gradientKeepsDirectionTest() {
+        int width = 32;
+        int height = 24;
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = 0xff000000 | ((x * 255 / width) << 16);
+            }
+        }
+
+        int[] decoded = BlurHash.decode(BlurHash.encode(pixels, width, height, 4, 3), 4, 1);
+        assertNotNull(decoded);
+        for (int x = 1; x < decoded.length; x++) {
+            assertTrue(((decoded[x] >> 16) & 0xff) > ((decoded[x - 1] >> 16) & 0xff));
+        }
+    }
+
+    @Test
+    public void malformedHashTest() {
+        assertNull(BlurHash.decode(null, 4, 4));
+        assertNull(BlurHash.decode("LEHV", 4, 4));
+        // Claims 4x3 components but is one character short
+        assertNull(BlurHash.decode("LEHV6nWB2yk8pyo0adR*.7kCMdn", 4, 3));
+        assertNull(BlurHash.decode("LEHV6nWB2yk8pyo0adR*.7kCMd\"j", 4, 3));
+        assertNotNull(BlurHash.decode("LEHV6nWB2yk8pyo0adR*.7kCMdnj", 4, 3));
+    }
+}
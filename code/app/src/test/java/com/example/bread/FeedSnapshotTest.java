@@ -0,0 +1,114 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.store.FeedSnapshot;
+import com.google.firebase.firestore.Blob;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that a saved feed page reads back equal to the events it was written from
+ */
+public class FeedSnapshotTest {
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("feed", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void pageIsReadBackEqualTest() throws IOException {
+        MoodEvent located = new MoodEvent("title", "reason", MoodEvent.EmotionalState.SAD, null);
+        located.setTimestamp(new Date(2000));
+        located.setSocialSituation(MoodEvent.SocialSituation.ALONE);
+        located.setTrigger("rain ☔");
+        located.setSearchTokens(Arrays.asList("reason", "rain"));
+        located.setAttachedImageRef("abc123");
+        Map<String, Object> geoInfo = new HashMap<>();
+        geoInfo.put("geohash", "c3x2");
+        geoInfo.put("latitude", 53.5);
+        geoInfo.put("longitude", -113.5);
+        located.setGeoInfo(geoInfo);
+        // Same title as the first event, written to the dictionary once
+        MoodEvent plain = new MoodEvent("title", null, MoodEvent.EmotionalState.HAPPY, null);
+        plain.setTimestamp(new Date(1000));
+        plain.setSearchTokens(new ArrayList<>());
+        List<MoodEvent> page = Arrays.asList(located, plain, new MoodEvent());
+
+        FeedSnapshot.write(file, 5000, page);
+        FeedSnapshot snapshot = FeedSnapshot.read(file);
+
+        assertEquals(5000, snapshot.getWatermark());
+        assertEquals(page, snapshot.getEvents());
+    }
+
+    @Test
+    public void inlineImagesAreNotSavedTest() throws IOException {
+        MoodEvent stored = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, null);
+        stored.setAttachedImageRef("abc123");
+        stored.setAttachedImagePlaceholder("LEHV6nWB2yk8");
+        MoodEvent inline = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, null);
+        inline.setAttachedImageData(Blob.fromBytes(new byte[]{1, 2, 3}));
+        inline.setAttachedImage("AQID");
+
+        FeedSnapshot.write(file, 1, Arrays.asList(stored, inline));
+        List<MoodEvent> events = FeedSnapshot.read(file).getEvents();
+
+        assertEquals(stored, events.get(0));
+        assertNull(events.get(1).getAttachedImageData());
+        assertNull(events.get(1).getAttachedImage());
+        assertEquals(inline.getId(), events.get(1).getId());
+    }
+
+    @Test
+    public void emptyPageTest() throws IOException {
+        FeedSnapshot.write(file, 1, Collections.emptyList());
+
+        assertTrue(FeedSnapshot.read(file).getEvents().isEmpty());
+    }
+
+    @Test
+    public void otherFormatIsIgnoredTest() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[32]);
+        }
+
+        assertNull(FeedSnapshot.read(file));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileFailsTest() throws IOException {
+        MoodEvent moodEvent = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, null);
+        FeedSnapshot.write(file, 1, Collections.singletonList(moodEvent));
+        long length = file.length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(length - 8);
+        }
+
+        FeedSnapshot.read(file);
+    }
+}
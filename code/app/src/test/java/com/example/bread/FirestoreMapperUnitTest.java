@@ -0,0 +1,77 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.bread.firebase.MoodEventMapper;
+import com.example.bread.firebase.ParticipantMapper;
+import com.example.bread.model.MoodEvent;
+import com.example.bread.model.Participant;
+import com.google.firebase.Timestamp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks that the mappers read back what they write and tolerate malformed fields.
+ * Reading real snapshots is compared against {@code toObject} by FirestoreMapperTest on the emulator.
+ */
+public class FirestoreMapperUnitTest {
+
+    @Test
+    public void moodEventRoundTripTest() {
+        MoodEvent moodEvent = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, null);
+        moodEvent.setTimestamp(new Date(1000));
+        moodEvent.setSocialSituation(MoodEvent.SocialSituation.ALONE);
+        moodEvent.setTrigger("trigger");
+        moodEvent.setSearchTokens(Arrays.asList("reason", "trigger"));
+        Map<String, Object> geoInfo = new HashMap<>();
+        geoInfo.put("latitude", 53.5);
+        moodEvent.setGeoInfo(geoInfo);
+
+        assertEquals(moodEvent, MoodEventMapper.fromData(MoodEventMapper.toMap(moodEvent)));
+    }
+
+    @Test
+    public void storedTimestampIsReadAsDateTest() {
+        Map<String, Object> data = new HashMap<>();
+        data.put(MoodEventMapper.TIMESTAMP, new Timestamp(new Date(5000)));
+
+        assertEquals(new Date(5000), MoodEventMapper.fromData(data).getTimestamp());
+    }
+
+    @Test
+    public void malformedFieldsAreReadAsNullTest() {
+        Map<String, Object> data = new HashMap<>();
+        data.put(MoodEventMapper.EMOTIONAL_STATE, "EXCITED");
+        data.put(MoodEventMapper.REASON, 42L);
+
+        MoodEvent moodEvent = MoodEventMapper.fromData(data);
+        assertNull(moodEvent.getEmotionalState());
+        assertNull(moodEvent.getReason());
+    }
+
+    @Test
+    public void participantSummaryRoundTripTest() {
+        Participant participant = new Participant("user", "user@test.com", "first", "last");
+        participant.setFollowerCount(2);
+        participant.setFollowingCount(3);
+        participant.setProfilePictureVersion(4);
+        participant.setProfilePictureRef("hash");
+
+        Participant read = ParticipantMapper.fromData(ParticipantMapper.toSummaryMap(participant));
+        assertEquals("user", read.getUsername());
+        assertEquals("First", read.getFirstName());
+        assertEquals("Last", read.getLastName());
+        assertEquals(2, read.getFollowerCount());
+        assertEquals(3, read.getFollowingCount());
+        assertEquals(4, read.getProfilePictureVersion());
+        assertEquals("hash", read.getProfilePictureRef());
+        // The email is kept in the details document
+        assertNull(read.getEmail());
+    }
+}
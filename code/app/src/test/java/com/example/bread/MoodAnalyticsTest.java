@@ -0,0 +1,202 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.example.bread.analytics.MoodAnalytics;
+import com.example.bread.model.MoodEvent;
+import com.example.bread.model.MoodEventChange;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that the incrementally maintained analytics match the events they were given.
+ */
+public class MoodAnalyticsTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    // Monday 2024-01-01 00:00 UTC
+    private static final long MONDAY = 1704067200000L;
+
+    private static MoodEvent event(MoodEvent.EmotionalState state, int day, int hour) {
+        MoodEvent moodEvent = new MoodEvent("title", "reason", state, null);
+        moodEvent.setTimestamp(new Date(MONDAY + TimeUnit.DAYS.toMillis(day) + TimeUnit.HOURS.toMillis(hour)));
+        return moodEvent;
+    }
+
+    @Test
+    public void putAndRemoveTest() {
+        MoodAnalytics analytics = new MoodAnalytics(UTC);
+        assertNull(analytics.getMostFrequentEmotion());
+
+        assertTrue(analytics.put("a", event(MoodEvent.EmotionalState.HAPPY, 0, 9)));
+        assertTrue(analytics.put("b", event(MoodEvent.EmotionalState.HAPPY, 2, 9)));
+        assertTrue(analytics.put("c", event(MoodEvent.EmotionalState.SAD, 2, 21)));
+        assertEquals(3, analytics.getTotalCount());
+        assertEquals(MoodEvent.EmotionalState.HAPPY, analytics.getMostFrequentEmotion());
+        assertEquals(9, analytics.getBusiestHour());
+        assertEquals(2, analytics.getBusiestWeekday());
+        assertEquals(1, analytics.getCount(MoodEvent.EmotionalState.SAD, 2, 21));
+
+        assertTrue(analytics.remove("a"));
+        assertFalse(analytics.remove("a"));
+        assertEquals(1, analytics.getEmotionCount(MoodEvent.EmotionalState.HAPPY));
+        assertEquals(0, analytics.getCount(0, 9));
+    }
+
+    @Test
+    public void editReplacesContributionTest() {
+        MoodAnalytics analytics = new MoodAnalytics(UTC);
+        MoodEvent moodEvent = event(MoodEvent.EmotionalState.HAPPY, 0, 9);
+        analytics.put("a", moodEvent);
+
+        assertFalse(analytics.put("a", moodEvent));
+
+        moodEvent.setEmotionalState(MoodEvent.EmotionalState.ANGRY);
+        moodEvent.setSocialSituation(MoodEvent.SocialSituation.ALONE);
+        assertTrue(analytics.apply(new MoodEventChange(MoodEventChange.Type.MODIFIED, "a", moodEvent)));
+        assertEquals(1, analytics.getTotalCount());
+        assertEquals(0, analytics.getEmotionCount(MoodEvent.EmotionalState.HAPPY));
+        assertEquals(1, analytics.getEmotionCount(MoodEvent.EmotionalState.ANGRY));
+        assertEquals(MoodEvent.EmotionalState.ANGRY, analytics.getTopEmotion(MoodEvent.SocialSituation.ALONE));
+
+        assertTrue(analytics.apply(new MoodEventChange(MoodEventChange.Type.REMOVED, "a", moodEvent)));
+        assertEquals(0, analytics.getTotalCount());
+    }
+
+    @Test
+    public void eventWithoutTimestampIsIgnoredTest() {
+        MoodAnalytics analytics = new MoodAnalytics(UTC);
+        MoodEvent moodEvent = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, null);
+        moodEvent.setTimestamp(null);
+
+        assertFalse(analytics.put("a", moodEvent));
+        assertEquals(0, analytics.getTotalCount());
+    }
+
+    @Test
+    public void streaksTest() {
+        MoodAnalytics analytics = new MoodAnalytics(UTC);
+        int monday = analytics.epochDay(new Date(MONDAY));
+        analytics.put("a", event(MoodEvent.EmotionalState.HAPPY, 0, 1));
+        analytics.put("b", event(MoodEvent.EmotionalState.HAPPY, 1, 1));
+        analytics.put("c", event(MoodEvent.EmotionalState.HAPPY, 2, 1));
+        analytics.put("d", event(MoodEvent.EmotionalState.HAPPY, 2, 23));
+        analytics.put("e", event(MoodEvent.EmotionalState.HAPPY, 5, 1));
+
+        assertEquals(3, analytics.getLongestStreak());
+        assertEquals(1, analytics.getCurrentStreak(monday + 5));
+        // Nothing recorded yet today, the streak up to yesterday still counts
+        assertEquals(1, analytics.getCurrentStreak(monday + 6));
+        assertEquals(0, analytics.getCurrentStreak(monday + 7));
+        assertEquals(3, analytics.getCurrentStreak(monday + 2));
+
+        // Removing one of two events on a day keeps the day in the streak
+        analytics.remove("d");
+        assertEquals(3, analytics.getLongestStreak());
+        analytics.remove("b");
+        assertEquals(1, analytics.getLongestStreak());
+    }
+
+    @Test
+    public void timeZoneDecidesDayAndHourTest() {
+        MoodAnalytics analytics = new MoodAnalytics(TimeZone.getTimeZone("GMT-07:00"));
+        // Monday 03:00 UTC is Sunday 20:00 seven hours behind
+        analytics.put("a", event(MoodEvent.EmotionalState.HAPPY, 0, 3));
+
+        assertEquals(6, analytics.getBusiestWeekday());
+        assertEquals(20, analytics.getBusiestHour());
+        assertEquals(new MoodAnalytics(UTC).epochDay(new Date(MONDAY)) - 1, analytics.epochDay(new Date(MONDAY + TimeUnit.HOURS.toMillis(3))));
+    }
+
+    @Test
+    public void startOfDayTest() {
+        TimeZone zone = TimeZone.getTimeZone("GMT+05:30");
+        MoodAnalytics analytics = new MoodAnalytics(zone);
+        Date date = new Date(MONDAY + TimeUnit.HOURS.toMillis(12));
+        int day = analytics.epochDay(date);
+
+        Date start = analytics.startOfDay(day);
+        assertEquals(day, analytics.epochDay(start));
+        assertEquals(day - 1, analytics.epochDay(new Date(start.getTime() - 1)));
+    }
+
+    @Test
+    public void retainAllFromDayTest() {
+        MoodAnalytics analytics = new MoodAnalytics(UTC);
+        int monday = analytics.epochDay(new Date(MONDAY));
+        analytics.put("old", event(MoodEvent.EmotionalState.HAPPY, 0, 1));
+        analytics.put("kept", event(MoodEvent.EmotionalState.HAPPY, 3, 1));
+        analytics.put("deleted", event(MoodEvent.EmotionalState.SAD, 3, 2));
+
+        // Only the events since Thursday were listened to, so the older one stays
+        assertTrue(analytics.retainAll(Collections.singleton("kept"), monday + 3));
+        assertEquals(new HashSet<>(Arrays.asList("old", "kept")), analytics.getEventIds());
+        assertEquals(0, analytics.getEmotionCount(MoodEvent.EmotionalState.SAD));
+
+        assertTrue(analytics.retainAll(Collections.singleton("kept")));
+        assertEquals(Collections.singleton("kept"), analytics.getEventIds());
+    }
+
+    @Test
+    public void stateRoundTripTest() throws IOException {
+        MoodAnalytics analytics = new MoodAnalytics(UTC);
+        analytics.put("a", event(MoodEvent.EmotionalState.HAPPY, 0, 9));
+        MoodEvent withSituation = event(MoodEvent.EmotionalState.SAD, 4, 18);
+        withSituation.setSocialSituation(MoodEvent.SocialSituation.WITH_FRIENDS);
+        analytics.put("b", withSituation);
+        analytics.setSyncedUntil(MONDAY);
+        analytics.setFullySyncedAt(MONDAY - 1);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        analytics.writeTo(new DataOutputStream(bytes));
+        MoodAnalytics restored = new MoodAnalytics(UTC);
+        restored.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(analytics.getEventIds(), restored.getEventIds());
+        assertEquals(1, restored.getCount(MoodEvent.EmotionalState.SAD, 4, 18));
+        assertEquals(1, restored.getSituationCount(MoodEvent.SocialSituation.WITH_FRIENDS, MoodEvent.EmotionalState.SAD));
+        assertEquals(MONDAY, restored.getSyncedUntil());
+        assertEquals(MONDAY - 1, restored.getFullySyncedAt());
+
+        // Removing a restored event subtracts exactly what was added for it
+        restored.remove("b");
+        assertEquals(0, restored.getCount(MoodEvent.EmotionalState.SAD, 4, 18));
+    }
+
+    @Test
+    public void truncatedStateLeavesAnalyticsEmptyTest() throws IOException {
+        MoodAnalytics analytics = new MoodAnalytics(UTC);
+        analytics.put("a", event(MoodEvent.EmotionalState.HAPPY, 0, 9));
+        analytics.put("b", event(MoodEvent.EmotionalState.HAPPY, 1, 9));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        analytics.writeTo(new DataOutputStream(bytes));
+        byte[] truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 4);
+
+        MoodAnalytics restored = new MoodAnalytics(UTC);
+        try {
+            restored.readFrom(new DataInputStream(new ByteArrayInputStream(truncated)));
+            fail("truncated state was accepted");
+        } catch (IOException expected) {
+            // expected
+        }
+        assertEquals(0, restored.getTotalCount());
+        assertEquals(0, restored.getEmotionCount(MoodEvent.EmotionalState.HAPPY));
+        assertEquals(0, restored.getSyncedUntil());
+    }
+}
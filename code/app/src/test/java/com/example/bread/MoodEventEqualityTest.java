@@ -0,0 +1,79 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import com.example.bread.model.MoodEvent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Checks that mood events compare by content, which the lists rely on to only rebind changed rows.
+ */
+public class MoodEventEqualityTest {
+
+    private static MoodEvent copy(MoodEvent event) {
+        MoodEvent copy = new MoodEvent(event.getTitle(), event.getReason(), event.getEmotionalState(), event.getParticipantRef());
+        copy.setId(event.getId());
+        copy.setTimestamp(event.getTimestamp());
+        return copy;
+    }
+
+    @Test
+    public void sameContentIsEqualTest() {
+        MoodEvent event = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, null);
+        event.setTimestamp(new Date(1000));
+        MoodEvent copy = copy(event);
+
+        assertEquals(event, copy);
+        assertEquals(event.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void editedEventKeepsHashTest() {
+        MoodEvent event = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, null);
+        MoodEvent edited = copy(event);
+        edited.setReason("another reason");
+
+        assertNotEquals(event, edited);
+        assertEquals(event.hashCode(), edited.hashCode());
+    }
+
+    @Test
+    public void differentIdIsNotEqualTest() {
+        MoodEvent event = new MoodEvent("title", "reason", MoodEvent.EmotionalState.HAPPY, null);
+        MoodEvent other = copy(event);
+        other.setId("other");
+
+        assertNotEquals(event, other);
+    }
+
+    @Test
+    public void copyConstructorCopiesEveryFieldTest() {
+        MoodEvent event = new MoodEvent("title", "exam", MoodEvent.EmotionalState.HAPPY, null);
+        event.setTimestamp(new Date(1000));
+        event.setTrigger("trigger");
+        event.setSearchTokens(new ArrayList<>(Arrays.asList("e", "ex")));
+        Map<String, Object> location = new HashMap<>();
+        location.put("latitude", 10.0);
+        event.setGeoInfo(location);
+        MoodEvent copy = new MoodEvent(event);
+
+        assertEquals(event, copy);
+
+        // Editing the copy leaves the original as it was
+        copy.getSearchTokens().add("exa");
+        copy.getGeoInfo().put("longitude", 20.0);
+        copy.getTimestamp().setTime(2000);
+        assertNotEquals(event, copy);
+        assertEquals(Arrays.asList("e", "ex"), event.getSearchTokens());
+        assertEquals(1, event.getGeoInfo().size());
+        assertEquals(1000, event.getTimestamp().getTime());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.search.MoodEventIndex;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks that the inverted index finds events by word prefixes and follows edits and deletes.
+ */
+public class MoodEventIndexTest {
+
+    private static MoodEvent event(String id, String title, String reason) {
+        MoodEvent moodEvent = new MoodEvent(title, reason, MoodEvent.EmotionalState.HAPPY, null);
+        moodEvent.setId(id);
+        return moodEvent;
+    }
+
+    private static Set<String> search(MoodEventIndex index, String query) {
+        return new HashSet<>(index.search(query));
+    }
+
+    private static Set<String> ids(String... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+
+    @Test
+    public void prefixMatchTest() {
+        MoodEventIndex index = new MoodEventIndex();
+        index.put(event("a", "Exam", "studying"));
+        index.put(event("b", "Example", "walk"));
+        index.put(event("c", "Exit", "walk"));
+
+        assertEquals(ids("a", "b"), search(index, "exa"));
+        assertEquals(ids("a", "b", "c"), search(index, "ex"));
+        assertEquals(ids("b"), search(index, "example"));
+        assertEquals(ids(), search(index, "examples"));
+        // Only word starts match, not substrings inside a word
+        assertEquals(ids(), search(index, "xam"));
+    }
+
+    @Test
+    public void queryIsNormalizedTest() {
+        MoodEventIndex index = new MoodEventIndex();
+        index.put(event("a", "Café", "met friends"));
+
+        assertEquals(ids("a"), search(index, "CAFE"));
+        assertEquals(ids("a"), search(index, "café!"));
+    }
+
+    @Test
+    public void everyWordMustMatchTest() {
+        MoodEventIndex index = new MoodEventIndex();
+        index.put(event("a", "Exam", "studying late"));
+        index.put(event("b", "Exam", "passed"));
+        index.put(event("c", "Late", "bus"));
+
+        assertEquals(ids("a"), search(index, "exam late"));
+        assertEquals(ids("a"), search(index, "lat ex"));
+        assertEquals(ids(), search(index, "exam bus"));
+    }
+
+    @Test
+    public void emptyQueryMatchesEverythingTest() {
+        MoodEventIndex index = new MoodEventIndex();
+        index.put(event("a", "Exam", "studying"));
+        index.put(event("b", "Walk", "park"));
+
+        assertEquals(ids("a", "b"), search(index, ""));
+        assertEquals(ids("a", "b"), search(index, " ?! "));
+    }
+
+    @Test
+    public void editReplacesTokensTest() {
+        MoodEventIndex index = new MoodEventIndex();
+        MoodEvent moodEvent = event("a", "Exam", "studying");
+        index.put(moodEvent);
+
+        MoodEvent edited = event("a", "Holiday", "beach");
+        index.put(edited);
+
+        assertEquals(1, index.size());
+        assertEquals(ids(), search(index, "exam"));
+        assertEquals(ids("a"), search(index, "beach"));
+        assertTrue(index.matches(edited, "hol"));
+        assertFalse(index.matches(edited, "stud"));
+    }
+
+    @Test
+    public void removedSlotsAreReusedTest() {
+        MoodEventIndex index = new MoodEventIndex();
+        index.put(event("a", "Exam", "studying"));
+        index.put(event("b", "Walk", "park"));
+        index.remove("a");
+
+        assertEquals(1, index.size());
+        assertEquals(ids(), search(index, "exam"));
+
+        // The new event takes the freed slot and must not inherit the old tokens
+        index.put(event("c", "Run", "park"));
+        assertEquals(ids("b", "c"), search(index, "park"));
+        assertEquals(ids(), search(index, "stud"));
+        assertEquals(ids("b", "c"), search(index, ""));
+    }
+
+    @Test
+    public void syncKeepsOnlyGivenEventsTest() {
+        MoodEventIndex index = new MoodEventIndex();
+        index.put(event("a", "Exam", "studying"));
+        index.put(event("b", "Walk", "park"));
+
+        List<MoodEvent> events = Arrays.asList(event("b", "Walk", "beach"), event("c", "Exam", "results"));
+        index.sync(events);
+
+        assertEquals(2, index.size());
+        assertEquals(ids("c"), search(index, "exam"));
+        assertEquals(ids("b"), search(index, "beach"));
+        assertEquals(ids(), search(index, "park"));
+
+        index.sync(Collections.emptyList());
+        assertEquals(0, index.size());
+        assertEquals(ids(), search(index, ""));
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.store.MoodEventStore;
+import com.google.firebase.firestore.Blob;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that the columnar store gives back the events it was built from, newest first
+ */
+public class MoodEventStoreTest {
+
+    private static MoodEvent event(String id, long time) {
+        MoodEvent moodEvent = new MoodEvent("title " + id, "reason " + id, MoodEvent.EmotionalState.HAPPY, null);
+        moodEvent.setId(id);
+        moodEvent.setTimestamp(new Date(time));
+        return moodEvent;
+    }
+
+    @Test
+    public void eventsAreReadBackEqualTest() {
+        MoodEvent full = event("full", 2000);
+        full.setSocialSituation(MoodEvent.SocialSituation.WITH_ONE_OTHER_PERSON);
+        full.setTrigger("tést ☕");
+        full.setSearchTokens(Arrays.asList("reason", "full"));
+        full.setAttachedImageRef("abc123");
+        full.setAttachedImagePlaceholder("LEHV6nWB2yk8");
+        full.setAttachedImageData(Blob.fromBytes(new byte[]{1, 2, 3}));
+        Map<String, Object> location = new HashMap<>();
+        location.put("geohash", "c3x2");
+        location.put("latitude", 53.5);
+        location.put("longitude", -113.5);
+        full.setGeoInfo(location);
+
+        MoodEvent partial = new MoodEvent();
+        partial.setId("partial");
+        partial.setTimestamp(new Date(1000));
+        partial.setTitle("");
+        partial.setSearchTokens(new ArrayList<>());
+        Map<String, Object> latitudeOnly = new HashMap<>();
+        latitudeOnly.put("latitude", 10.0);
+        partial.setGeoInfo(latitudeOnly);
+
+        MoodEvent empty = new MoodEvent();
+
+        // Newer events take the resident positions, so the events checked are read back from the columns
+        List<MoodEvent> events = new ArrayList<>(Arrays.asList(partial, empty, full));
+        for (int i = 0; i < MoodEventStore.MAX_RESIDENT_EVENTS; i++) {
+            events.add(event("newer" + i, 10000 + i));
+        }
+        MoodEventStore store = MoodEventStore.of(events);
+
+        List<MoodEvent> read = store.asList().subList(MoodEventStore.MAX_RESIDENT_EVENTS, store.size());
+        assertEquals(Arrays.asList(full, partial, empty), read);
+        assertNotSame(full, read.get(0));
+    }
+
+    @Test
+    public void residentEventsAreTheGivenInstancesTest() {
+        MoodEvent newest = event("b", 2000);
+        MoodEventStore store = MoodEventStore.of(Arrays.asList(event("a", 1000), newest));
+
+        assertSame(newest, store.get(0));
+        assertSame(newest, store.view(new int[]{0}).get(0));
+    }
+
+    @Test
+    public void eventsAreSortedNewestFirstTest() {
+        MoodEventStore store = MoodEventStore.of(Arrays.asList(event("b", 2000), event("c", 3000), event("a", 1000)));
+
+        assertEquals("c", store.getId(0));
+        assertEquals("b", store.getId(1));
+        assertEquals("a", store.getId(2));
+        assertEquals(1000, store.getTime(2));
+    }
+
+    @Test
+    public void eventsAreFoundByIdTest() {
+        List<MoodEvent> events = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            events.add(event("id" + i, i));
+        }
+        MoodEventStore store = MoodEventStore.of(events);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("id" + i, store.getId(store.indexOf("id" + i)));
+        }
+        assertEquals(-1, store.indexOf("missing"));
+    }
+
+    @Test
+    public void viewReadsTheGivenPositionsTest() {
+        MoodEventStore store = MoodEventStore.of(Arrays.asList(event("a", 1000), event("b", 2000), event("c", 3000)));
+
+        List<MoodEvent> view = store.view(new int[]{0, 2});
+
+        assertEquals(Arrays.asList(event("c", 3000), event("a", 1000)), view);
+        assertNull(store.getSocialSituation(1));
+    }
+
+    @Test
+    public void largeHistoryTest() {
+        List<MoodEvent> events = new ArrayList<>();
+        MoodEvent.EmotionalState[] states = MoodEvent.EmotionalState.values();
+        for (int i = 0; i < 50000; i++) {
+            MoodEvent moodEvent = event("event" + i, i * 60000L);
+            moodEvent.setEmotionalState(states[i % states.length]);
+            events.add(moodEvent);
+        }
+        MoodEventStore store = MoodEventStore.of(events);
+
+        assertEquals(50000, store.size());
+        assertEquals(events.get(49999), store.get(0));
+        assertEquals(events.get(0), store.get(49999));
+        assertEquals(states[12345 % states.length], store.getEmotionalState(store.indexOf("event12345")));
+    }
+}
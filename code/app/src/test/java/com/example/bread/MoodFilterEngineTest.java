@@ -0,0 +1,136 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bread.filter.MoodFilter;
+import com.example.bread.filter.MoodFilterEngine;
+import com.example.bread.model.MoodEvent;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Checks that filter criteria combine with AND and that time windows include since and exclude until.
+ */
+public class MoodFilterEngineTest {
+
+    private static MoodEvent event(String id, long time, MoodEvent.EmotionalState state, MoodEvent.SocialSituation situation, String reason) {
+        MoodEvent moodEvent = new MoodEvent("title", reason, state, null);
+        moodEvent.setId(id);
+        moodEvent.setTimestamp(new Date(time));
+        moodEvent.setSocialSituation(situation);
+        return moodEvent;
+    }
+
+    private static MoodFilterEngine engine() {
+        MoodFilterEngine engine = new MoodFilterEngine();
+        engine.setEvents(Arrays.asList(
+                event("a", 1000, MoodEvent.EmotionalState.HAPPY, MoodEvent.SocialSituation.ALONE, "exam passed"),
+                event("b", 2000, MoodEvent.EmotionalState.SAD, MoodEvent.SocialSituation.WITH_FRIENDS, "exam failed"),
+                event("c", 3000, MoodEvent.EmotionalState.HAPPY, MoodEvent.SocialSituation.WITH_FRIENDS, "beach"),
+                event("d", 3000, MoodEvent.EmotionalState.ANGRY, MoodEvent.SocialSituation.ALONE, "traffic"),
+                event("e", 4000, MoodEvent.EmotionalState.HAPPY, null, "example")));
+        return engine;
+    }
+
+    private static List<String> ids(List<MoodEvent> events) {
+        List<String> ids = new ArrayList<>();
+        for (MoodEvent event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+
+    private static List<String> sorted(List<MoodEvent> events) {
+        List<String> ids = ids(events);
+        ids.sort(null);
+        return ids;
+    }
+
+    @Test
+    public void emptyFilterReturnsAllNewestFirstTest() {
+        MoodFilterEngine engine = engine();
+        List<String> all = ids(engine.filter(MoodFilter.all()));
+
+        assertEquals(5, all.size());
+        assertEquals("e", all.get(0));
+        assertEquals("a", all.get(4));
+    }
+
+    @Test
+    public void timeWindowBoundariesTest() {
+        MoodFilterEngine engine = engine();
+
+        // since is inclusive, until is exclusive
+        assertEquals(Arrays.asList("b", "c", "d"), sorted(engine.filter(MoodFilter.all().since(new Date(2000)).until(new Date(4000)))));
+        assertEquals(Arrays.asList("c", "d", "e"), sorted(engine.filter(MoodFilter.all().since(new Date(3000)))));
+        assertEquals(Arrays.asList("a", "b"), sorted(engine.filter(MoodFilter.all().until(new Date(3000)))));
+        assertEquals(Arrays.asList("c", "d"), sorted(engine.filter(MoodFilter.all().since(new Date(2001)).until(new Date(3001)))));
+        assertTrue(engine.filter(MoodFilter.all().since(new Date(3000)).until(new Date(3000))).isEmpty());
+        assertTrue(engine.filter(MoodFilter.all().since(new Date(4001))).isEmpty());
+        assertTrue(engine.filter(MoodFilter.all().until(new Date(1000))).isEmpty());
+    }
+
+    @Test
+    public void criteriaCombineTest() {
+        MoodFilterEngine engine = engine();
+
+        assertEquals(Arrays.asList("a", "c", "e"), sorted(engine.filter(MoodFilter.all().withEmotionalState(MoodEvent.EmotionalState.HAPPY))));
+        assertEquals(Arrays.asList("c"), sorted(engine.filter(MoodFilter.all()
+                .withEmotionalState(MoodEvent.EmotionalState.HAPPY)
+                .withSocialSituation(MoodEvent.SocialSituation.WITH_FRIENDS))));
+        assertEquals(Arrays.asList("a", "e"), sorted(engine.filter(MoodFilter.all()
+                .withEmotionalState(MoodEvent.EmotionalState.HAPPY)
+                .withKeyword("exa"))));
+        assertEquals(Arrays.asList("e"), sorted(engine.filter(MoodFilter.all()
+                .withEmotionalState(MoodEvent.EmotionalState.HAPPY)
+                .withKeyword("exa")
+                .since(new Date(1001)))));
+        assertTrue(engine.filter(MoodFilter.all()
+                .withEmotionalState(MoodEvent.EmotionalState.FEARFUL)).isEmpty());
+        assertTrue(engine.filter(MoodFilter.all()
+                .withSocialSituation(MoodEvent.SocialSituation.ALONE)
+                .withKeyword("beach")).isEmpty());
+    }
+
+    @Test
+    public void keywordMatchesEveryWordTest() {
+        MoodFilterEngine engine = engine();
+
+        // Words match as prefixes, so "exam" also finds "example"
+        assertEquals(Arrays.asList("a", "b", "e"), sorted(engine.filter(MoodFilter.all().withKeyword("exam"))));
+        assertEquals(Arrays.asList("e"), sorted(engine.filter(MoodFilter.all().withKeyword("examp"))));
+        assertEquals(Arrays.asList("b"), sorted(engine.filter(MoodFilter.all().withKeyword("exam fail"))));
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), sorted(engine.filter(MoodFilter.all().withKeyword("  "))));
+    }
+
+    @Test
+    public void sameFilterReusesResultTest() {
+        MoodFilterEngine engine = engine();
+        MoodFilter filter = MoodFilter.all().withKeyword("exam").since(new Date(1500));
+
+        List<MoodEvent> first = engine.filter(filter);
+        assertSame(first, engine.filter(MoodFilter.all().since(new Date(1500)).withKeyword("exam")));
+        assertEquals(Arrays.asList("b", "e"), sorted(first));
+    }
+
+    @Test
+    public void newEventsInvalidateCachesTest() {
+        MoodFilterEngine engine = engine();
+        MoodFilter filter = MoodFilter.all().withKeyword("exam").since(new Date(1500));
+        assertEquals(Arrays.asList("b", "e"), sorted(engine.filter(filter)));
+
+        engine.setEvents(Arrays.asList(
+                event("b", 2000, MoodEvent.EmotionalState.SAD, null, "beach"),
+                event("f", 5000, MoodEvent.EmotionalState.HAPPY, null, "exam again")));
+
+        assertEquals(Arrays.asList("f"), sorted(engine.filter(filter)));
+        assertEquals(2, engine.size());
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.bread;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.bread.model.MoodEvent;
+import com.example.bread.search.Tokenizer;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Checks that text is split into the same normalized tokens for indexing and querying.
+ */
+public class TokenizerTest {
+
+    @Test
+    public void splitsOnNonWordCharactersTest() {
+        assertEquals(Arrays.asList("cafe", "exams"), Tokenizer.tokenize("Café exams!"));
+        assertEquals(Arrays.asList("rainy", "day", "2"), Tokenizer.tokenize("  rainy--day...2 "));
+        assertEquals(Arrays.asList("don", "t"), Tokenizer.tokenize("don't"));
+    }
+
+    @Test
+    public void lowercasesAndStripsDiacriticsTest() {
+        assertEquals(Collections.singletonList("naive"), Tokenizer.tokenize("NAÏVE"));
+        assertEquals(Collections.singletonList("uber"), Tokenizer.tokenize("Über"));
+        assertEquals("resume", Tokenizer.normalize("Résumé"));
+    }
+
+    @Test
+    public void keepsNonLatinLettersTest() {
+        assertEquals(Arrays.asList("日本", "ελλάδα".replace("ά", "α")), Tokenizer.tokenize("日本 Ελλάδα"));
+    }
+
+    @Test
+    public void dropsDuplicatesInOrderTest() {
+        assertEquals(Arrays.asList("work", "again"), Tokenizer.tokenize("work again WORK"));
+    }
+
+    @Test
+    public void emptyTextTest() {
+        assertTrue(Tokenizer.tokenize((String) null).isEmpty());
+        assertTrue(Tokenizer.tokenize("").isEmpty());
+        assertTrue(Tokenizer.tokenize(" !?- ").isEmpty());
+    }
+
+    @Test
+    public void moodEventFieldsTest() {
+        MoodEvent moodEvent = new MoodEvent("Exam day", "studying", MoodEvent.EmotionalState.ANXIOUS, null);
+        moodEvent.setTrigger("exam results");
+
+        assertEquals(Arrays.asList("exam", "day", "studying", "results"), Tokenizer.tokenize(moodEvent));
+
+        moodEvent.setTitle(null);
+        moodEvent.setTrigger(null);
+        assertEquals(Collections.singletonList("studying"), Tokenizer.tokenize(moodEvent));
+    }
+
+    @Test
+    public void searchTokensHoldPrefixesTest() {
+        MoodEvent moodEvent = new MoodEvent("Exam", "ex", MoodEvent.EmotionalState.ANXIOUS, null);
+
+        assertEquals(Arrays.asList("e", "ex", "exa", "exam"), Tokenizer.searchTokens(moodEvent));
+
+        moodEvent.setTitle("abcdefghijklmnopqrstuvwxyz");
+        // The prefixes of the reason are kept as well
+        assertEquals(Tokenizer.MAX_PREFIX_LENGTH + 2, Tokenizer.searchTokens(moodEvent).size());
+        assertTrue(Tokenizer.searchTokens(moodEvent).contains(Tokenizer.queryToken("abcdefghijklmnopqrstuvwxyz")));
+    }
+
+    @Test
+    public void matchesAllPrefixesTest() {
+        MoodEvent moodEvent = new MoodEvent("Studying for exams", "tired", MoodEvent.EmotionalState.ANXIOUS, null);
+
+        assertTrue(Tokenizer.matchesAll(moodEvent, Tokenizer.tokenize("EXA stud")));
+        assertTrue(Tokenizer.matchesAll(moodEvent, Collections.emptyList()));
+        assertFalse(Tokenizer.matchesAll(moodEvent, Tokenizer.tokenize("exams failed")));
+        assertFalse(Tokenizer.matchesAll(moodEvent, Tokenizer.tokenize("xams")));
+    }
+}